@@ -0,0 +1,398 @@
+/**This class reads and writes StoryTrees in a compact binary format.
+ *
+ * The file starts with the MAGIC bytes and a version number, followed by
+ * 	the number of nodes and the number of distinct Strings,
+ * 	the table of distinct options and messages, each one length-prefixed UTF-8,
+ * 	the shape of the tree, 2 bits per node in preorder giving its number of children,
+ * 	and for each node in preorder the table indexes of its option and message.
+ * Numbers are written as unsigned variable-length integers. Positions are not stored
+ * since they follow from the shape.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+
+public class BinaryStoryFormat {
+	public static final byte[] MAGIC = {(byte) 0x89, 'Z', 'R', 'K'}; //Marks a binary story file, the first byte is never valid text
+	public static final int VERSION = 1; //The version of the format written by this class
+
+	private static final int BUFFER_SIZE = 1 << 16; //Bytes buffered when reading or writing
+
+	/**Returns whether or not the indicated file starts with the MAGIC bytes of a binary story
+	 *
+	 * @param filename
+	 * 	The file to check
+	 *
+	 * @return
+	 * 	True if the file is a binary story file, false if it is missing, shorter than MAGIC or anything else
+	 *
+	 * @exception IOException
+	 * 	Indicates the file exists but could not be read
+	 */
+	public static boolean isBinary(String filename) throws IOException {
+		return startsWith(filename, MAGIC);
+	}
+
+	/**Returns whether or not the indicated file starts with the indicated magic bytes
+	 *
+	 * @param filename
+	 * 	The file to check
+	 *
+	 * @param magic
+	 * 	The bytes which mark a kind of story file
+	 *
+	 * @return
+	 * 	True if the file starts with magic, false if it is missing, shorter than magic or anything else
+	 *
+	 * @exception IOException
+	 * 	Indicates the file exists but could not be read
+	 */
+	static boolean startsWith(String filename, byte[] magic) throws IOException {
+		byte[] header = new byte[magic.length];
+		try (InputStream in = new FileInputStream(filename)) {
+			if (in.readNBytes(header, 0, header.length) < header.length)
+				return false;
+		} catch (FileNotFoundException e) {
+			return false;
+		}
+		for (int x = 0; x < magic.length; x++) {
+			if (header[x] != magic[x])
+				return false;
+		}
+		return true;
+	}
+
+	/**Reads a binary story file and returns the StoryTree it holds
+	 *
+	 * @param filename
+	 * 	The binary file to read
+	 *
+	 * @return
+	 * 	The StoryTree made from the file
+	 *
+	 * @exception FileNotFoundException
+	 * 	Indicates the file is not found
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the file is not a binary story, has an unknown version or is cut short
+	 */
+	public static StoryTree read(String filename) throws IOException, DataFormatException {
+		FileInputStream file = new FileInputStream(filename);
+		CountingInputStream counter = new CountingInputStream(new BufferedInputStream(file, BUFFER_SIZE));
+		try (DataInputStream in = new DataInputStream(counter)) {
+			long size = file.getChannel().size();
+			byte[] header = new byte[MAGIC.length];
+			in.readFully(header);
+			for (int x = 0; x < MAGIC.length; x++) {
+				if (header[x] != MAGIC[x])
+					throw new DataFormatException(filename + " is not a binary story file");
+			}
+			int version = readNumber(in);
+			if (version != VERSION)
+				throw new DataFormatException("Unsupported binary story version " + version);
+
+			int nodeCount = readNumber(in);
+			int stringCount = readNumber(in);
+			if ((nodeCount + 3L) / 4 + 2L * nodeCount + stringCount > size - counter.getCount())
+				throw new DataFormatException(filename + " is too short for " + nodeCount + " nodes and " + stringCount + " Strings");
+			String[] strings = new String[stringCount];
+			for (int x = 0; x < strings.length; x++) {
+				int length = readNumber(in);
+				if (length > size - counter.getCount())
+					throw new DataFormatException(filename + " ends before the end of a String of " + length + " bytes");
+				byte[] bytes = new byte[length];
+				in.readFully(bytes);
+				strings[x] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			byte[] shape = new byte[(nodeCount + 3) / 4];
+			in.readFully(shape);
+
+			StoryTreeBuilder builder = new StoryTreeBuilder(true);
+			StoryTextInterner interner = builder.getInterner();
+			int[] remaining = new int[64]; //remaining[d] is how many more children the last node at depth d expects
+			int depth = 0;
+			remaining[0] = nodeCount == 0 ? 0 : 1;
+			for (int x = 0; x < nodeCount; x++) {
+				while (depth >= 0 && remaining[depth] == 0)
+					depth--;
+				if (depth < 0)
+					throw new DataFormatException("Node " + x + " does not fit the shape of the tree");
+				remaining[depth]--;
+				depth++;
+
+				StoryTreeNode newNode = new StoryTreeNode();
+				newNode.setOption(interner.intern(lookup(strings, readNumber(in))));
+				newNode.setMessage(interner.intern(lookup(strings, readNumber(in))));
+				builder.addNode(depth, newNode);
+
+				if (depth == remaining.length)
+					remaining = Arrays.copyOf(remaining, remaining.length * 2);
+				remaining[depth] = (shape[x / 4] >> (2 * (x % 4))) & 3;
+			}
+			for (int x = 0; x <= depth; x++) {
+				if (remaining[x] != 0)
+					throw new DataFormatException("The shape expects more than " + nodeCount + " nodes");
+			}
+			return builder.getTree();
+		} catch (EOFException e) {
+			throw new DataFormatException(filename + " ends before the end of the story");
+		}
+	}
+
+	/**Writes a StoryTree to the indicated file in the binary format and forces it to disk.
+	 * The tree writes everything after the version number itself, from whatever it keeps its story in
+	 *
+	 * @param filename
+	 * 	The file to write to
+	 *
+	 * @param tree
+	 * 	The tree to write
+	 *
+	 * @Precondition:
+	 * 	filename is nonnull and nonempty
+	 * 	tree is nonnull
+	 *
+	 * @exception FileNotFoundException
+	 * 	Indicates filename doesn't point to an accesible file
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	public static void write(String filename, StoryTree tree) throws IOException {
+		FileOutputStream file = new FileOutputStream(filename);
+		try (OutputStream out = new BufferedOutputStream(file, BUFFER_SIZE)) {
+			out.write(MAGIC);
+			writeNumber(out, VERSION);
+			tree.writeBinary(out);
+			out.flush();
+			file.getFD().sync();
+		}
+	}
+
+	/**Writes the node count, string table, shape and text indexes of a tree, walking it
+	 * once to gather the distinct Strings and the shape and once more for the indexes
+	 *
+	 * @param out
+	 * 	The stream to write to, just past the version number
+	 *
+	 * @param tree
+	 * 	The tree to write
+	 *
+	 * @exception IOException
+	 * 	Indicates the stream could not be written
+	 */
+	static void writeStory(OutputStream out, StoryTree tree) throws IOException {
+		HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+		ArrayList<String> strings = new ArrayList<String>();
+		ShapeWriter shape = new ShapeWriter();
+		tree.walkStory((depth, childNumber, numChildren, option, message) -> {
+			intern(option, indexes, strings);
+			intern(message, indexes, strings);
+			shape.add(numChildren);
+		});
+
+		writeNumber(out, shape.getNodeCount());
+		writeNumber(out, strings.size());
+		for (String string : strings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeNumber(out, bytes.length);
+			out.write(bytes);
+		}
+		shape.writeTo(out);
+		tree.walkStory((depth, childNumber, numChildren, option, message) -> {
+			writeNumber(out, indexes.get(option));
+			writeNumber(out, indexes.get(message));
+		});
+	}
+
+	/**Adds a String to the table if it is not in it already
+	 *
+	 * @param string
+	 * 	The String to add
+	 *
+	 * @param indexes
+	 * 	The index of each String in the table
+	 *
+	 * @param strings
+	 * 	The table of Strings in the order they were first seen
+	 */
+	private static void intern(String string, HashMap<String, Integer> indexes, ArrayList<String> strings) {
+		if (!indexes.containsKey(string)) {
+			indexes.put(string, strings.size());
+			strings.add(string);
+		}
+	}
+
+	/**Returns the String at the indicated index of the table
+	 *
+	 * @param strings
+	 * 	The table of Strings
+	 *
+	 * @param index
+	 * 	The index read from the file
+	 *
+	 * @return
+	 * 	The String at index
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates index is outside the table
+	 */
+	private static String lookup(String[] strings, int index) throws DataFormatException {
+		if (index >= strings.length)
+			throw new DataFormatException("String index " + index + " is outside the table of " + strings.length);
+		return strings[index];
+	}
+
+	/**Writes a non-negative number 7 bits at a time, lowest bits first
+	 *
+	 * @param out
+	 * 	The stream to write to
+	 *
+	 * @param number
+	 * 	The number to write
+	 *
+	 * @exception IOException
+	 * 	Indicates the stream could not be written
+	 */
+	static void writeNumber(OutputStream out, int number) throws IOException {
+		while ((number & ~0x7F) != 0) {
+			out.write((number & 0x7F) | 0x80);
+			number >>>= 7;
+		}
+		out.write(number);
+	}
+
+	/**Reads a number written by writeNumber
+	 *
+	 * @param in
+	 * 	The stream to read from
+	 *
+	 * @return
+	 * 	The number read
+	 *
+	 * @exception IOException
+	 * 	Indicates the stream could not be read or ended
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the number is longer than an int or larger than Integer.MAX_VALUE
+	 */
+	private static int readNumber(DataInputStream in) throws IOException, DataFormatException {
+		int number = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int next = in.readUnsignedByte();
+			if (shift == 28 && (next & 0x78) != 0)
+				throw new DataFormatException("A number in the file is larger than " + Integer.MAX_VALUE);
+			number |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0)
+				return number;
+		}
+		throw new DataFormatException("A number in the file is too long");
+	}
+
+	/**This class packs the number of children of each node, given in preorder, 2 bits to a node
+	 */
+	static class ShapeWriter {
+		private final ByteArrayOutputStream shape = new ByteArrayOutputStream(); //The shape bytes filled so far
+		private int bits; //The shape bits not yet added to shape
+		private int nodeCount; //The number of nodes added
+
+		/**Adds the next node in preorder
+		 *
+		 * @param numChildren
+		 * 	The number of children of the node
+		 */
+		void add(int numChildren) {
+			bits |= numChildren << (2 * (nodeCount % 4));
+			if (++nodeCount % 4 == 0) {
+				shape.write(bits);
+				bits = 0;
+			}
+		}
+
+		/**Returns the number of nodes added
+		 *
+		 * @return
+		 * 	The node count
+		 */
+		int getNodeCount() {
+			return nodeCount;
+		}
+
+		/**Writes the shape, with the last byte padded if the node count isn't a multiple of 4
+		 *
+		 * @param out
+		 * 	The stream to write to
+		 *
+		 * @exception IOException
+		 * 	Indicates the stream could not be written
+		 */
+		void writeTo(OutputStream out) throws IOException {
+			shape.writeTo(out);
+			if (nodeCount % 4 != 0)
+				out.write(bits);
+		}
+	}
+
+	/**This stream counts the bytes read through it, so a reader knows how many are left in the file
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private long count; //The number of bytes read or skipped so far
+
+		/**Counts the bytes read from a stream
+		 *
+		 * @param in
+		 * 	The stream to read from
+		 */
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		/**Returns the number of bytes read or skipped so far
+		 *
+		 * @return
+		 * 	The count
+		 */
+		long getCount() {
+			return count;
+		}
+
+		public int read() throws IOException {
+			int next = in.read();
+			if (next >= 0)
+				count++;
+			return next;
+		}
+
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int read = in.read(bytes, offset, length);
+			if (read > 0)
+				count += read;
+			return read;
+		}
+
+		public long skip(long bytes) throws IOException {
+			long skipped = in.skip(bytes);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
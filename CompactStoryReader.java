@@ -0,0 +1,81 @@
+/**This class reads a textfile in the "position | option | message" format into a
+ * CompactStoryTree. Lines are parsed like a StoryTextReader's, but their text goes
+ * straight from the read buffer into the tree's string pool without making Strings or Nodes.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+public class CompactStoryReader extends StoryTextReader {
+	private CompactStoryTree tree; //The tree being built
+	private StoryPositionChecker positions; //Checks that the lines arrive in preorder
+	private int[] ancestors; //ancestors[d] is the index of the last node added at depth d, ancestors[0] is the dummy root
+
+	/**Creates a reader that builds a new CompactStoryTree
+	 */
+	public CompactStoryReader() {
+		tree = new CompactStoryTree();
+		positions = new StoryPositionChecker();
+		ancestors = new int[64];
+	}
+
+	/**Adds the node of a parsed line to the tree
+	 *
+	 * @param buffer
+	 * 	The heap buffer holding the line
+	 *
+	 * @param positionStart
+	 * 	The index of the first byte of the position
+	 *
+	 * @param positionEnd
+	 * 	The index just past the last byte of the position
+	 *
+	 * @param optionStart
+	 * 	The index of the first byte of the option
+	 *
+	 * @param optionEnd
+	 * 	The index just past the last byte of the option
+	 *
+	 * @param messageStart
+	 * 	The index of the first byte of the message
+	 *
+	 * @param messageEnd
+	 * 	The index just past the last byte of the message
+	 *
+	 * @param lineNumber
+	 * 	The number of the line, used in error messages
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the position does not follow the previous line in preorder
+	 */
+	protected void addLine(ByteBuffer buffer, int positionStart, int positionEnd, int optionStart, int optionEnd,
+			int messageStart, int messageEnd, long lineNumber) throws DataFormatException {
+		int level = positions.place(buffer, positionStart, positionEnd, lineNumber);
+		byte[] bytes = buffer.array();
+		StoryStringPool strings = tree.getStrings();
+		int node = tree.newNode(strings.add(bytes, optionStart, optionEnd - optionStart),
+				strings.add(bytes, messageStart, messageEnd - messageStart));
+		tree.linkChild(ancestors[level - 1], positions.getChildNumber(level), node);
+
+		if (level == ancestors.length)
+			ancestors = Arrays.copyOf(ancestors, ancestors.length * 2);
+		ancestors[level] = node;
+	}
+
+	/**Returns the tree made from the lines read, with its leaf counts computed
+	 *
+	 * @return
+	 * 	The finished CompactStoryTree
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the file held no lines
+	 */
+	protected StoryTree getTree() throws DataFormatException {
+		if (!positions.hasStory())
+			throw new DataFormatException("The story file is empty");
+		tree.finishLoad();
+		return tree;
+	}
+}
@@ -0,0 +1,1016 @@
+/**This is a StoryTree that keeps its Nodes in parallel arrays instead of separate objects.
+ * Node n has its children at children[3n] to children[3n + 2], its text as indexes into
+ * a StoryStringPool, its leaf counts in two int arrays and its leaf, win and lose flags
+ * in a BitSet, about 28 bytes a Node plus its distinct text. Node 0 is the dummy root.
+ *
+ * The cursor API is the same as a StoryTree's, and none of a StoryTree's Nodes are made.
+ * Saving, analyzing and playing the tree read the arrays directly, and analyzing splits the
+ * story on the child indexes to walk its subtrees on several threads. getStoryRoot returns a
+ * copy of the story made of StoryTreeNodes, for code that needs Nodes, so editing that copy
+ * doesn't change this tree; for the same reason a SharedStory can't be made of it.
+ * The space of removed subtrees is not reused until the story is saved and loaded again.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+public class CompactStoryTree extends StoryTree implements SplittableStory {
+	private static final String WIN_MESSAGE = "YOU WIN"; //Special sequence which shows game was won
+	private static final String LOSE_MESSAGE = "YOU LOSE"; //Special sequence which shows game was lost
+	private static final int NO_CHILD = 0; //Marks an empty child slot, the dummy root is never a child
+	private static final int LEAF = 0; //Flag bit of a Node without children
+	private static final int WIN = 1; //Flag bit of a Node whose message contains WIN_MESSAGE
+	private static final int LOSE = 2; //Flag bit of a Node whose message contains LOSE_MESSAGE
+	private static final int FLAG_BITS = 3; //The number of flag bits of each Node
+	private static final int INITIAL_CAPACITY = 16; //Starting number of Nodes the arrays can hold
+
+	private int[] children; //children[3n + c - 1] is child c of Node n, or NO_CHILD
+	private int[] optionIds; //optionIds[n] is the index of the option of Node n in strings
+	private int[] messageIds; //messageIds[n] is the index of the message of Node n in strings
+	private int[] leafCounts; //leafCounts[n] is the number of leaves in the subtree of Node n
+	private int[] winningLeafCounts; //winningLeafCounts[n] is the number of winning leaves in the subtree of Node n
+	private double[] bestWinChances; //bestWinChances[n] is the chance of winning from Node n by always making the best choice
+	private double[] randomWinChances; //randomWinChances[n] is the chance of winning from Node n by choosing at random
+	private BitSet flags; //Bit FLAG_BITS * n + f is flag f of Node n
+	private StoryStringPool strings; //The distinct options and messages
+	private int nodeCount; //The number of Nodes in the arrays, including removed ones
+	private int[] path; //path[d] is the Node at depth d on the path from the dummy root to the cursor
+	private int cursorDepth; //The depth of the cursor, so the cursor is path[cursorDepth]
+
+	/**Creates an empty CompactStoryTree with only the dummy root
+	 *
+	 * @Postcondition:
+	 * 	The dummy root has been initialized and the cursor points to it
+	 */
+	public CompactStoryTree() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**Creates an empty CompactStoryTree whose arrays can hold the indicated number of Nodes before growing
+	 *
+	 * @param capacity
+	 * 	The number of Nodes expected
+	 */
+	CompactStoryTree(int capacity) {
+		super(false);
+		capacity = Math.max(capacity, 1);
+		children = new int[3 * capacity];
+		optionIds = new int[capacity];
+		messageIds = new int[capacity];
+		leafCounts = new int[capacity];
+		winningLeafCounts = new int[capacity];
+		bestWinChances = new double[capacity];
+		randomWinChances = new double[capacity];
+		flags = new BitSet(FLAG_BITS * capacity);
+		strings = new StoryStringPool();
+		nodeCount = 0;
+		newNode(strings.add("root"), strings.add("Hello, welcome to Zork!"));
+		path = new int[16];
+		cursorDepth = 0;
+	}
+
+	/**Copies a StoryTree into a new CompactStoryTree
+	 *
+	 * @param tree
+	 * 	The tree to copy
+	 *
+	 * @Precondition:
+	 * 	tree is not null
+	 *
+	 * @return
+	 * 	A CompactStoryTree holding the same story with the cursor at its beginning
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates tree is null
+	 */
+	public static CompactStoryTree copyOf(StoryTree tree) {
+		if (tree == null)
+			throw new IllegalArgumentException();
+		CompactStoryTree copy = new CompactStoryTree();
+		int[][] parents = {new int[16]}; //parents[0][d] is the last Node copied at depth d
+		try {
+			tree.walkStory((depth, childNumber, numChildren, option, message) -> {
+				if (depth + 1 == parents[0].length)
+					parents[0] = Arrays.copyOf(parents[0], parents[0].length * 2);
+				int index = copy.newNode(copy.strings.add(option), copy.strings.add(message));
+				copy.children[3 * parents[0][depth] + Math.max(childNumber, 1) - 1] = index;
+				parents[0][depth + 1] = index;
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		copy.finishLoad();
+		return copy;
+	}
+
+	/**Copies the arrays of another CompactStoryTree, sharing the pages of its string pool
+	 *
+	 * @param tree
+	 * 	The tree to copy, with the cursor of the copy at the beginning of its story
+	 */
+	private CompactStoryTree(CompactStoryTree tree) {
+		super(false);
+		nodeCount = tree.nodeCount;
+		children = Arrays.copyOf(tree.children, 3 * nodeCount);
+		optionIds = Arrays.copyOf(tree.optionIds, nodeCount);
+		messageIds = Arrays.copyOf(tree.messageIds, nodeCount);
+		leafCounts = Arrays.copyOf(tree.leafCounts, nodeCount);
+		winningLeafCounts = Arrays.copyOf(tree.winningLeafCounts, nodeCount);
+		bestWinChances = Arrays.copyOf(tree.bestWinChances, nodeCount);
+		randomWinChances = Arrays.copyOf(tree.randomWinChances, nodeCount);
+		flags = (BitSet) tree.flags.clone();
+		strings = new StoryStringPool(tree.strings);
+		path = new int[16];
+		cursorDepth = 0;
+		resetCursor();
+	}
+
+	/**Adds a Node without linking it to a parent
+	 *
+	 * @param optionId
+	 * 	The index of the option in the string pool
+	 *
+	 * @param messageId
+	 * 	The index of the message in the string pool
+	 *
+	 * @return
+	 * 	The index of the new Node, which is a leaf
+	 */
+	int newNode(int optionId, int messageId) {
+		if (nodeCount == optionIds.length) {
+			int capacity = nodeCount * 2;
+			children = Arrays.copyOf(children, 3 * capacity);
+			optionIds = Arrays.copyOf(optionIds, capacity);
+			messageIds = Arrays.copyOf(messageIds, capacity);
+			leafCounts = Arrays.copyOf(leafCounts, capacity);
+			winningLeafCounts = Arrays.copyOf(winningLeafCounts, capacity);
+			bestWinChances = Arrays.copyOf(bestWinChances, capacity);
+			randomWinChances = Arrays.copyOf(randomWinChances, capacity);
+		}
+		int node = nodeCount++;
+		optionIds[node] = optionId;
+		setMessageId(node, messageId);
+		return node;
+	}
+
+	/**Links a Node as a child of another without updating any leaf counts
+	 *
+	 * @param parent
+	 * 	The index of the parent
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3
+	 *
+	 * @param child
+	 * 	The index of the child
+	 */
+	void linkChild(int parent, int childNumber, int child) {
+		children[3 * parent + childNumber - 1] = child;
+	}
+
+	/**Returns the string pool holding the text of this tree
+	 *
+	 * @return
+	 * 	The string pool
+	 */
+	StoryStringPool getStrings() {
+		return strings;
+	}
+
+	/**Computes the leaf counts of every Node and moves the cursor to the beginning of the story.
+	 * Children always have greater indexes than their parents when Nodes are added in preorder,
+	 * so one pass from the last Node to the first counts the whole tree
+	 */
+	void finishLoad() {
+		for (int node = nodeCount - 1; node >= 0; node--)
+			updateCounts(node);
+		resetCursor();
+	}
+
+	/**Returns the number of Nodes in the story
+	 *
+	 * @return
+	 * 	The number of Nodes reachable from the beginning of the story
+	 */
+	public int getNumOfNodes() {
+		if (!hasStory())
+			return 0;
+		int count = 0;
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = children[0];
+		while (top > 0) {
+			int node = stack[--top];
+			count++;
+			if (top + 3 > stack.length)
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			for (int slot = 3 * node; slot < 3 * node + 3; slot++) {
+				if (children[slot] != NO_CHILD)
+					stack[top++] = children[slot];
+			}
+		}
+		return count;
+	}
+
+	/**Returns a copy of the story made of StoryTreeNodes
+	 *
+	 * @return
+	 * 	A new Node holding a copy of the beginning of the story and everything under it,
+	 * 	or null if the tree is empty
+	 */
+	public StoryTreeNode getStoryRoot() {
+		return hasStory() ? toNodes(children[0]) : null;
+	}
+
+	/**Returns whether or not the tree has a story, that is a Node besides the dummy root
+	 *
+	 * @return
+	 * 	True if the beginning of the story exists, false if the tree is empty
+	 */
+	public boolean hasStory() {
+		return children[0] != NO_CHILD;
+	}
+
+	/**Returns how much text the string pool shares between equal options and messages
+	 *
+	 * @return
+	 * 	A one line report of the Strings added while loading and editing, the duplicates and the bytes saved
+	 */
+	public String getDeduplicationReport() {
+		return strings.toString();
+	}
+
+	/**Returns the bytes of text the string pool didn't store again because they were already in it
+	 *
+	 * @return
+	 * 	The UTF-8 length of the duplicates added
+	 */
+	public long getBytesDeduplicated() {
+		return strings.getDuplicateBytes();
+	}
+
+	/**Returns the position of the cursor within the tree
+	 *
+	 * @return
+	 * 	The position of the cursor in the tree
+	 */
+	public String getCursorPosition() {
+		if (cursorDepth == 0)
+			return "root";
+		StringBuilder position = new StringBuilder(2 * cursorDepth - 1);
+		for (int level = 0; level < cursorDepth; level++) {
+			if (level > 0)
+				position.append('-');
+			position.append(childNumber(path[level], path[level + 1]));
+		}
+		return position.toString();
+	}
+
+	/**Returns the option of the cursor
+	 *
+	 * @return
+	 * 	The option String of the cursor node
+	 */
+	public String getCursorOption() {
+		return strings.get(optionIds[cursor()]);
+	}
+
+	/**Returns the message of the cursor
+	 *
+	 * @return
+	 * 	The message of the cursor which would be shown if it's chosen
+	 */
+	public String getCursorMessage() {
+		return strings.get(messageIds[cursor()]);
+	}
+
+	/**Returns an array of String pairs for each child of the cursor
+	 *
+	 * @return
+	 * 	A 2D String array with the positions and options of each child of the cursor
+	 */
+	public String[][] getOptions() {
+		int cursor = cursor();
+		String[][] options = new String[numChildren(cursor)][2];
+		String position = cursorDepth == 0 ? "" : getCursorPosition() + "-";
+		for (int x = 0; x < options.length; x++) {
+			options[x][0] = position + (x + 1);
+			options[x][1] = strings.get(optionIds[children[3 * cursor + x]]);
+		}
+		return options;
+	}
+
+	/**Fills a StoryOptions with the option of each child of the cursor, so the same one can be reused every step
+	 *
+	 * @param options
+	 * 	The options to fill
+	 *
+	 * @return
+	 * 	options, holding the option of each child of the cursor in order
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates options is null
+	 */
+	public StoryOptions getOptions(StoryOptions options) {
+		if (options == null)
+			throw new IllegalArgumentException();
+		options.clear();
+		int cursor = cursor();
+		for (int slot = 3 * cursor; slot < 3 * cursor + 3 && children[slot] != NO_CHILD; slot++)
+			options.add(strings.get(optionIds[children[slot]]));
+		return options;
+	}
+
+	/**Changes the cursor's message
+	 *
+	 * @param message
+	 * 	The new message to be set as the cursor's message
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates message is null
+	 */
+	public void setCursorMessage(String message) {
+		if (message == null)
+			throw new IllegalArgumentException();
+		setMessageId(cursor(), strings.add(message));
+		updateAncestorCounts();
+		record(StoryJournal.SET_MESSAGE, getCursorPosition(), 0, message, null);
+	}
+
+	/**Changes the cursor's option
+	 *
+	 * @param option
+	 * 	The new option to be ste as the cursor's option
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates option is null
+	 */
+	public void setCursorOption(String option) {
+		if (option == null)
+			throw new IllegalArgumentException();
+		optionIds[cursor()] = strings.add(option);
+		record(StoryJournal.SET_OPTION, getCursorPosition(), 0, option, null);
+	}
+
+	/**Resets the cursor so it points to the beginning of the story
+	 *
+	 * @Postcondition:
+	 * 	cursor references the beginning of the story, or the dummy root if there is none
+	 */
+	public void resetCursor() {
+		if (!hasStory())
+			return;
+		cursorDepth = 0;
+		moveCursorTo(children[0]);
+	}
+
+	/**Returns the game state of the tree, worked out from where the cursor is
+	 *
+	 * @return
+	 * 	GAME_OVER_WIN or GAME_OVER_LOSE if the cursor is at a winning or losing leaf of the story, GAME_NOT_OVER otherwise
+	 */
+	public GameState getGameState() {
+		if (cursorDepth == 0 || !cursorIsLeaf())
+			return GameState.GAME_NOT_OVER;
+		return flags.get(FLAG_BITS * cursor() + WIN) ? GameState.GAME_OVER_WIN : GameState.GAME_OVER_LOSE;
+	}
+
+	/**Returns whether or not cursor is referencing a leaf node
+	 *
+	 * @return
+	 * 	True if cursor references a leaf node, false otherwise
+	 */
+	public boolean cursorIsLeaf() {
+		return flags.get(FLAG_BITS * cursor() + LEAF);
+	}
+
+	/**Sets the cursor to the original cursor's child as indicated by the parameter
+	 *
+	 * @param position
+	 * 	The position of the Node to become the cursor
+	 *
+	 * @Precondition:
+	 * 	position is not null or empty/white space
+	 * 	The child with the indicated position is a direct child of the cursor
+	 *
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates position is empty or null
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the Node is not a valid child of the cursor
+	 */
+	public void selectChild(String position) throws NodeNotPresentException {
+		if (position == null || position.isBlank())
+			throw new IllegalArgumentException();
+		if (!isValidChildOfCursor(position))
+			throw new NodeNotPresentException();
+		moveCursorTo(children[3 * cursor() + childNumberOf(position) - 1]);
+	}
+
+	/**Sets the cursor to one of its children by number, without building or parsing a position
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3, no more than the number of children of the cursor
+	 *
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the cursor has no such child
+	 */
+	public void selectChild(int childNumber) throws NodeNotPresentException {
+		if (childNumber < 1 || childNumber > numChildren(cursor()))
+			throw new NodeNotPresentException();
+		moveCursorTo(children[3 * cursor() + childNumber - 1]);
+	}
+
+	/**Sets the cursor to its parent. If the cursor is at the beginning of the story, no change in made
+	 *
+	 * @Postcondition:
+	 * 	cursor now references its parent
+	 */
+	public void returnToParent() {
+		if (cursorDepth > 1)
+			cursorDepth--;
+	}
+
+	/**For the given cursor, returns the chance of winning
+	 *
+	 * @return
+	 * 	The chance of winning as dictated by the number of winning leaves
+	 * 	divided by the number of total leaves of the subtree of the cursor
+	 */
+	public double winProbability() {
+		int cursor = cursor();
+		return ((double) winningLeafCounts[cursor] / (double) leafCounts[cursor]) * 100.0;
+	}
+
+	/**Returns the chance of winning from the cursor for a player who always makes the best choice.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is the best one
+	 */
+	public double bestWinProbability() {
+		return bestWinChances[cursor()] * 100.0;
+	}
+
+	/**Returns the chance of winning from the cursor for a player who chooses each option with the same chance.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is made at random
+	 */
+	public double randomWinProbability() {
+		return randomWinChances[cursor()] * 100.0;
+	}
+
+	/**Returns which child of the cursor a player who plays as well as possible chooses
+	 *
+	 * @return
+	 * 	The number of the child with the greatest chance of winning under the best play,
+	 * 	the first one if several tie, or 0 if the cursor is a leaf
+	 */
+	public int bestChoice() {
+		int cursor = cursor();
+		int best = 0;
+		for (int slot = 3 * cursor; slot < 3 * cursor + 3 && children[slot] != NO_CHILD; slot++) {
+			if (best == 0 || bestWinChances[children[slot]] > bestWinChances[children[3 * cursor + best - 1]])
+				best = slot - 3 * cursor + 1;
+		}
+		return best;
+	}
+
+	/**Adds a new child to the current cursor with the given option and message
+	 *
+	 * @param option
+	 * 	The option of the new child
+	 *
+	 * @param message
+	 * 	The message of the new child
+	 *
+	 * @Precondition:
+	 * 	cursor does not have 3 children
+	 * 	option and message are not null
+	 *
+	 * @Postcondition:
+	 * 	cursor has a new child with the indicated option and message
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates option or message is null
+	 *
+	 * @exception TreeFullException
+	 * 	Indicates cursor has max children
+	 */
+	public void addChild(String option, String message) throws TreeFullException {
+		if (option == null || message == null)
+			throw new IllegalArgumentException();
+		int cursor = cursor();
+		if (numChildren(cursor) == 3)
+			throw new TreeFullException();
+
+		String position = getCursorPosition();
+		int newNode = newNode(strings.add(option), strings.add(message));
+		if (cursor == 0) {
+			linkChild(0, 1, newNode);
+			updateCounts(0);
+			moveCursorTo(newNode);
+		} else {
+			linkChild(cursor, numChildren(cursor) + 1, newNode);
+			updateCounts(cursor);
+		}
+		updateAncestorCounts();
+		record(StoryJournal.ADD_CHILD, position, 0, option, message);
+	}
+
+	/**Removes the immediate child the cursor as indicated. Shifts remaining children so they're all left-aligned
+	 *
+	 * @param position
+	 * 	The position of the child to remove
+	 *
+	 * @Precondition:
+	 * 	The child with the indicated position is a direct child of the cursor
+	 *
+	 * @Postcondition:
+	 * 	The indicated child and its subtree have been removed
+	 *
+	 * @return
+	 * 	A copy of the removed Node and its subtree made of StoryTreeNodes
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates position is null
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the Node references is not an appropriate child of cursor
+	 */
+	public StoryTreeNode removeChild(String position) throws NodeNotPresentException {
+		if (position == null)
+			throw new IllegalArgumentException();
+		if (!isValidChildOfCursor(position))
+			throw new NodeNotPresentException();
+		int cursor = cursor();
+		int childNumber = childNumberOf(position);
+		int slot = 3 * cursor + childNumber - 1;
+		int removed = children[slot];
+
+		for (; slot < 3 * cursor + 2; slot++)
+			children[slot] = children[slot + 1];
+		children[3 * cursor + 2] = NO_CHILD;
+		updateCounts(cursor);
+		updateAncestorCounts();
+		record(StoryJournal.REMOVE_CHILD, getCursorPosition(), childNumber, null, null);
+		return toNodes(removed);
+	}
+
+	/**Returns whether or not the indicated position references an existing child of the cursor
+	 *
+	 * @param position
+	 * 	The position of the supposed child of the cursor
+	 *
+	 * @return
+	 * 	Whether or not the position's Node exists as a child of cursor
+	 */
+	public boolean isValidChildOfCursor(String position) {
+		int childNumber = childNumberOf(position);
+		return childNumber != 0 && childNumber <= numChildren(cursor());
+	}
+
+	/**Returns the number of children of the cursor
+	 *
+	 * @return
+	 * 	The number of children of the cursor
+	 */
+	public int getCursorNumChildren() {
+		return numChildren(cursor());
+	}
+
+	/**Gives the place and text of each Node of the story to a visitor in preorder, reading the arrays
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @exception IOException
+	 * 	Indicates the visitor could not write what it was given
+	 */
+	void walkStory(StoryTextVisitor visitor) throws IOException {
+		if (hasStory())
+			walkSubtree(children[0], 0, 0, visitor);
+	}
+
+	/**Returns the index of the beginning of the story
+	 *
+	 * @return
+	 * 	The index of the Node with a position of 1, or NO_NODE if the story is empty
+	 */
+	public long getStoryId() {
+		return children[0];
+	}
+
+	/**Returns the number of leaves in the subtree of a Node
+	 *
+	 * @param id
+	 * 	The index of the Node
+	 *
+	 * @return
+	 * 	1 if the Node is a leaf, otherwise the sum of the leaf counts of its children
+	 */
+	public int getLeafCount(long id) {
+		return leafCounts[(int) id];
+	}
+
+	/**Returns the indexes of the children of a Node
+	 *
+	 * @param id
+	 * 	The index of the Node
+	 *
+	 * @param children
+	 * 	An array of at least 3 ids, filled with the indexes of child 1 to 3 and NO_NODE for the empty slots
+	 */
+	public void getChildIds(long id, long[] children) {
+		for (int x = 0; x < 3; x++)
+			children[x] = this.children[3 * (int) id + x];
+	}
+
+	/**Gives the place and text of one Node to a visitor, without its children
+	 *
+	 * @param id
+	 * 	The index of the Node
+	 *
+	 * @param depth
+	 * 	The depth of the Node below the beginning of the story
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the Node is, 0 for the beginning of the story
+	 *
+	 * @param visitor
+	 * 	The action taken on the Node
+	 *
+	 * @exception IOException
+	 * 	Indicates the visitor could not write what it was given
+	 */
+	public void visitNode(long id, int depth, int childNumber, StoryTextVisitor visitor) throws IOException {
+		int node = (int) id;
+		visitor.visit(depth, childNumber, numChildren(node), strings.get(optionIds[node]), strings.get(messageIds[node]));
+	}
+
+	/**Gives the place and text of each Node of a subtree to a visitor in preorder, reading the arrays
+	 *
+	 * @param id
+	 * 	The index of the root of the subtree
+	 *
+	 * @param depth
+	 * 	The depth of the root of the subtree below the beginning of the story
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the root of the subtree is, 0 for the beginning of the story
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @exception IOException
+	 * 	Indicates the visitor could not write what it was given
+	 */
+	public void walkSubtree(long id, int depth, int childNumber, StoryTextVisitor visitor) throws IOException {
+		int[] stack = new int[64]; //Each entry is a Node index, its depth and its child number
+		int top = 0;
+		stack[top++] = (int) id;
+		stack[top++] = depth;
+		stack[top++] = childNumber;
+		while (top > 0) {
+			int nodeChildNumber = stack[--top];
+			int nodeDepth = stack[--top];
+			int node = stack[--top];
+			visitor.visit(nodeDepth, nodeChildNumber, numChildren(node), strings.get(optionIds[node]), strings.get(messageIds[node]));
+
+			if (top + 9 > stack.length)
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			for (int child = 3; child >= 1; child--) {
+				if (children[3 * node + child - 1] != NO_CHILD) {
+					stack[top++] = children[3 * node + child - 1];
+					stack[top++] = nodeDepth + 1;
+					stack[top++] = child;
+				}
+			}
+		}
+	}
+
+	/**Writes the story in the binary format straight from the arrays. The string table holds
+	 * the pool's Strings used by the story in the order they are first used, copied as the
+	 * pool's bytes, so no text is decoded
+	 *
+	 * @param out
+	 * 	The stream to write to, just past the version number
+	 *
+	 * @exception IOException
+	 * 	Indicates the stream could not be written
+	 */
+	void writeBinary(OutputStream out) throws IOException {
+		int[] order = preorder();
+		int[] tableIndexes = new int[strings.size()]; //tableIndexes[s] is one more than the index of String s in the table, 0 if unused
+		int[] table = new int[64]; //table[t] is the String of the pool at index t of the table
+		int tableSize = 0;
+		BinaryStoryFormat.ShapeWriter shape = new BinaryStoryFormat.ShapeWriter();
+		for (int node : order) {
+			for (int id : new int[] {optionIds[node], messageIds[node]}) {
+				if (tableIndexes[id] == 0) {
+					if (tableSize == table.length)
+						table = Arrays.copyOf(table, table.length * 2);
+					table[tableSize++] = id;
+					tableIndexes[id] = tableSize;
+				}
+			}
+			shape.add(numChildren(node));
+		}
+
+		BinaryStoryFormat.writeNumber(out, order.length);
+		BinaryStoryFormat.writeNumber(out, tableSize);
+		for (int x = 0; x < tableSize; x++) {
+			BinaryStoryFormat.writeNumber(out, strings.getLength(table[x]));
+			strings.writeTo(table[x], out);
+		}
+		shape.writeTo(out);
+		for (int node : order) {
+			BinaryStoryFormat.writeNumber(out, tableIndexes[optionIds[node]] - 1);
+			BinaryStoryFormat.writeNumber(out, tableIndexes[messageIds[node]] - 1);
+		}
+	}
+
+	/**Writes a record for each Node of the story in postorder straight from the arrays
+	 *
+	 * @param records
+	 * 	The writer to give the records to
+	 *
+	 * @return
+	 * 	The offset of the record of the beginning of the story, or NO_STORY if the tree is empty
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	long writeRecords(IndexedStoryFormat.RecordWriter records) throws IOException {
+		if (!hasStory())
+			return IndexedStoryFormat.NO_STORY;
+		long[] offsets = new long[nodeCount]; //offsets[n] is the offset of the record of Node n once it is written
+		long[] childOffsets = new long[3];
+		int[] stack = new int[64]; //Each entry is a Node index and the number of its children already written
+		int top = 0;
+		stack[top++] = children[0];
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[top - 2];
+			int written = stack[top - 1];
+			if (written < 3 && children[3 * node + written] != NO_CHILD) {
+				stack[top - 1]++;
+				if (top + 2 > stack.length)
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				stack[top++] = children[3 * node + written];
+				stack[top++] = 0;
+				continue;
+			}
+			top -= 2;
+			for (int x = 0; x < written; x++)
+				childOffsets[x] = offsets[children[3 * node + x]];
+			offsets[node] = records.write(written, leafCounts[node], winningLeafCounts[node], bestWinChances[node],
+					randomWinChances[node], childOffsets, strings.getBytes(optionIds[node]), strings.getBytes(messageIds[node]));
+		}
+		return offsets[children[0]];
+	}
+
+	/**Returns a copy of the arrays that later edits to this tree don't change, so the story can be written
+	 * out on another thread while this tree is edited. The text is not copied
+	 *
+	 * @return
+	 * 	A CompactStoryTree holding the story as it is now; it must not be edited
+	 */
+	StoryTree snapshot() {
+		return new CompactStoryTree(this);
+	}
+
+	/**Returns whether or not this tree keeps its story in StoryTreeNodes
+	 *
+	 * @return
+	 * 	False, its story is in the arrays
+	 */
+	boolean keepsNodes() {
+		return false;
+	}
+
+	/**Returns the Node the cursor is at
+	 *
+	 * @return
+	 * 	The index of the cursor
+	 */
+	private int cursor() {
+		return path[cursorDepth];
+	}
+
+	/**Moves the cursor down to one of its children and pushes it onto the path
+	 *
+	 * @param child
+	 * 	The index of the child of the cursor to move to
+	 */
+	private void moveCursorTo(int child) {
+		if (cursorDepth + 1 == path.length)
+			path = Arrays.copyOf(path, path.length * 2);
+		path[++cursorDepth] = child;
+	}
+
+	/**Recomputes the leaf counts of each ancestor of the cursor after the cursor has been edited
+	 */
+	private void updateAncestorCounts() {
+		for (int level = cursorDepth - 1; level >= 0; level--)
+			updateCounts(path[level]);
+	}
+
+	/**Sets the message of a Node and its win and lose flags
+	 *
+	 * @param node
+	 * 	The index of the Node
+	 *
+	 * @param messageId
+	 * 	The index of the new message in the string pool
+	 */
+	private void setMessageId(int node, int messageId) {
+		messageIds[node] = messageId;
+		flags.set(FLAG_BITS * node + WIN, strings.contains(messageId, WIN_MESSAGE));
+		flags.set(FLAG_BITS * node + LOSE, strings.contains(messageId, LOSE_MESSAGE));
+		updateCounts(node);
+	}
+
+	/**Recomputes the leaf flag, leaf counts and chances of winning of a Node from its message and those of its children
+	 *
+	 * @param node
+	 * 	The index of the Node
+	 */
+	private void updateCounts(int node) {
+		int leaves = 0;
+		int winningLeaves = 0;
+		double bestChance = 0;
+		double randomChance = 0;
+		int numChildren = 0;
+		for (int slot = 3 * node; slot < 3 * node + 3; slot++) {
+			if (children[slot] != NO_CHILD) {
+				leaves += leafCounts[children[slot]];
+				winningLeaves += winningLeafCounts[children[slot]];
+				bestChance = Math.max(bestChance, bestWinChances[children[slot]]);
+				randomChance += randomWinChances[children[slot]];
+				numChildren++;
+			}
+		}
+		flags.set(FLAG_BITS * node + LEAF, leaves == 0);
+		if (leaves == 0) {
+			leaves = 1;
+			winningLeaves = flags.get(FLAG_BITS * node + WIN) ? 1 : 0;
+			bestChance = winningLeaves;
+			randomChance = winningLeaves;
+			numChildren = 1;
+		}
+		leafCounts[node] = leaves;
+		winningLeafCounts[node] = winningLeaves;
+		bestWinChances[node] = bestChance;
+		randomWinChances[node] = randomChance / numChildren;
+	}
+
+	/**Returns the number of children of a Node, which are always left-aligned
+	 *
+	 * @param node
+	 * 	The index of the Node
+	 *
+	 * @return
+	 * 	0 to 3
+	 */
+	private int numChildren(int node) {
+		int count = 0;
+		while (count < 3 && children[3 * node + count] != NO_CHILD)
+			count++;
+		return count;
+	}
+
+	/**Returns the Nodes of the story in preorder
+	 *
+	 * @return
+	 * 	The index of each Node reachable from the beginning of the story, a Node before its children
+	 */
+	private int[] preorder() {
+		if (!hasStory())
+			return new int[0];
+		int[] order = new int[getNumOfNodes()];
+		int count = 0;
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = children[0];
+		while (top > 0) {
+			int node = stack[--top];
+			order[count++] = node;
+			if (top + 3 > stack.length)
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			for (int slot = 3 * node + 2; slot >= 3 * node; slot--) {
+				if (children[slot] != NO_CHILD)
+					stack[top++] = children[slot];
+			}
+		}
+		return order;
+	}
+
+	/**Returns which child of a Node another Node is
+	 *
+	 * @param parent
+	 * 	The index of the parent
+	 *
+	 * @param child
+	 * 	The index of the supposed child
+	 *
+	 * @return
+	 * 	1, 2 or 3, or 0 if child is not a child of parent
+	 */
+	private int childNumber(int parent, int child) {
+		for (int x = 0; x < 3; x++) {
+			if (children[3 * parent + x] == child)
+				return x + 1;
+		}
+		return 0;
+	}
+
+	/**Returns which child of the cursor the indicated position refers to, without building any Strings
+	 *
+	 * @param position
+	 * 	The position of the supposed child, such as 1-2-3
+	 *
+	 * @return
+	 * 	1, 2 or 3 if position is the cursor's position followed by that child number, 0 otherwise
+	 */
+	private int childNumberOf(String position) {
+		if (position == null || position.length() != 2 * cursorDepth + 1)
+			return 0;
+		for (int level = 0; level < cursorDepth; level++) {
+			if (position.charAt(2 * level) - '0' != childNumber(path[level], path[level + 1])
+					|| position.charAt(2 * level + 1) != '-')
+				return 0;
+		}
+		int childNumber = position.charAt(2 * cursorDepth) - '0';
+		return (childNumber >= 1 && childNumber <= 3) ? childNumber : 0;
+	}
+
+	/**Copies a subtree into StoryTreeNodes
+	 *
+	 * @param top
+	 * 	The index of the root of the subtree
+	 *
+	 * @return
+	 * 	A new Node holding a copy of the subtree, with correct leaf counts
+	 */
+	private StoryTreeNode toNodes(int top) {
+		StoryTreeNode copy = newStoryTreeNode(top);
+		int[] indexes = new int[64];
+		StoryTreeNode[] copies = new StoryTreeNode[64];
+		int size = 0;
+		indexes[size] = top;
+		copies[size++] = copy;
+		while (size > 0) {
+			int node = indexes[--size];
+			StoryTreeNode parent = copies[size];
+			copies[size] = null;
+			if (size + 3 > indexes.length) {
+				indexes = Arrays.copyOf(indexes, indexes.length * 2);
+				copies = Arrays.copyOf(copies, copies.length * 2);
+			}
+			for (int child = 1; child <= 3; child++) {
+				int index = children[3 * node + child - 1];
+				if (index == NO_CHILD)
+					continue;
+				StoryTreeNode childCopy = newStoryTreeNode(index);
+				if (child == 1)
+					parent.setLeftChild(childCopy);
+				else if (child == 2)
+					parent.setMiddleChild(childCopy);
+				else
+					parent.setRightChild(childCopy);
+				indexes[size] = index;
+				copies[size++] = childCopy;
+			}
+		}
+		new StoryTreeWalker().postorder(copy, (node, depth, childNumber) -> node.updateCounts());
+		return copy;
+	}
+
+	/**Makes a StoryTreeNode with the text of a Node
+	 *
+	 * @param node
+	 * 	The index of the Node
+	 *
+	 * @return
+	 * 	A new StoryTreeNode without children
+	 */
+	private StoryTreeNode newStoryTreeNode(int node) {
+		StoryTreeNode copy = new StoryTreeNode();
+		copy.setOption(strings.get(optionIds[node]));
+		copy.setMessage(strings.get(messageIds[node]));
+		return copy;
+	}
+}
@@ -0,0 +1,338 @@
+/**This class reads and writes StoryTrees in an indexed binary format, which lets an
+ * IndexedStoryTree read a story one Node at a time instead of all at once.
+ *
+ * The file starts with the MAGIC bytes, a version number, the number of Node records and
+ * the offset of the record of the beginning of the story, or 0 if there is no story.
+ * The records follow in postorder, so every child is written before its parent and a
+ * parent can give the offsets of its children. Each record is
+ * 	the length of the rest of the record,
+ * 	the number of children,
+ * 	the leaf and winning leaf counts of its subtree, so the chance of winning needs no children,
+ * 	the chances of winning from it under the best play and under random play, as doubles,
+ * 	the offset of each child,
+ * 	and the option and message, each length-prefixed UTF-8.
+ * Numbers are fixed-width and big-endian. A subtree shared by several parents is written once.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+
+public class IndexedStoryFormat {
+	public static final byte[] MAGIC = {(byte) 0x89, 'Z', 'R', 'I'}; //Marks an indexed story file, the first byte is never valid text
+	public static final int VERSION = 2; //The version of the format written by this class
+
+	static final int HEADER_SIZE = MAGIC.length + 4 + 8 + 8; //The magic bytes, version, record count and story offset
+	static final int RECORD_HEADER_SIZE = 4 + 1 + 4 + 4 + 8 + 8; //The length, number of children, leaf counts and chances of winning of a record
+	static final long NO_STORY = 0; //The story offset of a file without a story, which is never the offset of a record
+
+	private static final int BUFFER_SIZE = 1 << 16; //Bytes buffered when reading or writing
+
+	/**Returns whether or not the indicated file starts with the MAGIC bytes of an indexed story
+	 *
+	 * @param filename
+	 * 	The file to check
+	 *
+	 * @return
+	 * 	True if the file is an indexed story file, false if it is missing, shorter than MAGIC or anything else
+	 *
+	 * @exception IOException
+	 * 	Indicates the file exists but could not be read
+	 */
+	public static boolean isIndexed(String filename) throws IOException {
+		return BinaryStoryFormat.startsWith(filename, MAGIC);
+	}
+
+	/**Reads a whole indexed story file onto the heap and returns the StoryTree it holds.
+	 * Subtrees written once for several parents are shared again
+	 *
+	 * @param filename
+	 * 	The indexed file to read
+	 *
+	 * @return
+	 * 	The StoryTree made from the file
+	 *
+	 * @exception FileNotFoundException
+	 * 	Indicates the file is not found
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the file is not an indexed story, has an unknown version, is empty or is cut short
+	 */
+	public static StoryTree read(String filename) throws IOException, DataFormatException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename))) {
+			ByteBuffer header = readHeader(channel, filename);
+			long recordCount = header.getLong();
+			long storyOffset = header.getLong();
+			if (storyOffset == NO_STORY)
+				throw new DataFormatException("The story file is empty");
+			if (recordCount > Integer.MAX_VALUE - 8)
+				throw new DataFormatException("The story has too many records to load onto the heap");
+
+			StoryTree tree = new StoryTree();
+			StoryTextInterner interner = tree.getInterner();
+			interner.startLoading();
+			long[] offsets = new long[(int) recordCount]; //offsets[n] is the offset of record n, which increase with n
+			StoryTreeNode[] nodes = new StoryTreeNode[offsets.length];
+			BitSet linked = new BitSet(offsets.length); //Whether record n is already the child of some Node
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(HEADER_SIZE)), BUFFER_SIZE));
+			long offset = HEADER_SIZE;
+			for (int x = 0; x < offsets.length; x++) {
+				int length = in.readInt();
+				int numChildren = in.readUnsignedByte();
+				in.readInt(); //The leaf counts and chances are worked out again as the children are linked
+				in.readInt();
+				in.readDouble();
+				in.readDouble();
+				if (numChildren > 3)
+					throw new DataFormatException("The record at " + offset + " has " + numChildren + " children");
+
+				StoryTreeNode node = new StoryTreeNode();
+				for (int child = 1; child <= numChildren; child++) {
+					long childOffset = in.readLong();
+					int index = Arrays.binarySearch(offsets, 0, x, childOffset);
+					if (index < 0)
+						throw new DataFormatException("The record at " + offset + " has a child at " + childOffset + ", which is not an earlier record");
+					if (linked.get(index))
+						nodes[index].markShared();
+					linked.set(index);
+					if (child == 1)
+						node.setLeftChild(nodes[index]);
+					else if (child == 2)
+						node.setMiddleChild(nodes[index]);
+					else
+						node.setRightChild(nodes[index]);
+				}
+				node.setOption(interner.intern(readString(in)));
+				node.setMessage(interner.intern(readString(in)));
+				offsets[x] = offset;
+				nodes[x] = node;
+				offset += 4 + length;
+			}
+
+			int story = Arrays.binarySearch(offsets, storyOffset);
+			if (story < 0)
+				throw new DataFormatException("The story offset " + storyOffset + " is not the offset of a record");
+			tree.getRoot().setLeftChild(nodes[story]);
+			interner.finishLoading();
+			tree.resetCursor();
+			return tree;
+		} catch (EOFException e) {
+			throw new DataFormatException(filename + " ends before the end of the story");
+		}
+	}
+
+	/**Writes a StoryTree to the indicated file in the indexed format and forces it to disk.
+	 * The tree gives its own records, from whatever it keeps its story in
+	 *
+	 * @param filename
+	 * 	The file to write to
+	 *
+	 * @param tree
+	 * 	The tree to write
+	 *
+	 * @Precondition:
+	 * 	filename is nonnull and nonempty
+	 * 	tree is nonnull
+	 *
+	 * @exception FileNotFoundException
+	 * 	Indicates filename doesn't point to an accesible file
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	public static void write(String filename, StoryTree tree) throws IOException {
+		FileOutputStream file = new FileOutputStream(filename);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, BUFFER_SIZE))) {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(0); //The record count and story offset are filled in once the records are written
+			out.writeLong(NO_STORY);
+			RecordWriter records = new RecordWriter(out);
+			long storyOffset = tree.writeRecords(records);
+			out.flush();
+
+			ByteBuffer counts = ByteBuffer.allocate(16);
+			counts.putLong(records.count);
+			counts.putLong(storyOffset);
+			counts.flip();
+			while (counts.hasRemaining())
+				file.getChannel().write(counts, MAGIC.length + 4 + counts.position());
+			file.getFD().sync();
+		}
+	}
+
+	/**Reads and checks the header of an indexed story file
+	 *
+	 * @param channel
+	 * 	The open file
+	 *
+	 * @param filename
+	 * 	The name of the file, for messages
+	 *
+	 * @return
+	 * 	The header, positioned at the record count which is followed by the story offset
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the file is not an indexed story, has an unknown version or is shorter than a header
+	 */
+	static ByteBuffer readHeader(FileChannel channel, String filename) throws IOException, DataFormatException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0)
+				throw new DataFormatException(filename + " is not an indexed story file");
+		}
+		header.flip();
+		for (int x = 0; x < MAGIC.length; x++) {
+			if (header.get() != MAGIC[x])
+				throw new DataFormatException(filename + " is not an indexed story file");
+		}
+		int version = header.getInt();
+		if (version != VERSION)
+			throw new DataFormatException("Unsupported indexed story version " + version);
+		return header;
+	}
+
+	/**Reads a length-prefixed UTF-8 String
+	 *
+	 * @param in
+	 * 	The stream to read from
+	 *
+	 * @return
+	 * 	The String read
+	 *
+	 * @exception IOException
+	 * 	Indicates the stream could not be read or ended
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the length is negative
+	 */
+	private static String readString(DataInputStream in) throws IOException, DataFormatException {
+		int length = in.readInt();
+		if (length < 0)
+			throw new DataFormatException("A String in the file has a length of " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	/**This class writes the records of a story one after another and tracks the offset of each,
+	 * so a tree can give its Nodes in postorder from whatever it keeps them in
+	 */
+	static class RecordWriter {
+		private final DataOutputStream out; //The file, just past the records written so far
+		private long offset; //The offset the next record is written at
+		private long count; //The number of records written
+
+		/**Creates a writer of the records following a header
+		 *
+		 * @param out
+		 * 	The file, positioned just past the header
+		 */
+		RecordWriter(DataOutputStream out) {
+			this.out = out;
+			offset = HEADER_SIZE;
+			count = 0;
+		}
+
+		/**Writes the record of one Node
+		 *
+		 * @param numChildren
+		 * 	The number of children of the Node
+		 *
+		 * @param leafCount
+		 * 	The number of leaves in its subtree
+		 *
+		 * @param winningLeafCount
+		 * 	The number of winning leaves in its subtree
+		 *
+		 * @param bestWinChance
+		 * 	The chance of winning from it by always making the best choice
+		 *
+		 * @param randomWinChance
+		 * 	The chance of winning from it by choosing at random
+		 *
+		 * @param children
+		 * 	The offsets of the records of its children in its first numChildren elements, each already written
+		 *
+		 * @param option
+		 * 	The option of the Node as UTF-8
+		 *
+		 * @param message
+		 * 	The message of the Node as UTF-8
+		 *
+		 * @return
+		 * 	The offset of the record
+		 *
+		 * @exception IOException
+		 * 	Indicates the file could not be written
+		 */
+		long write(int numChildren, int leafCount, int winningLeafCount, double bestWinChance, double randomWinChance,
+				long[] children, byte[] option, byte[] message) throws IOException {
+			int length = RECORD_HEADER_SIZE - 4 + 8 * numChildren + 4 + option.length + 4 + message.length;
+			out.writeInt(length);
+			out.writeByte(numChildren);
+			out.writeInt(leafCount);
+			out.writeInt(winningLeafCount);
+			out.writeDouble(bestWinChance);
+			out.writeDouble(randomWinChance);
+			for (int x = 0; x < numChildren; x++)
+				out.writeLong(children[x]);
+			out.writeInt(option.length);
+			out.write(option);
+			out.writeInt(message.length);
+			out.write(message);
+			return advance(4 + length);
+		}
+
+		/**Copies a whole record as it is
+		 *
+		 * @param record
+		 * 	The record from its length to its end, whose child offsets are already those of this file
+		 *
+		 * @return
+		 * 	The offset of the record
+		 *
+		 * @exception IOException
+		 * 	Indicates the file could not be written
+		 */
+		long copy(ByteBuffer record) throws IOException {
+			int length = record.remaining();
+			out.write(record.array(), record.arrayOffset() + record.position(), length);
+			return advance(length);
+		}
+
+		/**Counts a record just written and moves the offset past it
+		 *
+		 * @param length
+		 * 	The number of bytes of the record
+		 *
+		 * @return
+		 * 	The offset of the record
+		 */
+		private long advance(int length) {
+			long recordOffset = offset;
+			offset += length;
+			count++;
+			return recordOffset;
+		}
+	}
+}
@@ -0,0 +1,1232 @@
+/**This is a StoryTree that reads its Nodes from an indexed story file as they are needed.
+ * Opening it reads only the header, so it takes the same time however large the story is.
+ * A Node is read the first time the cursor reaches it or lists it as an option, and the
+ * Nodes read are kept in a StoryNodeCache holding at most a set number of them, which
+ * evicts the Nodes not used recently when it is full. The Nodes from the beginning of the
+ * story to the cursor are pinned in the cache, so moving back up never reads the file.
+ * Every record holds the leaf counts of its subtree, so the chance of winning is known as
+ * soon as a Node is read.
+ *
+ * Nodes are identified by the offset of their record in the file. An edit copies the Node
+ * it changes and each of its ancestors into new Nodes held in memory, so the file is never
+ * written; these edited Nodes are never dropped from memory and point to the unchanged
+ * Nodes in the file as before. getStoryRoot returns a copy of the whole story made of
+ * StoryTreeNodes, which reads every Node, so nothing else uses it: saving walks the
+ * records one at a time without caching them, the indexed format copies the records of
+ * unedited Nodes as they are, and a SharedStory can't be made of this tree. A journal
+ * compacts the tree in the background from a snapshot holding copies of the edited Nodes
+ * alone, which reads the same file. Analyzing splits the story on the offsets in the
+ * records and reads the subtrees on several threads, each read being at its own offset.
+ *
+ * The cursor API is the same as a StoryTree's. The file is kept open until close is called,
+ * which closes the journal first.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.zip.DataFormatException;
+
+public class IndexedStoryTree extends StoryTree implements SplittableStory {
+	public static final int DEFAULT_CAPACITY = 1 << 16; //The number of Nodes read from the file kept in memory when none is given
+
+	private static final String WIN_MESSAGE = "YOU WIN"; //Special sequence which shows game was won
+	private static final long NO_CHILD = 0; //Marks an empty child slot, records start after the header so 0 is never one
+	private static final long DUMMY_ROOT = -1; //The id of the dummy root, which only lives in memory
+	private static final int READ_AHEAD = 256; //Bytes read at once when reading a record, enough for most of them
+
+	private final String filename; //The indexed story file
+	private final FileChannel file; //The open file the records are read from
+	private final StoryNodeCache<Node> cache; //The Nodes read from the file, with the ones on the path to the cursor pinned
+	private final HashMap<Long, Node> edited; //The Nodes made by edits, by their negative ids
+	private long nextEditedId; //The id given to the next Node made by an edit
+	private long[] path; //path[d] is the id of the Node at depth d on the path from the dummy root to the cursor
+	private Node[] nodes; //nodes[d] is the Node path[d] identifies, so moving along the path looks nothing up
+	private int[] slots; //slots[d] is which child of path[d - 1] path[d] is, since a shared Node can be several
+	private int cursorDepth; //The depth of the cursor, so the cursor is path[cursorDepth]
+
+	/**Opens an indexed story file, keeping the default number of Nodes read from it in memory
+	 *
+	 * @param filename
+	 * 	The indexed file to open
+	 *
+	 * @return
+	 * 	A tree whose cursor is at the beginning of the story
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be opened or read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the file is not an indexed story, has an unknown version or is empty
+	 */
+	public static IndexedStoryTree open(String filename) throws IOException, DataFormatException {
+		return open(filename, DEFAULT_CAPACITY);
+	}
+
+	/**Opens an indexed story file
+	 *
+	 * @param filename
+	 * 	The indexed file to open
+	 *
+	 * @param capacity
+	 * 	The most Nodes read from the file to keep in memory at once
+	 *
+	 * @Precondition:
+	 * 	filename is nonnull and nonempty
+	 * 	capacity is positive
+	 *
+	 * @return
+	 * 	A tree whose cursor is at the beginning of the story
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates filename is empty or null, or capacity is not positive
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be opened or read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the file is not an indexed story, has an unknown version or is empty
+	 */
+	public static IndexedStoryTree open(String filename, int capacity) throws IOException, DataFormatException {
+		if (filename == null || filename.isBlank() || capacity < 1)
+			throw new IllegalArgumentException();
+		FileChannel file = FileChannel.open(Paths.get(filename));
+		try {
+			ByteBuffer header = IndexedStoryFormat.readHeader(file, filename);
+			header.getLong();
+			long storyOffset = header.getLong();
+			if (storyOffset == IndexedStoryFormat.NO_STORY)
+				throw new DataFormatException("The story file is empty");
+			if (storyOffset < IndexedStoryFormat.HEADER_SIZE || storyOffset >= file.size())
+				throw new DataFormatException("The story offset " + storyOffset + " is outside " + filename);
+			return new IndexedStoryTree(filename, file, capacity, storyOffset);
+		} catch (IOException | DataFormatException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**Creates a tree over an open indexed story file
+	 *
+	 * @param filename
+	 * 	The name of the file
+	 *
+	 * @param file
+	 * 	The open file
+	 *
+	 * @param capacity
+	 * 	The most Nodes read from the file to keep in memory at once
+	 *
+	 * @param storyOffset
+	 * 	The offset of the record of the beginning of the story
+	 */
+	private IndexedStoryTree(String filename, FileChannel file, int capacity, long storyOffset) {
+		super(false);
+		this.filename = filename;
+		this.file = file;
+		cache = new StoryNodeCache<Node>(capacity);
+		edited = new HashMap<Long, Node>();
+		Node dummyRoot = new Node("root", "Hello, welcome to Zork!");
+		dummyRoot.children[0] = storyOffset;
+		edited.put(DUMMY_ROOT, dummyRoot);
+		nextEditedId = DUMMY_ROOT - 1;
+		path = new long[16];
+		nodes = new Node[16];
+		slots = new int[16];
+		path[0] = DUMMY_ROOT;
+		nodes[0] = dummyRoot;
+		cursorDepth = 0;
+		updateCounts(dummyRoot);
+		resetCursor();
+	}
+
+	/**Creates a copy of a tree that later edits to it don't change. The copy reads the same
+	 * open file, which is never written, and holds copies of the edited Nodes the story still
+	 * uses, so the Nodes read from the file are neither copied nor read
+	 *
+	 * @param tree
+	 * 	The tree to copy
+	 *
+	 * @Postcondition:
+	 * 	The copy's cursor is at its dummy root, and the copy caches no Nodes
+	 */
+	private IndexedStoryTree(IndexedStoryTree tree) {
+		super(false);
+		filename = tree.filename;
+		file = tree.file;
+		cache = new StoryNodeCache<Node>(1);
+		edited = new HashMap<Long, Node>();
+		long[] ids = new long[16]; //The edited Nodes waiting to be copied
+		int size = 0;
+		ids[size++] = DUMMY_ROOT;
+		while (size > 0) {
+			long id = ids[--size];
+			if (edited.containsKey(id))
+				continue;
+			Node node = tree.edited.get(id).copy();
+			edited.put(id, node);
+			if (size + 3 > ids.length)
+				ids = Arrays.copyOf(ids, ids.length * 2);
+			for (int x = 0; x < node.numChildren(); x++) {
+				if (node.children[x] < 0)
+					ids[size++] = node.children[x];
+			}
+		}
+		nextEditedId = tree.nextEditedId;
+		path = new long[16];
+		nodes = new Node[16];
+		slots = new int[16];
+		path[0] = DUMMY_ROOT;
+		nodes[0] = edited.get(DUMMY_ROOT);
+		cursorDepth = 0;
+	}
+
+	/**Closes the journal, if this tree keeps one, and then the file. Closing the journal waits
+	 * for a compaction still reading the file. The tree must not be used afterwards
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be written or the file could not be closed
+	 */
+	public void close() throws IOException {
+		try {
+			closeJournal();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**Returns the number of Nodes held in memory
+	 *
+	 * @return
+	 * 	The Nodes in the cache plus the Nodes made by edits
+	 */
+	public int getResidentNodeCount() {
+		return cache.size() + edited.size();
+	}
+
+	/**Returns the number of times a Node read from the file was needed and found in the cache
+	 *
+	 * @return
+	 * 	The cache hits
+	 */
+	public long getCacheHits() {
+		return cache.getHits();
+	}
+
+	/**Returns the number of times a Node read from the file was needed and had to be read again
+	 *
+	 * @return
+	 * 	The cache misses, each of which read a record
+	 */
+	public long getCacheMisses() {
+		return cache.getMisses();
+	}
+
+	/**Returns how well the cache is doing
+	 *
+	 * @return
+	 * 	A one line report of the resident Nodes, hits and misses
+	 */
+	public String getCacheReport() {
+		return cache.toString();
+	}
+
+	/**Returns a copy of the story made of StoryTreeNodes, reading every Node of the file it uses
+	 *
+	 * @return
+	 * 	A new Node holding a copy of the beginning of the story and everything under it,
+	 * 	or null if the tree is empty
+	 */
+	public StoryTreeNode getStoryRoot() {
+		return hasStory() ? toNodes(edited.get(DUMMY_ROOT).children[0]) : null;
+	}
+
+	/**Returns how much text the tree shares between equal options and messages
+	 *
+	 * @return
+	 * 	A one line report saying no text is shared, since Nodes are read from the file one at a time
+	 */
+	public String getDeduplicationReport() {
+		return "0 strings shared, text is read from " + filename + " as it is needed";
+	}
+
+	/**Returns the bytes of text shared between equal options and messages
+	 *
+	 * @return
+	 * 	0, since Nodes are read from the file one at a time
+	 */
+	public long getBytesDeduplicated() {
+		return 0;
+	}
+
+	/**Returns whether or not the tree has a story, that is a Node besides the dummy root
+	 *
+	 * @return
+	 * 	True if the beginning of the story exists, false if the tree is empty
+	 */
+	public boolean hasStory() {
+		return edited.get(DUMMY_ROOT).children[0] != NO_CHILD;
+	}
+
+	/**Returns the position of the cursor within the tree
+	 *
+	 * @return
+	 * 	The position of the cursor in the tree
+	 */
+	public String getCursorPosition() {
+		if (cursorDepth == 0)
+			return "root";
+		StringBuilder position = new StringBuilder(2 * cursorDepth - 1);
+		for (int level = 0; level < cursorDepth; level++) {
+			if (level > 0)
+				position.append('-');
+			position.append(slots[level + 1]);
+		}
+		return position.toString();
+	}
+
+	/**Returns the option of the cursor
+	 *
+	 * @return
+	 * 	The option String of the cursor node
+	 */
+	public String getCursorOption() {
+		return cursor().option;
+	}
+
+	/**Returns the message of the cursor
+	 *
+	 * @return
+	 * 	The message of the cursor which would be shown if it's chosen
+	 */
+	public String getCursorMessage() {
+		return cursor().message;
+	}
+
+	/**Returns an array of String pairs for each child of the cursor, reading the children which aren't in memory
+	 *
+	 * @return
+	 * 	A 2D String array with the positions and options of each child of the cursor
+	 */
+	public String[][] getOptions() {
+		Node cursor = cursor();
+		String[][] options = new String[cursor.numChildren()][2];
+		String position = cursorDepth == 0 ? "" : getCursorPosition() + "-";
+		for (int x = 0; x < options.length; x++) {
+			options[x][0] = position + (x + 1);
+			options[x][1] = node(cursor.children[x]).option;
+		}
+		return options;
+	}
+
+	/**Fills a StoryOptions with the option of each child of the cursor, reading the children which aren't in memory
+	 *
+	 * @param options
+	 * 	The options to fill
+	 *
+	 * @return
+	 * 	options, holding the option of each child of the cursor in order
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates options is null
+	 */
+	public StoryOptions getOptions(StoryOptions options) {
+		if (options == null)
+			throw new IllegalArgumentException();
+		options.clear();
+		Node cursor = cursor();
+		for (int x = 0; x < 3 && cursor.children[x] != NO_CHILD; x++)
+			options.add(node(cursor.children[x]).option);
+		return options;
+	}
+
+	/**Changes the cursor's message
+	 *
+	 * @param message
+	 * 	The new message to be set as the cursor's message
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates message is null
+	 */
+	public void setCursorMessage(String message) {
+		if (message == null)
+			throw new IllegalArgumentException();
+		editCursorPath().message = message;
+		updateAncestorCounts();
+		record(StoryJournal.SET_MESSAGE, getCursorPosition(), 0, message, null);
+	}
+
+	/**Changes the cursor's option
+	 *
+	 * @param option
+	 * 	The new option to be ste as the cursor's option
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates option is null
+	 */
+	public void setCursorOption(String option) {
+		if (option == null)
+			throw new IllegalArgumentException();
+		editCursorPath().option = option;
+		record(StoryJournal.SET_OPTION, getCursorPosition(), 0, option, null);
+	}
+
+	/**Resets the cursor so it points to the beginning of the story
+	 *
+	 * @Postcondition:
+	 * 	cursor references the beginning of the story, or the dummy root if there is none
+	 */
+	public void resetCursor() {
+		if (!hasStory())
+			return;
+		while (cursorDepth > 0)
+			leaveCursor();
+		moveCursorTo(edited.get(DUMMY_ROOT).children[0], 1);
+	}
+
+	/**Returns the game state of the tree, worked out from where the cursor is
+	 *
+	 * @return
+	 * 	GAME_OVER_WIN or GAME_OVER_LOSE if the cursor is at a winning or losing leaf of the story, GAME_NOT_OVER otherwise
+	 */
+	public GameState getGameState() {
+		Node cursor = cursor();
+		if (cursorDepth == 0 || cursor.numChildren() != 0)
+			return GameState.GAME_NOT_OVER;
+		return cursor.winningLeafCount == 1 ? GameState.GAME_OVER_WIN : GameState.GAME_OVER_LOSE;
+	}
+
+	/**Returns whether or not cursor is referencing a leaf node
+	 *
+	 * @return
+	 * 	True if cursor references a leaf node, false otherwise
+	 */
+	public boolean cursorIsLeaf() {
+		return cursor().numChildren() == 0;
+	}
+
+	/**Sets the cursor to the original cursor's child as indicated by the parameter
+	 *
+	 * @param position
+	 * 	The position of the Node to become the cursor
+	 *
+	 * @Precondition:
+	 * 	position is not null or empty/white space
+	 * 	The child with the indicated position is a direct child of the cursor
+	 *
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates position is empty or null
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the Node is not a valid child of the cursor
+	 */
+	public void selectChild(String position) throws NodeNotPresentException {
+		if (position == null || position.isBlank())
+			throw new IllegalArgumentException();
+		if (!isValidChildOfCursor(position))
+			throw new NodeNotPresentException();
+		selectChild(childNumberOf(position));
+	}
+
+	/**Sets the cursor to one of its children by number, without building or parsing a position
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3, no more than the number of children of the cursor
+	 *
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the cursor has no such child
+	 */
+	public void selectChild(int childNumber) throws NodeNotPresentException {
+		if (childNumber < 1 || childNumber > cursor().numChildren())
+			throw new NodeNotPresentException();
+		moveCursorTo(cursor().children[childNumber - 1], childNumber);
+	}
+
+	/**Sets the cursor to its parent. If the cursor is at the beginning of the story, no change in made
+	 *
+	 * @Postcondition:
+	 * 	cursor now references its parent
+	 */
+	public void returnToParent() {
+		if (cursorDepth > 1)
+			leaveCursor();
+	}
+
+	/**For the given cursor, returns the chance of winning
+	 *
+	 * @return
+	 * 	The chance of winning as dictated by the number of winning leaves
+	 * 	divided by the number of total leaves of the subtree of the cursor
+	 */
+	public double winProbability() {
+		Node cursor = cursor();
+		return ((double) cursor.winningLeafCount / (double) cursor.leafCount) * 100.0;
+	}
+
+	/**Returns the chance of winning from the cursor for a player who always makes the best choice.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is the best one
+	 */
+	public double bestWinProbability() {
+		return cursor().bestWinChance * 100.0;
+	}
+
+	/**Returns the chance of winning from the cursor for a player who chooses each option with the same chance.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is made at random
+	 */
+	public double randomWinProbability() {
+		return cursor().randomWinChance * 100.0;
+	}
+
+	/**Returns which child of the cursor a player who plays as well as possible chooses
+	 *
+	 * @return
+	 * 	The number of the child with the greatest chance of winning under the best play,
+	 * 	the first one if several tie, or 0 if the cursor is a leaf
+	 */
+	public int bestChoice() {
+		Node cursor = cursor();
+		int best = 0;
+		double chance = -1;
+		for (int x = 0; x < cursor.numChildren(); x++) {
+			double childChance = node(cursor.children[x]).bestWinChance;
+			if (childChance > chance) {
+				best = x + 1;
+				chance = childChance;
+			}
+		}
+		return best;
+	}
+
+	/**Adds a new child to the current cursor with the given option and message
+	 *
+	 * @param option
+	 * 	The option of the new child
+	 *
+	 * @param message
+	 * 	The message of the new child
+	 *
+	 * @Precondition:
+	 * 	cursor does not have 3 children
+	 * 	option and message are not null
+	 *
+	 * @Postcondition:
+	 * 	cursor has a new child with the indicated option and message
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates option or message is null
+	 *
+	 * @exception TreeFullException
+	 * 	Indicates cursor has max children
+	 */
+	public void addChild(String option, String message) throws TreeFullException {
+		if (option == null || message == null)
+			throw new IllegalArgumentException();
+		if (cursor().numChildren() == 3)
+			throw new TreeFullException();
+
+		String position = getCursorPosition();
+		Node newNode = new Node(option, message);
+		updateCounts(newNode);
+		long newId = nextEditedId--;
+		edited.put(newId, newNode);
+		Node cursor = editCursorPath();
+		int childNumber = cursor.numChildren() + 1;
+		cursor.children[childNumber - 1] = newId;
+		updateCounts(cursor);
+		updateAncestorCounts();
+		if (cursorDepth == 0)
+			moveCursorTo(newId, childNumber);
+		record(StoryJournal.ADD_CHILD, position, 0, option, message);
+	}
+
+	/**Removes the immediate child the cursor as indicated. Shifts remaining children so they're all left-aligned
+	 *
+	 * @param position
+	 * 	The position of the child to remove
+	 *
+	 * @Precondition:
+	 * 	The child with the indicated position is a direct child of the cursor
+	 *
+	 * @Postcondition:
+	 * 	The indicated child and its subtree have been removed
+	 *
+	 * @return
+	 * 	A copy of the removed Node and its subtree made of StoryTreeNodes
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates position is null
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the Node references is not an appropriate child of cursor
+	 */
+	public StoryTreeNode removeChild(String position) throws NodeNotPresentException {
+		if (position == null)
+			throw new IllegalArgumentException();
+		if (!isValidChildOfCursor(position))
+			throw new NodeNotPresentException();
+		int childNumber = childNumberOf(position);
+		Node cursor = editCursorPath();
+		long removed = cursor.children[childNumber - 1];
+
+		for (int slot = childNumber - 1; slot < 2; slot++)
+			cursor.children[slot] = cursor.children[slot + 1];
+		cursor.children[2] = NO_CHILD;
+		updateCounts(cursor);
+		updateAncestorCounts();
+		record(StoryJournal.REMOVE_CHILD, getCursorPosition(), childNumber, null, null);
+		return toNodes(removed);
+	}
+
+	/**Returns whether or not the indicated position references an existing child of the cursor
+	 *
+	 * @param position
+	 * 	The position of the supposed child of the cursor
+	 *
+	 * @return
+	 * 	Whether or not the position's Node exists as a child of cursor
+	 */
+	public boolean isValidChildOfCursor(String position) {
+		int childNumber = childNumberOf(position);
+		return childNumber != 0 && childNumber <= cursor().numChildren();
+	}
+
+	/**Returns the number of children of the cursor
+	 *
+	 * @return
+	 * 	The number of children of the cursor
+	 */
+	public int getCursorNumChildren() {
+		return cursor().numChildren();
+	}
+
+	/**Gives the place and text of each Node of the story to a visitor in preorder,
+	 * reading the Nodes which aren't in memory without caching them
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @exception IOException
+	 * 	Indicates a record could not be read or the visitor could not write what it was given
+	 */
+	void walkStory(StoryTextVisitor visitor) throws IOException {
+		if (hasStory())
+			walkSubtree(getStoryId(), 0, 0, visitor);
+	}
+
+	/**Returns the id of the beginning of the story
+	 *
+	 * @return
+	 * 	The id of the Node with a position of 1, or NO_NODE if the story is empty
+	 */
+	public long getStoryId() {
+		return edited.get(DUMMY_ROOT).children[0];
+	}
+
+	/**Returns the number of leaves in the subtree of a Node, reading it without caching it
+	 * if it isn't in memory
+	 *
+	 * @param id
+	 * 	The offset of the Node's record, or the negative id of a Node made by an edit
+	 *
+	 * @return
+	 * 	1 if the Node is a leaf, otherwise the sum of the leaf counts of its children
+	 *
+	 * @exception IOException
+	 * 	Indicates the record could not be read
+	 */
+	public int getLeafCount(long id) throws IOException {
+		try {
+			return peek(id).leafCount;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**Returns the ids of the children of a Node, reading it without caching it if it isn't in memory
+	 *
+	 * @param id
+	 * 	The offset of the Node's record, or the negative id of a Node made by an edit
+	 *
+	 * @param children
+	 * 	An array of at least 3 ids, filled with the ids of child 1 to 3 and NO_NODE for the empty slots
+	 *
+	 * @exception IOException
+	 * 	Indicates the record could not be read
+	 */
+	public void getChildIds(long id, long[] children) throws IOException {
+		try {
+			System.arraycopy(peek(id).children, 0, children, 0, 3);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**Gives the place and text of one Node to a visitor, without its children, reading it
+	 * without caching it if it isn't in memory
+	 *
+	 * @param id
+	 * 	The offset of the Node's record, or the negative id of a Node made by an edit
+	 *
+	 * @param depth
+	 * 	The depth of the Node below the beginning of the story
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the Node is, 0 for the beginning of the story
+	 *
+	 * @param visitor
+	 * 	The action taken on the Node
+	 *
+	 * @exception IOException
+	 * 	Indicates the record could not be read or the visitor could not write what it was given
+	 */
+	public void visitNode(long id, int depth, int childNumber, StoryTextVisitor visitor) throws IOException {
+		Node node;
+		try {
+			node = peek(id);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		visitor.visit(depth, childNumber, node.numChildren(), node.option, node.message);
+	}
+
+	/**Gives the place and text of each Node of a subtree to a visitor in preorder, reading
+	 * the Nodes which aren't in memory without caching them, so several threads can walk
+	 * subtrees of the same tree at once
+	 *
+	 * @param id
+	 * 	The offset of the record of the root of the subtree, or the negative id of a Node made by an edit
+	 *
+	 * @param depth
+	 * 	The depth of the root of the subtree below the beginning of the story
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the root of the subtree is, 0 for the beginning of the story
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @exception IOException
+	 * 	Indicates a record could not be read or the visitor could not write what it was given
+	 */
+	public void walkSubtree(long id, int depth, int childNumber, StoryTextVisitor visitor) throws IOException {
+		long[] ids = new long[64];
+		int[] depths = new int[64];
+		int[] childNumbers = new int[64];
+		int size = 0;
+		ids[size] = id;
+		depths[size] = depth;
+		childNumbers[size++] = childNumber;
+		try {
+			while (size > 0) {
+				size--;
+				Node node = peek(ids[size]);
+				int nodeDepth = depths[size];
+				int numChildren = node.numChildren();
+				visitor.visit(nodeDepth, childNumbers[size], numChildren, node.option, node.message);
+
+				if (size + 3 > ids.length) {
+					ids = Arrays.copyOf(ids, ids.length * 2);
+					depths = Arrays.copyOf(depths, ids.length);
+					childNumbers = Arrays.copyOf(childNumbers, ids.length);
+				}
+				for (int x = numChildren - 1; x >= 0; x--) {
+					ids[size] = node.children[x];
+					depths[size] = nodeDepth + 1;
+					childNumbers[size++] = x + 1;
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**Writes a record for each Node of the story in postorder, and a Node shared by several
+	 * parents once. The record of a Node read from the file is copied as it is, with only
+	 * the offsets of its children changed, so its text is never decoded
+	 *
+	 * @param records
+	 * 	The writer to give the records to
+	 *
+	 * @return
+	 * 	The offset of the record of the beginning of the story, or NO_STORY if the tree is empty
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read or written
+	 */
+	long writeRecords(IndexedStoryFormat.RecordWriter records) throws IOException {
+		if (!hasStory())
+			return IndexedStoryFormat.NO_STORY;
+		HashMap<Long, Long> offsets = new HashMap<Long, Long>(); //The offset each Node written so far was written at, by id
+		long[] ids = new long[64];
+		long[][] children = new long[64][]; //The ids of the children of each Node on the stack
+		ByteBuffer[] copies = new ByteBuffer[64]; //The record of each Node on the stack read from the file, null for an edited Node
+		int[] written = new int[64]; //The number of children of each Node on the stack already written
+		long[] childOffsets = new long[3];
+		int size = 0;
+		ids[size++] = edited.get(DUMMY_ROOT).children[0];
+		try {
+			while (size > 0) {
+				int top = size - 1;
+				long id = ids[top];
+				if (children[top] == null) {
+					if (offsets.containsKey(id)) {
+						size--;
+						continue;
+					}
+					if (id < 0) {
+						children[top] = edited.get(id).children;
+					} else {
+						copies[top] = readRecord(id);
+						children[top] = new long[3];
+						for (int x = 0; x < copies[top].get(4); x++)
+							children[top][x] = copies[top].getLong(IndexedStoryFormat.RECORD_HEADER_SIZE + 8 * x);
+					}
+					written[top] = 0;
+				}
+				if (written[top] < 3 && children[top][written[top]] != NO_CHILD) {
+					if (size == ids.length) {
+						ids = Arrays.copyOf(ids, size * 2);
+						children = Arrays.copyOf(children, size * 2);
+						copies = Arrays.copyOf(copies, size * 2);
+						written = Arrays.copyOf(written, size * 2);
+					}
+					ids[size++] = children[top][written[top]++];
+					continue;
+				}
+
+				size--;
+				int numChildren = written[top];
+				for (int x = 0; x < numChildren; x++)
+					childOffsets[x] = offsets.get(children[top][x]);
+				long offset;
+				if (copies[top] != null) {
+					for (int x = 0; x < numChildren; x++)
+						copies[top].putLong(IndexedStoryFormat.RECORD_HEADER_SIZE + 8 * x, childOffsets[x]);
+					offset = records.copy(copies[top]);
+				} else {
+					Node node = edited.get(id);
+					offset = records.write(numChildren, node.leafCount, node.winningLeafCount, node.bestWinChance, node.randomWinChance,
+							childOffsets, node.option.getBytes(StandardCharsets.UTF_8), node.message.getBytes(StandardCharsets.UTF_8));
+				}
+				offsets.put(id, offset);
+				children[top] = null;
+				copies[top] = null;
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return offsets.get(edited.get(DUMMY_ROOT).children[0]);
+	}
+
+	/**Returns a copy of the story that later edits to this tree don't change. Only the edited
+	 * Nodes are copied, since the records in the file never change, so the copy can be written
+	 * on another thread from the same file while this tree is edited
+	 *
+	 * @return
+	 * 	An IndexedStoryTree reading this tree's file, holding the story as it is now; it must not be edited or closed
+	 */
+	StoryTree snapshot() {
+		return new IndexedStoryTree(this);
+	}
+
+	/**Returns whether or not this tree keeps its story in StoryTreeNodes
+	 *
+	 * @return
+	 * 	False, its story is in the file and the edited Nodes
+	 */
+	boolean keepsNodes() {
+		return false;
+	}
+
+	/**Returns the Node the cursor is at
+	 *
+	 * @return
+	 * 	The cursor, read from the file if it isn't in memory
+	 */
+	private Node cursor() {
+		return nodes[cursorDepth];
+	}
+
+	/**Moves the cursor down to one of its children and pushes it onto the path, pinning it if it was read from the file
+	 *
+	 * @param child
+	 * 	The id of the child of the cursor to move to
+	 *
+	 * @param childNumber
+	 * 	Which child of the cursor it is
+	 */
+	private void moveCursorTo(long child, int childNumber) {
+		if (cursorDepth + 1 == path.length) {
+			path = Arrays.copyOf(path, path.length * 2);
+			nodes = Arrays.copyOf(nodes, nodes.length * 2);
+			slots = Arrays.copyOf(slots, slots.length * 2);
+		}
+		Node node = node(child);
+		if (child > 0)
+			cache.pin(child);
+		path[++cursorDepth] = child;
+		nodes[cursorDepth] = node;
+		slots[cursorDepth] = childNumber;
+	}
+
+	/**Pops the cursor off the path, unpinning it if it was read from the file, so the cursor is its parent
+	 */
+	private void leaveCursor() {
+		if (path[cursorDepth] > 0)
+			cache.unpin(path[cursorDepth]);
+		nodes[cursorDepth--] = null;
+	}
+
+	/**Makes sure every Node from the dummy root to the cursor is an edited Node, copying the ones
+	 * read from the file into new Nodes from the top down and pointing each parent at the copy
+	 *
+	 * @return
+	 * 	The cursor, which may now be changed without changing any Node of the file
+	 */
+	private Node editCursorPath() {
+		Node parent = edited.get(DUMMY_ROOT);
+		for (int level = 1; level <= cursorDepth; level++) {
+			if (path[level] > 0) {
+				cache.unpin(path[level]);
+				nodes[level] = nodes[level].copy();
+				long id = nextEditedId--;
+				edited.put(id, nodes[level]);
+				parent.children[slots[level] - 1] = id;
+				path[level] = id;
+			}
+			parent = nodes[level];
+		}
+		return parent;
+	}
+
+	/**Recomputes the leaf counts of each ancestor of the cursor after the cursor has been edited
+	 */
+	private void updateAncestorCounts() {
+		for (int level = cursorDepth; level >= 0; level--)
+			updateCounts(nodes[level]);
+	}
+
+	/**Recomputes the leaf counts and chances of winning of a Node from its message and those of its children
+	 *
+	 * @param node
+	 * 	A Node made by an edit
+	 */
+	private void updateCounts(Node node) {
+		int leaves = 0;
+		int winningLeaves = 0;
+		double bestChance = 0;
+		double randomChance = 0;
+		int numChildren = node.numChildren();
+		for (int x = 0; x < numChildren; x++) {
+			Node child = node(node.children[x]);
+			leaves += child.leafCount;
+			winningLeaves += child.winningLeafCount;
+			bestChance = Math.max(bestChance, child.bestWinChance);
+			randomChance += child.randomWinChance;
+		}
+		if (leaves == 0) {
+			leaves = 1;
+			winningLeaves = node.message.contains(WIN_MESSAGE) ? 1 : 0;
+			bestChance = winningLeaves;
+			randomChance = winningLeaves;
+			numChildren = 1;
+		}
+		node.leafCount = leaves;
+		node.winningLeafCount = winningLeaves;
+		node.bestWinChance = bestChance;
+		node.randomWinChance = randomChance / numChildren;
+	}
+
+	/**Returns which child of the cursor the indicated position refers to, without building any Strings
+	 *
+	 * @param position
+	 * 	The position of the supposed child, such as 1-2-3
+	 *
+	 * @return
+	 * 	1, 2 or 3 if position is the cursor's position followed by that child number, 0 otherwise
+	 */
+	private int childNumberOf(String position) {
+		if (position == null || position.length() != 2 * cursorDepth + 1)
+			return 0;
+		for (int level = 0; level < cursorDepth; level++) {
+			if (position.charAt(2 * level) - '0' != slots[level + 1]
+					|| position.charAt(2 * level + 1) != '-')
+				return 0;
+		}
+		int childNumber = position.charAt(2 * cursorDepth) - '0';
+		return (childNumber >= 1 && childNumber <= 3) ? childNumber : 0;
+	}
+
+	/**Returns a Node, reading it from the file and caching it if it isn't in memory
+	 *
+	 * @param id
+	 * 	The offset of the Node's record, or the negative id of a Node made by an edit
+	 *
+	 * @return
+	 * 	The Node
+	 *
+	 * @exception UncheckedIOException
+	 * 	Indicates the record could not be read
+	 */
+	private Node node(long id) {
+		if (id < 0)
+			return edited.get(id);
+		Node node = cache.get(id);
+		if (node == null) {
+			node = read(id);
+			cache.put(id, node);
+		}
+		return node;
+	}
+
+	/**Returns a Node without caching it, reading it from the file if it isn't in memory,
+	 * so a walk of the whole story doesn't evict the Nodes the cursor uses
+	 *
+	 * @param id
+	 * 	The offset of the Node's record, or the negative id of a Node made by an edit
+	 *
+	 * @return
+	 * 	The Node
+	 *
+	 * @exception UncheckedIOException
+	 * 	Indicates the record could not be read
+	 */
+	private Node peek(long id) {
+		if (id < 0)
+			return edited.get(id);
+		Node node = cache.peek(id);
+		return node != null ? node : read(id);
+	}
+
+	/**Reads the record of a Node from the file
+	 *
+	 * @param offset
+	 * 	The offset of the record
+	 *
+	 * @return
+	 * 	A new Node holding the record
+	 *
+	 * @exception UncheckedIOException
+	 * 	Indicates the record could not be read or is not a valid record
+	 */
+	private Node read(long offset) {
+		ByteBuffer record = readRecord(offset);
+		try {
+			record.position(5);
+			int numChildren = record.get(4);
+			int leafCount = record.getInt();
+			int winningLeafCount = record.getInt();
+			double bestWinChance = record.getDouble();
+			double randomWinChance = record.getDouble();
+			long[] children = new long[3];
+			for (int x = 0; x < numChildren; x++)
+				children[x] = record.getLong();
+			Node node = new Node(readString(record), readString(record));
+			node.leafCount = leafCount;
+			node.winningLeafCount = winningLeafCount;
+			node.bestWinChance = bestWinChance;
+			node.randomWinChance = randomWinChance;
+			node.children = children;
+			return node;
+		} catch (RuntimeException e) {
+			throw new UncheckedIOException(new IOException("The record at " + offset + " of " + filename + " is not valid", e));
+		}
+	}
+
+	/**Reads the bytes of a record from the file and checks its length and number of children
+	 *
+	 * @param offset
+	 * 	The offset of the record
+	 *
+	 * @return
+	 * 	A buffer holding the whole record from its length on, with its limit at the end of the record
+	 *
+	 * @exception UncheckedIOException
+	 * 	Indicates the record could not be read, is cut short or has more than 3 children
+	 */
+	private ByteBuffer readRecord(long offset) {
+		try {
+			ByteBuffer record = ByteBuffer.allocate(READ_AHEAD);
+			readFrom(record, offset);
+			if (record.remaining() < IndexedStoryFormat.RECORD_HEADER_SIZE)
+				throw new IOException(filename + " ends inside the record at " + offset);
+			int length = record.getInt(0);
+			if (length < 0)
+				throw new IOException("The record at " + offset + " of " + filename + " has a length of " + length);
+			if (4 + length > record.remaining()) {
+				record = ByteBuffer.allocate(4 + length);
+				readFrom(record, offset);
+			}
+			if (4 + length > record.remaining())
+				throw new IOException(filename + " ends inside the record at " + offset);
+			int numChildren = record.get(4);
+			if (numChildren < 0 || numChildren > 3)
+				throw new IOException("The record at " + offset + " of " + filename + " has " + numChildren + " children");
+			record.limit(4 + length);
+			return record;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**Fills a buffer with the bytes of the file at an offset, or as many as there are
+	 *
+	 * @param buffer
+	 * 	The buffer to fill, which is flipped so it can be read
+	 *
+	 * @param offset
+	 * 	The offset of the first byte
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 */
+	private void readFrom(ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining() && file.read(buffer, offset + buffer.position()) >= 0)
+			;
+		buffer.flip();
+	}
+
+	/**Reads a length-prefixed UTF-8 String from a record
+	 *
+	 * @param record
+	 * 	The record, positioned at the length
+	 *
+	 * @return
+	 * 	The String read
+	 */
+	private static String readString(ByteBuffer record) {
+		int length = record.getInt();
+		String string = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+		record.position(record.position() + length);
+		return string;
+	}
+
+	/**Copies a subtree into StoryTreeNodes without caching the Nodes read for it.
+	 * A Node that is the child of several parents is copied once and shared again
+	 *
+	 * @param top
+	 * 	The id of the root of the subtree
+	 *
+	 * @return
+	 * 	A new Node holding a copy of the subtree, with correct leaf counts
+	 */
+	private StoryTreeNode toNodes(long top) {
+		HashMap<Long, StoryTreeNode> copies = new HashMap<Long, StoryTreeNode>(); //The copy of each Node finished so far
+		HashSet<Long> linked = new HashSet<Long>(); //The Nodes whose copies are already the child of some copy
+		long[] ids = new long[64];
+		Node[] nodes = new Node[64];
+		int size = 0;
+		ids[size] = top;
+		nodes[size++] = null;
+		while (size > 0) {
+			long id = ids[size - 1];
+			Node node = nodes[size - 1];
+			if (node == null) {
+				if (copies.containsKey(id)) {
+					size--;
+					continue;
+				}
+				node = peek(id);
+				nodes[size - 1] = node;
+				if (size + 3 > ids.length) {
+					ids = Arrays.copyOf(ids, ids.length * 2);
+					nodes = Arrays.copyOf(nodes, nodes.length * 2);
+				}
+				for (int x = node.numChildren() - 1; x >= 0; x--) {
+					ids[size] = node.children[x];
+					nodes[size++] = null;
+				}
+				continue;
+			}
+			size--;
+			nodes[size] = null;
+			StoryTreeNode copy = new StoryTreeNode();
+			copy.setOption(node.option);
+			copy.setMessage(node.message);
+			for (int x = 0; x < node.numChildren(); x++) {
+				StoryTreeNode child = copies.get(node.children[x]);
+				if (!linked.add(node.children[x]))
+					child.markShared();
+				if (x == 0)
+					copy.setLeftChild(child);
+				else if (x == 1)
+					copy.setMiddleChild(child);
+				else
+					copy.setRightChild(child);
+			}
+			copies.put(id, copy);
+		}
+		return copies.get(top);
+	}
+
+	/**A Node of the story held in memory, either read from the file or made by an edit
+	 */
+	private static class Node {
+		private String option; //To be displayed when presented with this Node as a choice
+		private String message; //To be displayed when this Node has been selected
+		private int leafCount; //The number of leaves in the subtree of this Node
+		private int winningLeafCount; //The number of winning leaves in the subtree of this Node
+		private double bestWinChance; //The chance of winning from this Node by always making the best choice
+		private double randomWinChance; //The chance of winning from this Node by choosing at random
+		private long[] children = new long[3]; //The ids of the children, left-aligned, NO_CHILD for empty slots
+
+		/**Creates a leaf Node
+		 *
+		 * @param option
+		 * 	The option of the Node
+		 *
+		 * @param message
+		 * 	The message of the Node
+		 */
+		Node(String option, String message) {
+			this.option = option;
+			this.message = message;
+		}
+
+		/**Returns the number of children, which are always left-aligned
+		 *
+		 * @return
+		 * 	0 to 3
+		 */
+		int numChildren() {
+			int count = 0;
+			while (count < 3 && children[count] != NO_CHILD)
+				count++;
+			return count;
+		}
+
+		/**Copies the Node, so the copy can be edited
+		 *
+		 * @return
+		 * 	A new Node with the same text, counts and children
+		 */
+		Node copy() {
+			Node copy = new Node(option, message);
+			copy.leafCount = leafCount;
+			copy.winningLeafCount = winningLeafCount;
+			copy.bestWinChance = bestWinChance;
+			copy.randomWinChance = randomWinChance;
+			copy.children = children.clone();
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/**This class is a story that can be edited while it is being played. An editor changes a
+ * StoryTree as usual and publishes it when the change is ready; publishing shares the
+ * tree's current story as a new SharedStory version and swaps it in with one atomic write.
+ *
+ * Because a published story is marked as shared, the next edit to the tree copies only the
+ * path from the beginning of the story to the Node it changes, and every other subtree is
+ * shared by the old and new versions. Readers never wait: they take the current version
+ * with one volatile read and play it to the end, so a game in progress never sees an edit
+ * that was published after it started.
+ *
+ * A StoryTree is not thread-safe, so each tree should be edited and published by one thread
+ * at a time. Only a tree which keeps its story in StoryTreeNodes can be published, since
+ * publishing a CompactStoryTree would copy its whole story each time.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.util.concurrent.atomic.AtomicReference;
+
+public class LiveStory {
+	private final AtomicReference<SharedStory> current; //The latest published version
+
+	/**Creates a live story whose first version is the current story of a tree
+	 *
+	 * @param tree
+	 * 	The tree to publish
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates tree is null or doesn't keep its story in StoryTreeNodes
+	 */
+	public LiveStory(StoryTree tree) {
+		current = new AtomicReference<>(new SharedStory(tree, 1));
+	}
+
+	/**Creates a live story whose first version is an already shared story
+	 *
+	 * @param story
+	 * 	The first version
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates story is null
+	 */
+	public LiveStory(SharedStory story) {
+		if (story == null)
+			throw new IllegalArgumentException();
+		current = new AtomicReference<>(story);
+	}
+
+	/**Returns the latest published version without waiting
+	 *
+	 * @return
+	 * 	The current version of the story
+	 */
+	public SharedStory current() {
+		return current.get();
+	}
+
+	/**Starts a new player on the latest published version
+	 *
+	 * @return
+	 * 	A session which keeps playing that version even if newer ones are published
+	 */
+	public StorySession newSession() {
+		return current.get().newSession();
+	}
+
+	/**Publishes the current story of a tree as the next version
+	 *
+	 * @param tree
+	 * 	The edited tree
+	 *
+	 * @Precondition:
+	 * 	tree is not null and no other thread is using it
+	 *
+	 * @Postcondition:
+	 * 	New sessions play the published version, and later edits to tree copy the path they change
+	 *
+	 * @return
+	 * 	The version published
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates tree is null or doesn't keep its story in StoryTreeNodes
+	 */
+	public SharedStory publish(StoryTree tree) {
+		if (tree == null)
+			throw new IllegalArgumentException();
+		while (true) {
+			SharedStory previous = current.get();
+			SharedStory next = new SharedStory(tree, previous.getVersion() + 1);
+			if (current.compareAndSet(previous, next))
+				return next;
+		}
+	}
+
+	/**Returns the version number of the latest published version
+	 *
+	 * @return
+	 * 	The number of times the story has been published, counting the first version
+	 */
+	public long getVersion() {
+		return current.get().getVersion();
+	}
+}
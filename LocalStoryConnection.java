@@ -0,0 +1,165 @@
+/**This class is one end of an in-process StoryConnection. Text printed to one end of a
+ * pair is read from the other, so a server and its players can run in one JVM without
+ * sockets. Waiting is done with a ReentrantLock rather than synchronized so that a
+ * waiting virtual thread does not hold on to its carrier thread.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LocalStoryConnection implements StoryConnection {
+	private final Inbox in; //The text printed by the other end, waiting to be read here
+	private final Inbox out; //The inbox of the other end
+
+	/**Creates an end which reads one inbox and prints to another
+	 *
+	 * @param in
+	 * 	The inbox read by this end
+	 *
+	 * @param out
+	 * 	The inbox printed to by this end
+	 */
+	private LocalStoryConnection(Inbox in, Inbox out) {
+		this.in = in;
+		this.out = out;
+	}
+
+	/**Creates two connected ends
+	 *
+	 * @return
+	 * 	An array of two ends, each reading what the other prints
+	 */
+	public static LocalStoryConnection[] pair() {
+		Inbox first = new Inbox();
+		Inbox second = new Inbox();
+		return new LocalStoryConnection[] {new LocalStoryConnection(first, second), new LocalStoryConnection(second, first)};
+	}
+
+	/**Reads the next line printed by the other end, waiting until there is one
+	 *
+	 * @return
+	 * 	The line without its line ending, or null once the other end has closed and every line was read
+	 *
+	 * @exception IOException
+	 * 	Indicates the thread was interrupted while waiting
+	 */
+	public String readLine() throws IOException {
+		return in.take("\n", false);
+	}
+
+	/**Reads the text printed by the other end up to and including a marker, such as a prompt,
+	 * waiting until it arrives
+	 *
+	 * @param marker
+	 * 	The text which ends what is read
+	 *
+	 * @return
+	 * 	The text through marker, whatever is left if the other end closed first, or null if nothing is left
+	 *
+	 * @exception IOException
+	 * 	Indicates the thread was interrupted while waiting
+	 */
+	public String readUntil(String marker) throws IOException {
+		return in.take(marker, true);
+	}
+
+	/**Sends text to the other end
+	 *
+	 * @param text
+	 * 	The text to send
+	 *
+	 * @exception IOException
+	 * 	Indicates the other end has closed
+	 */
+	public void print(String text) throws IOException {
+		out.put(text);
+	}
+
+	/**Closes both directions, so the other end reads what is left and then null
+	 */
+	public void close() {
+		out.close();
+		in.close();
+	}
+
+	/**The text travelling one way between the two ends
+	 */
+	private static class Inbox {
+		private final ReentrantLock lock = new ReentrantLock(); //Guards the fields below
+		private final Condition changed = lock.newCondition(); //Signalled when text arrives or the inbox closes
+		private final StringBuilder text = new StringBuilder(); //Text printed but not read yet
+		private boolean closed; //Whether either end has closed
+
+		/**Adds text to the inbox
+		 *
+		 * @param printed
+		 * 	The text to add
+		 *
+		 * @exception IOException
+		 * 	Indicates the inbox is closed
+		 */
+		void put(String printed) throws IOException {
+			lock.lock();
+			try {
+				if (closed)
+					throw new IOException("Connection closed");
+				text.append(printed);
+				changed.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**Removes text from the inbox up to a marker, waiting until the marker arrives
+		 *
+		 * @param marker
+		 * 	The text which ends what is removed
+		 *
+		 * @param keepMarker
+		 * 	Whether or not the marker is returned with the text before it
+		 *
+		 * @return
+		 * 	The removed text, what is left once the inbox closes, or null if nothing is left
+		 *
+		 * @exception IOException
+		 * 	Indicates the thread was interrupted while waiting
+		 */
+		String take(String marker, boolean keepMarker) throws IOException {
+			lock.lock();
+			try {
+				int end;
+				while ((end = text.indexOf(marker)) < 0 && !closed)
+					changed.await();
+				if (end < 0) {
+					if (text.length() == 0)
+						return null;
+					String rest = text.toString();
+					text.setLength(0);
+					return rest;
+				}
+				String taken = text.substring(0, keepMarker ? end + marker.length() : end);
+				text.delete(0, end + marker.length());
+				return taken;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the other end", e);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**Closes the inbox, waking any reader
+		 */
+		void close() {
+			lock.lock();
+			try {
+				closed = true;
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/**This class reads a StoryTree from a textfile in the "position | option | message" format
+ * by memory-mapping it. Lines are scanned byte by byte for their delimiters and each node
+ * keeps the offsets of its option and message in the mapped file instead of Strings.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+
+public class MappedStoryReader {
+	private static final long WINDOW_SIZE = 1L << 30; //The most bytes mapped at once, since a mapping is indexed by int
+
+	private StoryTreeBuilder builder; //Links the parsed lines into a tree
+	private long lineCounter; //The number of the line being parsed
+
+	/**Creates a reader that builds a new StoryTree
+	 */
+	public MappedStoryReader() {
+		builder = new StoryTreeBuilder();
+		lineCounter = 0;
+	}
+
+	/**Maps the indicated textfile and returns the StoryTree it describes
+	 *
+	 * @param filename
+	 * 	The textfile to read
+	 *
+	 * @Precondition:
+	 * 	filename is nonnull and nonempty
+	 *
+	 * @return
+	 * 	The StoryTree made from the textfile, whose text stays in the mapped file
+	 *
+	 * @exception FileNotFoundException
+	 * 	Indicates the file is not found
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be mapped
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates a line of the file does not follow the expected format, the message names the line
+	 */
+	public StoryTree read(String filename) throws IOException, DataFormatException {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+				FileChannel channel = file.getChannel()) {
+			long size = channel.size();
+			long windowStart = 0;
+
+			while (windowStart < size) {
+				int windowLength = (int) Math.min(WINDOW_SIZE, size - windowStart);
+				ByteBuffer window = openWindow(channel, windowStart, windowLength);
+				MappedStoryText text = new MappedStoryText(window);
+				int lineStart = 0;
+
+				for (int x = 0; x < windowLength; x++) {
+					if (window.get(x) == '\n') {
+						parseLine(text, lineStart, x);
+						lineStart = x + 1;
+					}
+				}
+				if (windowStart + windowLength == size && lineStart < windowLength) {
+					parseLine(text, lineStart, windowLength);
+					lineStart = windowLength;
+				}
+				if (lineStart == 0)
+					throw new DataFormatException("Line " + (lineCounter + 1) + ": longer than " + WINDOW_SIZE + " bytes");
+				windowStart += lineStart;
+			}
+		}
+		return builder.getTree();
+	}
+
+	/**Maps a window of the file
+	 *
+	 * @param channel
+	 * 	The open file
+	 *
+	 * @param start
+	 * 	The offset in the file of the first byte of the window
+	 *
+	 * @param length
+	 * 	The number of bytes in the window
+	 *
+	 * @return
+	 * 	A buffer holding the bytes of the window, which the nodes of its lines keep a reference to
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be mapped
+	 */
+	protected ByteBuffer openWindow(FileChannel channel, long start, int length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+	}
+
+	/**Parses one line of the mapped file and adds its node to the tree
+	 *
+	 * @param text
+	 * 	The mapped window holding the line
+	 *
+	 * @param start
+	 * 	The index of the first byte of the line
+	 *
+	 * @param end
+	 * 	The index just past the last byte of the line, not including the line break
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the line is not in the "position | option | message" format
+	 */
+	private void parseLine(MappedStoryText text, int start, int end) throws DataFormatException {
+		lineCounter++;
+		if (end > start && text.getBytes().get(end - 1) == '\r')
+			end--;
+		if (end == start)
+			return;
+
+		int optionStart = StoryTextReader.findDelimiter(text.getBytes(), start, end);
+		int messageStart = optionStart < 0 ? -1 : StoryTextReader.findDelimiter(text.getBytes(), optionStart, end);
+		if (messageStart < 0)
+			throw new DataFormatException("Line " + lineCounter + ": expected \"position | option | message\"");
+
+		StoryTreeNode newNode = new StoryTreeNode();
+		newNode.setMappedText(text, optionStart, messageStart - 3 - optionStart, messageStart, end - messageStart);
+		builder.addNode(text.getBytes(), start, optionStart - 3, newNode, lineCounter);
+	}
+}
@@ -0,0 +1,80 @@
+/**This class is a window of a story file held outside of the Java heap, either
+ * memory-mapped or copied into a direct buffer. Nodes loaded in the MAPPED and
+ * OFF_HEAP modes keep the offsets of their option and message within a window
+ * and only decode them into Strings when they are read.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MappedStoryText {
+	private ByteBuffer bytes; //The mapped or direct bytes of this window of the file
+
+	/**Creates a text window over the indicated mapped bytes
+	 *
+	 * @param bytes
+	 * 	The mapped or copied region of the story file
+	 *
+	 * @Precondition:
+	 * 	bytes is not null
+	 */
+	public MappedStoryText(ByteBuffer bytes) {
+		if (bytes == null)
+			throw new IllegalArgumentException();
+		this.bytes = bytes;
+	}
+
+	/**Decodes the UTF-8 text at the indicated place in the window
+	 *
+	 * @param offset
+	 * 	The index of the first byte of the text
+	 *
+	 * @param length
+	 * 	The number of bytes of the text
+	 *
+	 * @return
+	 * 	A new String holding the decoded text
+	 */
+	public String decode(int offset, int length) {
+		byte[] text = new byte[length];
+		bytes.get(offset, text, 0, length);
+		return new String(text, StandardCharsets.UTF_8);
+	}
+
+	/**Returns whether or not the text at the indicated place contains an ASCII phrase,
+	 * comparing the mapped bytes without decoding them
+	 *
+	 * @param offset
+	 * 	The index of the first byte of the text
+	 *
+	 * @param length
+	 * 	The number of bytes of the text
+	 *
+	 * @param phrase
+	 * 	The ASCII phrase to look for
+	 *
+	 * @return
+	 * 	True if phrase appears within the text, false otherwise
+	 */
+	public boolean contains(int offset, int length, String phrase) {
+		int end = offset + length - phrase.length();
+		for (int x = offset; x <= end; x++) {
+			int matched = 0;
+			while (matched < phrase.length() && bytes.get(x + matched) == phrase.charAt(matched))
+				matched++;
+			if (matched == phrase.length())
+				return true;
+		}
+		return false;
+	}
+
+	/**Returns the mapped bytes of the window
+	 *
+	 * @return
+	 * 	The mapped region of the story file
+	 */
+	public ByteBuffer getBytes() {
+		return bytes;
+	}
+}
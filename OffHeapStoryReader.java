@@ -0,0 +1,43 @@
+/**This class reads a StoryTree from a textfile in the "position | option | message" format
+ * by copying the file into direct ByteBuffers outside of the Java heap. Each node keeps
+ * the offsets of its option and message in those buffers, like a MappedStoryReader's nodes,
+ * but the text stays valid if the file is changed or deleted afterwards.
+ *
+ * The buffers count against the JVM's direct memory limit, -XX:MaxDirectMemorySize,
+ * and are freed once no node of the tree refers to them.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class OffHeapStoryReader extends MappedStoryReader {
+
+	/**Copies a window of the file into a new direct buffer
+	 *
+	 * @param channel
+	 * 	The open file
+	 *
+	 * @param start
+	 * 	The offset in the file of the first byte of the window
+	 *
+	 * @param length
+	 * 	The number of bytes in the window
+	 *
+	 * @return
+	 * 	A direct buffer holding the bytes of the window
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read or ended early
+	 */
+	protected ByteBuffer openWindow(FileChannel channel, long start, int length) throws IOException {
+		ByteBuffer window = ByteBuffer.allocateDirect(length);
+		while (window.hasRemaining()) {
+			if (channel.read(window, start + window.position()) < 0)
+				throw new EOFException("The story file ended while it was being read");
+		}
+		return window.clear();
+	}
+}
@@ -0,0 +1,95 @@
+/**This class is a story that many players can read at once. It holds the Nodes of a
+ * StoryTree as they were when it was made and never changes them, so any number of
+ * StorySessions on any threads can walk it without locking. The Nodes are only handed
+ * out as StoryNodes, which have no setters, so the players can't change them either.
+ *
+ * Making a SharedStory marks the beginning of the tree's story as shared. Edits made to
+ * the StoryTree afterwards copy the path they change, the same way they do for subtrees
+ * shared on load, so they never reach the Nodes of the SharedStory. Only a tree which keeps
+ * its story in StoryTreeNodes can be shared; sharing any other tree would mean copying
+ * the whole story into Nodes, so it is refused.
+ *
+ * @author Pooja Ginjupalli
+ */
+
+public class SharedStory {
+	private final StoryTreeNode storyRoot; //The beginning of the story, null if it is empty
+	private final long version; //Which published version of its story this is, counting from 1
+
+	/**Shares the current story of a tree
+	 *
+	 * @param tree
+	 * 	The tree whose story is shared
+	 *
+	 * @Precondition:
+	 * 	tree is not null
+	 *
+	 * @Postcondition:
+	 * 	Later edits to tree do not change this story
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates tree is null or doesn't keep its story in StoryTreeNodes
+	 */
+	public SharedStory(StoryTree tree) {
+		this(tree, 1);
+	}
+
+	/**Shares the current story of a tree as a numbered version
+	 *
+	 * @param tree
+	 * 	The tree whose story is shared
+	 *
+	 * @param version
+	 * 	The version number of the story
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates tree is null or doesn't keep its story in StoryTreeNodes
+	 */
+	SharedStory(StoryTree tree, long version) {
+		if (tree == null)
+			throw new IllegalArgumentException();
+		if (!tree.keepsNodes())
+			throw new IllegalArgumentException("A " + tree.getClass().getName() + " can't be shared without copying its whole story");
+		storyRoot = tree.getStoryRoot();
+		if (storyRoot != null)
+			storyRoot.markShared();
+		this.version = version;
+	}
+
+	/**Starts a new player at the beginning of the story
+	 *
+	 * @return
+	 * 	A session whose cursor is at the beginning of the story
+	 */
+	public StorySession newSession() {
+		return new StorySession(this);
+	}
+
+	/**Returns the version number of the story
+	 *
+	 * @return
+	 * 	1 for a story shared on its own, or the number given by the LiveStory that published it
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**Returns the beginning Node of the story
+	 *
+	 * @return
+	 * 	A read-only view of the Node with a position of 1, or null if the story is empty
+	 */
+	public StoryNode getStoryRoot() {
+		return storyRoot;
+	}
+
+	/**Returns the Nodes of the story themselves, for a StoryTree to take as the story of a
+	 * snapshot, whose edits copy the shared Nodes as they would this story's
+	 *
+	 * @return
+	 * 	The Node with a position of 1, or null if the story is empty
+	 */
+	StoryTreeNode getStoryNodes() {
+		return storyRoot;
+	}
+}
@@ -0,0 +1,86 @@
+/**This interface is implemented by a StoryTree which keeps its story in structures of its
+ * own rather than in StoryTreeNodes, so its story can still be split into subtrees and the
+ * subtrees walked on several threads. Each Node is known by a long id, which is its index
+ * in the arrays of a CompactStoryTree and its record offset in an IndexedStoryTree.
+ *
+ * Every method only reads the story, so any number of threads may call them at once as
+ * long as the tree is not edited.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+
+interface SplittableStory {
+	long NO_NODE = 0; //The id of no Node, returned for an empty story or an empty child slot
+
+	/**Returns the id of the beginning of the story
+	 *
+	 * @return
+	 * 	The id of the Node with a position of 1, or NO_NODE if the story is empty
+	 */
+	long getStoryId();
+
+	/**Returns the number of leaves in the subtree of a Node
+	 *
+	 * @param id
+	 * 	The id of the Node
+	 *
+	 * @return
+	 * 	1 if the Node is a leaf, otherwise the sum of the leaf counts of its children
+	 *
+	 * @exception IOException
+	 * 	Indicates the Node could not be read
+	 */
+	int getLeafCount(long id) throws IOException;
+
+	/**Returns the ids of the children of a Node
+	 *
+	 * @param id
+	 * 	The id of the Node
+	 *
+	 * @param children
+	 * 	An array of at least 3 ids, filled with the ids of child 1 to 3 and NO_NODE for the empty slots
+	 *
+	 * @exception IOException
+	 * 	Indicates the Node could not be read
+	 */
+	void getChildIds(long id, long[] children) throws IOException;
+
+	/**Gives the place and text of one Node to a visitor, without its children
+	 *
+	 * @param id
+	 * 	The id of the Node
+	 *
+	 * @param depth
+	 * 	The depth of the Node below the beginning of the story
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the Node is, 0 for the beginning of the story
+	 *
+	 * @param visitor
+	 * 	The action taken on the Node
+	 *
+	 * @exception IOException
+	 * 	Indicates the Node could not be read or the visitor could not write what it was given
+	 */
+	void visitNode(long id, int depth, int childNumber, StoryTextVisitor visitor) throws IOException;
+
+	/**Gives the place and text of each Node of a subtree to a visitor in preorder
+	 *
+	 * @param id
+	 * 	The id of the root of the subtree
+	 *
+	 * @param depth
+	 * 	The depth of the root of the subtree below the beginning of the story
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the root of the subtree is, 0 for the beginning of the story
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @exception IOException
+	 * 	Indicates a Node could not be read or the visitor could not write what it was given
+	 */
+	void walkSubtree(long id, int depth, int childNumber, StoryTextVisitor visitor) throws IOException;
+}
@@ -0,0 +1,36 @@
+/**This interface is the text channel between a player and the play loop. The loop prints
+ * the story and its prompts to it and reads the player's choices from it, so the same
+ * loop can serve the console, a socket or an in-process connection.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+
+public interface StoryConnection {
+	/**Reads the next line the player typed, waiting until there is one
+	 *
+	 * @return
+	 * 	The line without its line ending, or null if the player has disconnected
+	 *
+	 * @exception IOException
+	 * 	Indicates the connection failed
+	 */
+	String readLine() throws IOException;
+
+	/**Sends text to the player. Text may be held back until the next readLine or close
+	 *
+	 * @param text
+	 * 	The text to send
+	 *
+	 * @exception IOException
+	 * 	Indicates the connection failed
+	 */
+	void print(String text) throws IOException;
+
+	/**Sends any text held back and ends the connection
+	 *
+	 * @exception IOException
+	 * 	Indicates the connection failed
+	 */
+	void close() throws IOException;
+}
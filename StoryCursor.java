@@ -0,0 +1,99 @@
+/**This interface represents a player's place in a story: a StorySession over a SharedStory,
+ * or a StoryTree played through its own cursor. Zork's play loop plays either one, so a
+ * tree which can't be shared without copying its story is played where it is.
+ *
+ * @author Pooja Ginjupalli
+ */
+
+public interface StoryCursor {
+
+	/**Returns whether or not there is a story to play
+	 *
+	 * @return
+	 * 	True if the beginning of the story exists, false if the story is empty
+	 */
+	boolean hasStory();
+
+	/**Moves the cursor back to the beginning of the story
+	 *
+	 * @Postcondition:
+	 * 	cursor references the beginning of the story
+	 */
+	void resetCursor();
+
+	/**Returns the option of the cursor
+	 *
+	 * @return
+	 * 	The option String of the cursor node
+	 */
+	String getCursorOption();
+
+	/**Returns the message of the cursor
+	 *
+	 * @return
+	 * 	The message of the cursor which would be shown if it's chosen
+	 */
+	String getCursorMessage();
+
+	/**Returns whether or not cursor is referencing a leaf node
+	 *
+	 * @return
+	 * 	True if cursor references a leaf node, false otherwise
+	 */
+	boolean cursorIsLeaf();
+
+	/**Fills a StoryOptions with the option of each child of the cursor
+	 *
+	 * @param options
+	 * 	The options to fill
+	 *
+	 * @return
+	 * 	options, holding the option of each child of the cursor in order
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates options is null
+	 */
+	StoryOptions getOptions(StoryOptions options);
+
+	/**Sets the cursor to one of its children by number
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3, no more than the number of children of the cursor
+	 *
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the cursor has no such child
+	 */
+	void selectChild(int childNumber) throws NodeNotPresentException;
+
+	/**Returns the chance of winning from the cursor
+	 *
+	 * @return
+	 * 	The percentage of the leaves under the cursor that are winning leaves
+	 */
+	double winProbability();
+
+	/**Returns the chance of winning from the cursor for a player who always makes the best choice
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is the best one
+	 */
+	double bestWinProbability();
+
+	/**Returns the chance of winning from the cursor for a player who chooses each option with the same chance
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is made at random
+	 */
+	double randomWinProbability();
+
+	/**Returns which child of the cursor a player who plays as well as possible chooses
+	 *
+	 * @return
+	 * 	The number of the child with the greatest chance of winning under the best play,
+	 * 	the first one if several tie, or 0 if the cursor is a leaf
+	 */
+	int bestChoice();
+}
@@ -0,0 +1,13 @@
+/**This enum represents the file formats a StoryTree can be saved in
+ * 
+ * TEXT is the readable "position | option | message" format, one node per line.
+ * BINARY is the compact format written by BinaryStoryFormat.
+ * INDEXED is the format written by IndexedStoryFormat, which gives the offset of each Node's children
+ * 	so a story can be read one Node at a time.
+ * 
+ * @author Pooja Ginjupalli
+ */
+
+public enum StoryFormat {
+	TEXT, BINARY, INDEXED;
+}
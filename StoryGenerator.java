@@ -0,0 +1,396 @@
+/**This class writes synthetic stories of a chosen size and shape, for benchmarks and for
+ * testing at scale. A story is written line by line in preorder, in the same
+ * "position | option | message" format as any story file, as it is generated, so stories
+ * of any size can be written straight to disk without holding them in memory.
+ *
+ * Each Node is given a budget of Nodes for its subtree, the root the whole story, and
+ * splits the rest of its budget among its children according to the shape. No Node is
+ * made deeper than the maximum depth, so a subtree that reaches it is cut off and the
+ * story has fewer Nodes than asked for.
+ *
+ * Besides the shape, the odds of each number of children of a RANDOM story, the share of
+ * leaves that win, the length of the text and how often text repeats can be set. Text
+ * that repeats only depends on the child number and depth of its Node, like real stories
+ * reusing the same choices, and shares well when loaded; other text is unique to its Node.
+ * The same settings and seed always write the same story.
+ *
+ * Usage: java StoryGenerator file nodes [BALANCED, CHAIN or RANDOM] [max depth] [seed]
+ * 	[win ratio] [text length] [repetition] [branching odds as one:two:three]
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class StoryGenerator {
+	private static final int BUFFER_SIZE = 1 << 16; //Bytes buffered when writing
+	private static final String[] WORDS = {"the", "old", "road", "winds", "past", "a", "dark", "forest", "and", "quiet",
+			"river", "where", "lanterns", "flicker", "in", "cold", "wind", "near", "ruined", "tower"}; //Filler for longer text
+
+	private final StoryShape shape; //How each Node splits its budget among its children
+	private final int maxDepth; //The depth no Node is made below, the beginning of the story has a depth of 1
+	private final long seed; //The seed of the random choices
+	private double[] branching; //branching[c - 1] is the odds of a RANDOM Node having c children
+	private double winRatio; //The chance that a leaf wins
+	private int textLength; //The least length of each option and message
+	private double repetition; //The chance that a Node's text is the shared text of its child number and depth
+
+	private Random random; //The source of the choices of the story being written
+	private byte[] line; //The line being written
+	private int lineLength; //The number of bytes of line in use
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java StoryGenerator file nodes [BALANCED, CHAIN or RANDOM] [max depth] [seed]"
+					+ " [win ratio] [text length] [repetition] [branching odds as one:two:three]");
+			return;
+		}
+		long nodes = Long.parseLong(args[1]);
+		StoryShape shape = args.length > 2 ? StoryShape.valueOf(args[2].toUpperCase()) : StoryShape.BALANCED;
+		int maxDepth = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+		StoryGenerator generator = new StoryGenerator(shape, maxDepth, seed);
+		if (args.length > 5)
+			generator.setWinRatio(Double.parseDouble(args[5]));
+		if (args.length > 6)
+			generator.setTextLength(Integer.parseInt(args[6]));
+		if (args.length > 7)
+			generator.setRepetition(Double.parseDouble(args[7]));
+		if (args.length > 8) {
+			String[] odds = args[8].split(":");
+			generator.setBranching(Double.parseDouble(odds[0]), Double.parseDouble(odds[1]), Double.parseDouble(odds[2]));
+		}
+
+		long start = System.nanoTime();
+		long written = generator.write(new File(args[0]), nodes);
+		System.out.println(String.format("Wrote %d Nodes to %s in %.1f s, %d MB", written, args[0],
+				(System.nanoTime() - start) / 1e9, new File(args[0]).length() >> 20));
+	}
+
+	/**Creates a generator with even branching odds, a third of the leaves winning, short text that always repeats
+	 *
+	 * @param shape
+	 * 	The shape of the stories written
+	 *
+	 * @param maxDepth
+	 * 	The greatest depth of a Node, the beginning of the story has a depth of 1
+	 *
+	 * @param seed
+	 * 	The seed of the random choices, so the same generator always writes the same story
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates shape is null or maxDepth is not positive
+	 */
+	public StoryGenerator(StoryShape shape, int maxDepth, long seed) {
+		if (shape == null || maxDepth < 1)
+			throw new IllegalArgumentException();
+		this.shape = shape;
+		this.maxDepth = maxDepth;
+		this.seed = seed;
+		branching = new double[] {1, 1, 1};
+		winRatio = 1.0 / 3;
+		textLength = 0;
+		repetition = 1;
+	}
+
+	/**Sets the odds of each number of children of a Node in a RANDOM story. Nodes with fewer Nodes
+	 * under them than children drawn get as many children as they can
+	 *
+	 * @param one
+	 * 	The weight of 1 child
+	 *
+	 * @param two
+	 * 	The weight of 2 children
+	 *
+	 * @param three
+	 * 	The weight of 3 children
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates a weight is negative or they are all 0
+	 */
+	public void setBranching(double one, double two, double three) {
+		if (!(one >= 0 && two >= 0 && three >= 0) || one + two + three == 0)
+			throw new IllegalArgumentException();
+		branching = new double[] {one, two, three};
+	}
+
+	/**Sets the share of leaves that win
+	 *
+	 * @param winRatio
+	 * 	The chance of each leaf having a winning message, from 0 to 1
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates winRatio is outside 0 to 1
+	 */
+	public void setWinRatio(double winRatio) {
+		if (!(winRatio >= 0 && winRatio <= 1))
+			throw new IllegalArgumentException();
+		this.winRatio = winRatio;
+	}
+
+	/**Sets the least length of each option and message, which are padded with words to reach it
+	 *
+	 * @param textLength
+	 * 	The number of characters, 0 for the shortest text
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates textLength is negative
+	 */
+	public void setTextLength(int textLength) {
+		if (textLength < 0)
+			throw new IllegalArgumentException();
+		this.textLength = textLength;
+	}
+
+	/**Sets how often text repeats
+	 *
+	 * @param repetition
+	 * 	The chance of a Node's text being the text every Node of its child number and depth shares,
+	 * 	from 0 for text unique to every Node to 1 for text that always repeats
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates repetition is outside 0 to 1
+	 */
+	public void setRepetition(double repetition) {
+		if (!(repetition >= 0 && repetition <= 1))
+			throw new IllegalArgumentException();
+		this.repetition = repetition;
+	}
+
+	/**Writes a story to a file
+	 *
+	 * @param file
+	 * 	The file to write the story to
+	 *
+	 * @param nodes
+	 * 	The number of Nodes wanted
+	 *
+	 * @return
+	 * 	The number of Nodes written, which is less than nodes if the maximum depth cut the story off
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates nodes is not positive
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	public long write(File file, long nodes) throws IOException {
+		if (nodes < 1)
+			throw new IllegalArgumentException();
+		random = new Random(seed);
+		line = new byte[256];
+		long[] budgets = new long[64]; //The stack of Nodes still to be written, each a budget, depth and child number
+		int[] depths = new int[64];
+		byte[] childNumbers = new byte[64];
+		byte[] path = new byte[64]; //path[d] is the child number of the last Node written at depth d + 1
+		long[] split = new long[3];
+		int top = 0;
+		budgets[top] = nodes;
+		depths[top] = 1;
+		childNumbers[top++] = 1;
+		long written = 0;
+
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+			while (top > 0) {
+				top--;
+				long budget = budgets[top];
+				int depth = depths[top];
+				int childNumber = childNumbers[top];
+				if (depth > path.length)
+					path = Arrays.copyOf(path, Math.max(depth, path.length * 2));
+				path[depth - 1] = (byte) childNumber;
+
+				int children = depth == maxDepth ? 0 : split(budget - 1, split);
+				lineLength = 0;
+				if (written > 0)
+					append('\n');
+				for (int x = 0; x < depth; x++) {
+					if (x > 0)
+						append('-');
+					append((char) ('0' + path[x]));
+				}
+				append(" | ");
+				appendOption(childNumber, depth, written);
+				append(" | ");
+				appendMessage(childNumber, depth, written, children == 0);
+				out.write(line, 0, lineLength);
+				written++;
+
+				if (top + 3 > budgets.length) {
+					budgets = Arrays.copyOf(budgets, budgets.length * 2);
+					depths = Arrays.copyOf(depths, depths.length * 2);
+					childNumbers = Arrays.copyOf(childNumbers, childNumbers.length * 2);
+				}
+				for (int child = children; child >= 1; child--) {
+					budgets[top] = split[child - 1];
+					depths[top] = depth + 1;
+					childNumbers[top++] = (byte) child;
+				}
+			}
+		} finally {
+			line = null;
+		}
+		return written;
+	}
+
+	/**Splits the budget of a Node's descendants among its children according to the shape
+	 *
+	 * @param budget
+	 * 	The number of Nodes under the Node
+	 *
+	 * @param split
+	 * 	The array the budget of each child is put in
+	 *
+	 * @return
+	 * 	The number of children, 0 if budget is 0
+	 */
+	private int split(long budget, long[] split) {
+		if (budget == 0)
+			return 0;
+		if (shape == StoryShape.CHAIN) {
+			split[0] = budget == 1 ? 1 : budget - 1;
+			split[1] = 1;
+			return budget == 1 ? 1 : 2;
+		}
+		int children = (int) Math.min(3, budget);
+		if (shape == StoryShape.RANDOM)
+			children = Math.min(children, drawChildren());
+		if (shape == StoryShape.BALANCED || children == 1) {
+			for (int child = 0; child < children; child++)
+				split[child] = budget / children + (child < budget % children ? 1 : 0);
+			return children;
+		}
+		long first = 1 + (long) (random.nextDouble() * (budget - children + 1)); //Every child gets at least 1
+		split[0] = first;
+		if (children == 2) {
+			split[1] = budget - first;
+		} else {
+			split[1] = 1 + (long) (random.nextDouble() * (budget - first - 1));
+			split[2] = budget - first - split[1];
+		}
+		return children;
+	}
+
+	/**Draws a number of children from the branching odds
+	 *
+	 * @return
+	 * 	1, 2 or 3
+	 */
+	private int drawChildren() {
+		double draw = random.nextDouble() * (branching[0] + branching[1] + branching[2]);
+		if (draw < branching[0])
+			return 1;
+		return draw < branching[0] + branching[1] ? 2 : 3;
+	}
+
+	/**Appends the option of a Node to the line
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the Node is
+	 *
+	 * @param depth
+	 * 	The depth of the Node
+	 *
+	 * @param serial
+	 * 	The number of Nodes written before it, which makes text that doesn't repeat unique
+	 */
+	private void appendOption(int childNumber, int depth, long serial) {
+		int start = lineLength;
+		append("Choice ");
+		append(childNumber);
+		append(" at level ");
+		append(depth);
+		boolean repeats = repetition == 1 || random.nextDouble() < repetition;
+		if (!repeats) {
+			append(" #");
+			append(serial);
+		}
+		pad(start, repeats ? childNumber + depth : serial);
+	}
+
+	/**Appends the message of a Node to the line
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the Node is
+	 *
+	 * @param depth
+	 * 	The depth of the Node
+	 *
+	 * @param serial
+	 * 	The number of Nodes written before it, which makes text that doesn't repeat unique
+	 *
+	 * @param leaf
+	 * 	Whether the Node has no children, so the message ends the game
+	 */
+	private void appendMessage(int childNumber, int depth, long serial, boolean leaf) {
+		int start = lineLength;
+		boolean wins = leaf && random.nextDouble() < winRatio;
+		boolean repeats = repetition == 1 || random.nextDouble() < repetition;
+		if (!repeats) {
+			append("Scene ");
+			append(serial);
+			append(". ");
+		}
+		if (!leaf)
+			append("The path splits again.");
+		else
+			append(wins ? "You found the treasure." : "You fell into a pit.");
+		pad(start, repeats ? childNumber * 31 + depth : serial);
+		if (!leaf)
+			append(" What do you do?");
+		else
+			append(wins ? " YOU WIN." : " YOU LOSE.");
+	}
+
+	/**Pads the text appended since a point of the line with words until it is as long as the text length
+	 *
+	 * @param start
+	 * 	Where the text starts in the line
+	 *
+	 * @param key
+	 * 	Picks the words, so the same key always pads the same way
+	 */
+	private void pad(int start, long key) {
+		for (long word = key; lineLength - start < textLength; word = word * 31 + 7) {
+			append(' ');
+			append(WORDS[(int) Math.floorMod(word, (long) WORDS.length)]);
+		}
+	}
+
+	/**Appends text to the line
+	 *
+	 * @param text
+	 * 	ASCII text
+	 */
+	private void append(String text) {
+		for (int x = 0; x < text.length(); x++)
+			append(text.charAt(x));
+	}
+
+	/**Appends a number to the line
+	 *
+	 * @param number
+	 * 	A number that is not negative
+	 */
+	private void append(long number) {
+		if (number >= 10)
+			append(number / 10);
+		append((char) ('0' + number % 10));
+	}
+
+	/**Appends a character to the line
+	 *
+	 * @param character
+	 * 	An ASCII character
+	 */
+	private void append(char character) {
+		if (lineLength == line.length)
+			line = Arrays.copyOf(line, line.length * 2);
+		line[lineLength++] = (byte) character;
+	}
+}
@@ -0,0 +1,801 @@
+/**This class keeps the edits made to a story since its file was last written. Each
+ * addChild, removeChild, setCursorOption and setCursorMessage is appended to a journal
+ * file beside the story as one small checksummed entry, so saving an edit costs a few
+ * bytes instead of rewriting the whole story. Entries are forced to disk in batches,
+ * after BATCH_SIZE edits or SYNC_INTERVAL milliseconds, whichever comes first. A shutdown
+ * hook forces the rest to disk when the JVM exits, including on Ctrl-C, so only a crash
+ * or a killed process can lose edits, and then at most those of the last SYNC_INTERVAL.
+ *
+ * Loading a story replays its journal over the story file, the snapshot. Once the
+ * journal grows past both a quarter of the snapshot and MIN_COMPACT_BYTES, a background
+ * thread compacts it: the story as it was at that moment is shared copy-on-write, or
+ * for a CompactStoryTree its arrays are copied, or for an IndexedStoryTree its edited
+ * Nodes are copied and its file is read again, then written to a new snapshot, and
+ * installed with a journal of only the edits made since.
+ *
+ * The journal's header names the snapshot it belongs to by the snapshot's size,
+ * modification time and file key. A new snapshot's journal is written beside it as
+ * filename.journal.tmp before the snapshot is renamed into place, so a crash at any
+ * point leaves a snapshot with a matching journal. A journal matching neither file
+ * belongs to an older story and is ignored.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+
+public class StoryJournal {
+	static final byte ADD_CHILD = 1; //Entry for addChild, followed by the option and message
+	static final byte REMOVE_CHILD = 2; //Entry for removeChild, followed by the child number
+	static final byte SET_OPTION = 3; //Entry for setCursorOption, followed by the option
+	static final byte SET_MESSAGE = 4; //Entry for setCursorMessage, followed by the message
+
+	private static final byte[] MAGIC = {(byte) 0x89, 'Z', 'J', 'L'}; //Marks a journal file
+	private static final int BATCH_SIZE = 64; //The most edits kept before they are forced to disk
+	private static final long SYNC_INTERVAL = 50; //The longest time in milliseconds an edit waits to be forced to disk
+	private static final long MIN_COMPACT_BYTES = 1 << 20; //The journal is never compacted while smaller than this
+	private static final int BUFFER_SIZE = 1 << 16; //Bytes of entries gathered before they are written
+	private static final int MAX_ENTRY_SIZE = 1 << 30; //Longer entry lengths can only come from a damaged file
+
+	private final Path snapshot; //The story file
+	private final Path journal; //The journal of the story file
+	private final Path pending; //The journal of a snapshot being installed
+	private final StoryTree tree; //The tree whose edits are kept
+	private final ReentrantLock lock; //Guards the file, buffer and counts below between the editor and background threads
+	private final ScheduledExecutorService syncer; //Forces edits to disk when they have waited SYNC_INTERVAL
+	private final ExecutorService compactor; //Writes new snapshots in the background
+	private final Thread shutdownHook; //Forces the edits to disk if the JVM exits while the journal is open
+	private final CRC32 checksum; //Checksums each entry
+	private StoryFormat format; //The format snapshots are written in
+	private FileChannel channel; //The open journal file
+	private ByteBuffer buffer; //Entries not written to the file yet
+	private ByteBuffer entry; //The entry being encoded
+	private long size; //The length of the journal, counting the buffered entries
+	private long snapshotSize; //The length of the snapshot
+	private int unsynced; //The number of entries not forced to disk yet
+	private Future<?> compaction; //The latest background compaction, null if there has been none
+	private volatile IOException failure; //The first failure of a background thread, reported by the next call
+
+	/**Creates a journal over an open file
+	 *
+	 * @param snapshot
+	 * 	The story file
+	 *
+	 * @param tree
+	 * 	The tree whose edits are kept
+	 *
+	 * @param channel
+	 * 	The journal file, positioned at its end
+	 *
+	 * @exception IOException
+	 * 	Indicates the files could not be read
+	 */
+	private StoryJournal(Path snapshot, StoryTree tree, FileChannel channel) throws IOException {
+		this.snapshot = snapshot;
+		journal = journalOf(snapshot);
+		pending = pendingOf(snapshot);
+		this.tree = tree;
+		this.channel = channel;
+		lock = new ReentrantLock();
+		checksum = new CRC32();
+		format = StoryTree.formatOf(snapshot.toString());
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		entry = ByteBuffer.allocate(256);
+		size = channel.position();
+		snapshotSize = Files.size(snapshot);
+		unsynced = 0;
+		ThreadFactory daemons = task -> {
+			Thread thread = new Thread(task, "story-journal " + snapshot.getFileName());
+			thread.setDaemon(true);
+			return thread;
+		};
+		compactor = Executors.newSingleThreadExecutor(daemons);
+		syncer = Executors.newSingleThreadScheduledExecutor(daemons);
+		syncer.scheduleWithFixedDelay(this::syncInBackground, SYNC_INTERVAL, SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+		shutdownHook = new Thread(this::syncOnExit, "story-journal exit " + snapshot.getFileName());
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**Opens the journal of a story file for a tree loaded from it, so the tree's edits are appended to it.
+	 * A journal left by a crash during compaction is installed, one belonging to an older story is
+	 * replaced, and an entry cut short by a crash is dropped
+	 *
+	 * @param filename
+	 * 	The story file
+	 *
+	 * @param tree
+	 * 	The tree read from filename, with its journal replayed
+	 *
+	 * @return
+	 * 	The open journal
+	 *
+	 * @exception IOException
+	 * 	Indicates the story file does not exist or the journal could not be opened
+	 */
+	static StoryJournal open(String filename, StoryTree tree) throws IOException {
+		Path snapshot = Paths.get(filename).toAbsolutePath();
+		Path journal = journalOf(snapshot);
+		Path current = matchingJournal(snapshot);
+		if (current != null && current.equals(pendingOf(snapshot))) {
+			StoryTree.replace(current, journal);
+			current = journal;
+		}
+		Files.deleteIfExists(pendingOf(snapshot));
+
+		FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long end;
+			if (current == null) {
+				channel.truncate(0);
+				ByteBuffer header = header(snapshotId(snapshot));
+				end = header.remaining();
+				while (header.hasRemaining())
+					channel.write(header);
+				channel.force(true);
+			} else {
+				try {
+					end = scan(journal, null);
+				} catch (DataFormatException e) {
+					throw new IOException(e); //Only a handler rejects entries, and there is none
+				}
+				channel.truncate(end);
+			}
+			channel.position(end);
+			return new StoryJournal(snapshot, tree, channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**Applies the journal of a story file to the tree just read from it
+	 *
+	 * @param filename
+	 * 	The story file
+	 *
+	 * @param tree
+	 * 	The tree read from filename
+	 *
+	 * @Postcondition:
+	 * 	tree holds every edit in the journal, and its cursor is at the beginning of the story
+	 *
+	 * @return
+	 * 	The number of edits applied, 0 if the file has no journal
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates an edit in the journal does not fit the story
+	 */
+	static long replay(String filename, StoryTree tree) throws IOException, DataFormatException {
+		Path current = matchingJournal(Paths.get(filename).toAbsolutePath());
+		if (current == null)
+			return 0;
+		long[] count = {0};
+		scan(current, payload -> apply(tree, payload, ++count[0]));
+		tree.resetCursor();
+		return count[0];
+	}
+
+	/**Records an edit which has just been made to the tree
+	 *
+	 * @param op
+	 * 	ADD_CHILD, REMOVE_CHILD, SET_OPTION or SET_MESSAGE
+	 *
+	 * @param position
+	 * 	The position of the cursor when the edit was made, or "root"
+	 *
+	 * @param childNumber
+	 * 	The child removed by REMOVE_CHILD, ignored otherwise
+	 *
+	 * @param first
+	 * 	The option or message set, or the option added, null for REMOVE_CHILD
+	 *
+	 * @param second
+	 * 	The message added, null for the other edits
+	 *
+	 * @Postcondition:
+	 * 	The edit will be on disk within SYNC_INTERVAL milliseconds, and a compaction has been started if the journal is large
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be written or a background thread failed
+	 */
+	void append(byte op, String position, int childNumber, String first, String second) throws IOException {
+		boolean large;
+		lock.lock();
+		try {
+			checkFailure();
+			entry.clear();
+			entry.put(op);
+			int depth = position.equals("root") ? 0 : (position.length() + 1) / 2;
+			ensureEntryRoom(5 + depth + 1);
+			putNumber(depth);
+			for (int x = 0; x < depth; x++)
+				entry.put((byte) (position.charAt(2 * x) - '0'));
+			if (op == REMOVE_CHILD)
+				entry.put((byte) childNumber);
+			if (first != null)
+				putString(first);
+			if (second != null)
+				putString(second);
+			entry.flip();
+			checksum.reset();
+			checksum.update(entry.duplicate());
+
+			int length = entry.remaining() + 8;
+			if (buffer.remaining() < length) {
+				drain();
+				if (buffer.capacity() < length)
+					buffer = ByteBuffer.allocate(length);
+			}
+			buffer.putInt(entry.remaining()).put(entry).putInt((int) checksum.getValue());
+			size += length;
+			if (++unsynced >= BATCH_SIZE)
+				sync();
+			large = size > Math.max(MIN_COMPACT_BYTES, snapshotSize / 4);
+		} finally {
+			lock.unlock();
+		}
+		if (large && (compaction == null || compaction.isDone()))
+			compactInBackground();
+	}
+
+	/**Forces every edit recorded so far to disk
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be written
+	 */
+	public void sync() throws IOException {
+		lock.lock();
+		try {
+			drain();
+			if (unsynced > 0) {
+				channel.force(false);
+				unsynced = 0;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**Writes the tree as it is now to a new snapshot and empties the journal, waiting until it is done
+	 *
+	 * @exception IOException
+	 * 	Indicates the snapshot or journal could not be written
+	 */
+	public void compact() throws IOException {
+		compact(format);
+	}
+
+	/**Writes the tree as it is now to a new snapshot in the indicated format and empties the journal,
+	 * waiting until it is done
+	 *
+	 * @param format
+	 * 	The format of the new snapshot
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates format is null
+	 *
+	 * @exception IOException
+	 * 	Indicates the snapshot or journal could not be written
+	 */
+	public void compact(StoryFormat format) throws IOException {
+		if (format == null)
+			throw new IllegalArgumentException();
+		awaitCompaction();
+		this.format = format;
+		install(tree, mark());
+	}
+
+	/**Returns whether or not this is the journal of a file
+	 *
+	 * @param filename
+	 * 	A story file
+	 *
+	 * @return
+	 * 	True if filename names the snapshot of this journal
+	 */
+	public boolean isJournalOf(String filename) {
+		return Paths.get(filename).toAbsolutePath().equals(snapshot);
+	}
+
+	/**Returns the length of the journal
+	 *
+	 * @return
+	 * 	The number of bytes in the journal, counting the edits not written yet
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**Forces every edit to disk, waits for a running compaction and closes the journal
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be written or a background thread failed
+	 */
+	public void close() throws IOException {
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			//The JVM is exiting, and the hook syncs whatever this doesn't
+		}
+		syncer.shutdown();
+		compactor.shutdown();
+		try {
+			awaitCompaction();
+			syncer.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing the journal");
+		} finally {
+			lock.lock();
+			try {
+				try {
+					sync();
+				} finally {
+					channel.close();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		checkFailure();
+	}
+
+	/**Starts writing a new snapshot of the tree as it is now on the background thread
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be written
+	 */
+	private void compactInBackground() throws IOException {
+		long mark = mark();
+		StoryTree story = tree.snapshot();
+		compaction = compactor.submit(() -> {
+			try {
+				install(story, mark);
+			} catch (IOException e) {
+				if (failure == null)
+					failure = e;
+			}
+		});
+	}
+
+	/**Writes out the buffered entries and returns the length of the journal, which is where
+	 * the edits not yet in a snapshot of the tree as it is now begin
+	 *
+	 * @return
+	 * 	The length of the journal
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be written
+	 */
+	private long mark() throws IOException {
+		lock.lock();
+		try {
+			drain();
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**Writes a story to a new snapshot and installs it with a journal of the edits made after it
+	 *
+	 * @param story
+	 * 	A tree holding the story as it was when the journal had mark bytes, which is not edited while it is written
+	 *
+	 * @param mark
+	 * 	The length of the journal when story was taken
+	 *
+	 * @exception IOException
+	 * 	Indicates the snapshot or journal could not be written
+	 */
+	private void install(StoryTree story, long mark) throws IOException {
+		Path temp = StoryTree.writeTemp(snapshot, story, format);
+		try {
+			ByteBuffer header = header(snapshotId(temp));
+			lock.lock();
+			try {
+				drain();
+				FileChannel next = FileChannel.open(pending, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.READ, StandardOpenOption.WRITE);
+				boolean installed = false;
+				try {
+					while (header.hasRemaining())
+						next.write(header);
+					for (long copied = mark; copied < size; )
+						copied += channel.transferTo(copied, size - copied, next);
+					next.force(true);
+					StoryTree.replace(temp, snapshot);
+					installed = true;
+					StoryTree.replace(pending, journal);
+				} catch (IOException e) {
+					next.close();
+					if (installed)
+						failure = e; //The snapshot no longer matches the open journal, so later edits can't be kept
+					else
+						Files.deleteIfExists(pending);
+					throw e;
+				}
+				channel.close();
+				channel = next;
+				size = next.position();
+				snapshotSize = Files.size(snapshot);
+				unsynced = 0;
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**Waits for the latest background compaction to finish
+	 *
+	 * @exception IOException
+	 * 	Indicates it failed or the wait was interrupted
+	 */
+	private void awaitCompaction() throws IOException {
+		if (compaction != null) {
+			try {
+				compaction.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for compaction");
+			} catch (ExecutionException e) {
+				throw new IOException("Compaction failed", e.getCause());
+			}
+		}
+		checkFailure();
+	}
+
+	/**Forces the edits to disk from the background thread once they have waited SYNC_INTERVAL
+	 */
+	private void syncInBackground() {
+		try {
+			sync();
+		} catch (IOException e) {
+			if (failure == null)
+				failure = e;
+		}
+	}
+
+	/**Forces the edits to disk as the JVM exits. Other threads still run while shutdown hooks do,
+	 * so this waits a little for the lock rather than skipping edits an editor is recording
+	 */
+	private void syncOnExit() {
+		try {
+			if (lock.tryLock(1, TimeUnit.SECONDS)) {
+				try {
+					if (channel.isOpen())
+						sync();
+				} finally {
+					lock.unlock();
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("The last edits to " + snapshot + " could not be saved: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**Throws the first failure of a background thread, if there was one
+	 *
+	 * @exception IOException
+	 * 	The failure
+	 */
+	private void checkFailure() throws IOException {
+		if (failure != null)
+			throw new IOException("The journal of " + snapshot + " could not be written", failure);
+	}
+
+	/**Writes the buffered entries to the file without forcing them to disk
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**Makes room in the entry being encoded
+	 *
+	 * @param bytes
+	 * 	The number of bytes about to be added
+	 */
+	private void ensureEntryRoom(int bytes) {
+		if (entry.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(entry.capacity() * 2, entry.position() + bytes));
+			entry.flip();
+			entry = larger.put(entry);
+		}
+	}
+
+	/**Adds a number to the entry, 7 bits to a byte with the high bit set on all but the last
+	 *
+	 * @param number
+	 * 	The number to add, not negative
+	 */
+	private void putNumber(int number) {
+		ensureEntryRoom(5);
+		while (number >= 0x80) {
+			entry.put((byte) (number | 0x80));
+			number >>>= 7;
+		}
+		entry.put((byte) number);
+	}
+
+	/**Adds a String to the entry as its UTF-8 length and bytes
+	 *
+	 * @param string
+	 * 	The String to add
+	 */
+	private void putString(String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		putNumber(bytes.length);
+		ensureEntryRoom(bytes.length);
+		entry.put(bytes);
+	}
+
+	/**Makes one edit from the journal to a tree
+	 *
+	 * @param tree
+	 * 	The tree to edit
+	 *
+	 * @param payload
+	 * 	The entry
+	 *
+	 * @param number
+	 * 	Which entry of the journal it is, counting from 1
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the edit does not fit the tree
+	 */
+	private static void apply(StoryTree tree, ByteBuffer payload, long number) throws DataFormatException {
+		try {
+			byte op = payload.get();
+			int depth = getNumber(payload);
+			tree.resetCursor();
+			if (depth > 0 && payload.get() != 1)
+				throw new DataFormatException("Edit " + number + " of the journal is not within the story");
+			for (int x = 1; x < depth; x++)
+				tree.selectChild(tree.getCursorPosition() + "-" + payload.get());
+			if (op == ADD_CHILD)
+				tree.addChild(getString(payload), getString(payload));
+			else if (op == REMOVE_CHILD)
+				tree.removeChild(tree.getCursorPosition() + "-" + payload.get());
+			else if (op == SET_OPTION)
+				tree.setCursorOption(getString(payload));
+			else if (op == SET_MESSAGE)
+				tree.setCursorMessage(getString(payload));
+			else
+				throw new DataFormatException("Edit " + number + " of the journal is of an unknown kind");
+		} catch (NodeNotPresentException | TreeFullException | IllegalArgumentException | BufferUnderflowException e) {
+			throw new DataFormatException("Edit " + number + " of the journal does not fit the story");
+		}
+	}
+
+	/**Reads the entries of a journal, stopping at the first one cut short or damaged
+	 *
+	 * @param file
+	 * 	The journal
+	 *
+	 * @param handler
+	 * 	Given each entry in order, or null to only find where they end
+	 *
+	 * @return
+	 * 	The length of the journal up to the end of its last whole entry
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates handler rejected an entry
+	 */
+	private static long scan(Path file, EntryHandler handler) throws IOException, DataFormatException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			String id = readHeader(in);
+			long end = header(id).remaining();
+			CRC32 checksum = new CRC32();
+			while (true) {
+				byte[] payload;
+				try {
+					int length = in.readInt();
+					if (length <= 0 || length > MAX_ENTRY_SIZE)
+						return end;
+					payload = new byte[length];
+					in.readFully(payload);
+					checksum.reset();
+					checksum.update(payload);
+					if (in.readInt() != (int) checksum.getValue())
+						return end;
+				} catch (EOFException e) {
+					return end;
+				}
+				if (handler != null)
+					handler.accept(ByteBuffer.wrap(payload));
+				end += payload.length + 8;
+			}
+		}
+	}
+
+	/**Returns whichever of a story file's journal and pending journal belongs to it
+	 *
+	 * @param snapshot
+	 * 	The story file
+	 *
+	 * @return
+	 * 	The journal whose header names snapshot as it is now, or null if neither does
+	 *
+	 * @exception IOException
+	 * 	Indicates the files could not be read
+	 */
+	private static Path matchingJournal(Path snapshot) throws IOException {
+		String id = snapshotId(snapshot);
+		for (Path candidate : new Path[] {journalOf(snapshot), pendingOf(snapshot)}) {
+			if (!Files.exists(candidate))
+				continue;
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(candidate)))) {
+				if (id.equals(readHeader(in)))
+					return candidate;
+			} catch (EOFException e) {
+				//Cut short before its header was written, so it can't belong to anything
+			}
+		}
+		return null;
+	}
+
+	/**Names a snapshot as it is now by its size, modification time and file key
+	 *
+	 * @param snapshot
+	 * 	The story file
+	 *
+	 * @return
+	 * 	A String which changes whenever the file is replaced or written
+	 *
+	 * @exception IOException
+	 * 	Indicates the file's attributes could not be read
+	 */
+	private static String snapshotId(Path snapshot) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(snapshot, BasicFileAttributes.class);
+		return attributes.size() + " " + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) + " " + attributes.fileKey();
+	}
+
+	/**Encodes the header of a journal
+	 *
+	 * @param id
+	 * 	The name of the snapshot the journal belongs to
+	 *
+	 * @return
+	 * 	A buffer holding the magic bytes, the length of id and id, ready to be written
+	 */
+	private static ByteBuffer header(String id) {
+		byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 4 + bytes.length);
+		header.put(MAGIC).putInt(bytes.length).put(bytes);
+		return header.flip();
+	}
+
+	/**Reads the header of a journal
+	 *
+	 * @param in
+	 * 	The journal, at its beginning
+	 *
+	 * @return
+	 * 	The name of the snapshot the journal belongs to, or null if it is not a journal
+	 *
+	 * @exception IOException
+	 * 	Indicates the journal could not be read or ends within its header
+	 */
+	private static String readHeader(DataInputStream in) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		int length = in.readInt();
+		if (!Arrays.equals(magic, MAGIC) || length < 0 || length > BUFFER_SIZE)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**Reads a number written by putNumber
+	 *
+	 * @param payload
+	 * 	The entry holding the number
+	 *
+	 * @return
+	 * 	The number
+	 */
+	private static int getNumber(ByteBuffer payload) {
+		int number = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte next = payload.get();
+			number |= (next & 0x7F) << shift;
+			if (next >= 0)
+				return number;
+		}
+	}
+
+	/**Reads a String written by putString
+	 *
+	 * @param payload
+	 * 	The entry holding the String
+	 *
+	 * @return
+	 * 	The String
+	 */
+	private static String getString(ByteBuffer payload) {
+		int length = getNumber(payload);
+		if (length > payload.remaining())
+			throw new BufferUnderflowException();
+		String string = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+		payload.position(payload.position() + length);
+		return string;
+	}
+
+	/**Returns the journal of a story file
+	 *
+	 * @param snapshot
+	 * 	The story file
+	 *
+	 * @return
+	 * 	The file named like snapshot with .journal added
+	 */
+	private static Path journalOf(Path snapshot) {
+		return snapshot.resolveSibling(snapshot.getFileName() + ".journal");
+	}
+
+	/**Returns the journal written for a snapshot which is being installed
+	 *
+	 * @param snapshot
+	 * 	The story file
+	 *
+	 * @return
+	 * 	The file named like snapshot with .journal.tmp added
+	 */
+	private static Path pendingOf(Path snapshot) {
+		return snapshot.resolveSibling(snapshot.getFileName() + ".journal.tmp");
+	}
+
+	/**Receives the entries of a journal as it is read
+	 */
+	private interface EntryHandler {
+		/**Handles one entry
+		 *
+		 * @param payload
+		 * 	The entry, without its length and checksum
+		 *
+		 * @exception DataFormatException
+		 * 	Indicates the entry could not be used
+		 */
+		void accept(ByteBuffer payload) throws DataFormatException;
+	}
+}
@@ -0,0 +1,64 @@
+/**This class compares how long it takes to load a large story in each StoryLoadMode.
+ * It writes a synthetic balanced story with the requested number of nodes using a
+ * StoryGenerator, loads it several times in each mode and prints the average load time,
+ * retained heap and the text shared by deduplication. LAZY mode opens an indexed copy
+ * of the story instead.
+ *
+ * Usage: java -Xmx8g StoryLoadBenchmark [nodes] [runs]
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+
+public class StoryLoadBenchmark {
+	private static final int DEFAULT_NODES = 10_000_000; //The size of the synthetic story when none is given
+	private static final int DEFAULT_RUNS = 3; //The number of timed loads in each mode
+	private static final int MAX_DEPTH = 64; //The depth the synthetic story is cut off at, deeper than a balanced story goes
+
+	public static void main(String[] args) throws IOException, DataFormatException {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NODES;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+
+		File story = File.createTempFile("synthetic-story", ".txt");
+		story.deleteOnExit();
+		System.out.println("Writing a synthetic story with " + nodes + " nodes...");
+		new StoryGenerator(StoryShape.BALANCED, MAX_DEPTH, 1).write(story, nodes);
+		File indexed = File.createTempFile("synthetic-story", ".idx");
+		indexed.deleteOnExit();
+		StoryTree.saveTree(indexed.getPath(), StoryTree.readTree(story.getPath()), StoryFormat.INDEXED);
+		System.out.println("Story file is " + (story.length() >> 20) + " MB, " + (indexed.length() >> 20) + " MB indexed\n");
+
+		for (StoryLoadMode mode : StoryLoadMode.values()) {
+			String filename = mode == StoryLoadMode.LAZY ? indexed.getPath() : story.getPath();
+			StoryTree.readTree(filename, mode); //Warm up
+			long totalTime = 0;
+			long retained = 0;
+			long deduplicated = 0;
+			for (int x = 0; x < runs; x++) {
+				long usedBefore = usedHeap();
+				long start = System.nanoTime();
+				StoryTree tree = StoryTree.readTree(filename, mode);
+				totalTime += System.nanoTime() - start;
+				retained = usedHeap() - usedBefore;
+				deduplicated = tree.getBytesDeduplicated();
+				if (!tree.hasStory())
+					throw new IllegalStateException();
+			}
+			System.out.println(String.format("%-8s %8.1f ms per load, %6d MB retained, %6d MB deduplicated",
+					mode, totalTime / 1e6 / runs, retained >> 20, deduplicated >> 20));
+		}
+	}
+
+	/**Returns the heap in use after a garbage collection
+	 *
+	 * @return
+	 * 	The number of bytes of heap in use
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,16 @@
+/**This enum represents the ways a story file can be loaded into a StoryTree
+ * 
+ * HEAP decodes every option and message into a String as the file is read.
+ * MAPPED memory-maps the file and only decodes text when it is read.
+ * OFF_HEAP copies the file into direct buffers and only decodes text when it is read,
+ * 	so the text is neither on the heap nor tied to the file staying unchanged.
+ * COMPACT loads the story into a CompactStoryTree, which keeps its Nodes in parallel arrays.
+ * LAZY opens an indexed story as an IndexedStoryTree, which only reads a Node when the cursor reaches it
+ * 	or one of its children. Other story files are loaded onto the heap.
+ * 
+ * @author Pooja Ginjupalli
+ */
+
+public enum StoryLoadMode {
+	HEAP, MAPPED, OFF_HEAP, COMPACT, LAZY;
+}
@@ -0,0 +1,115 @@
+/**This interface is a read-only view of a Node of a story. A SharedStory hands out its
+ * Nodes through it, so the sessions and simulations reading a published story see what
+ * a Node holds but have no way to change it or its children.
+ *
+ * @author Pooja Ginjupalli
+ */
+
+public interface StoryNode {
+
+	/**Returns what is displayed when picking this Node
+	 *
+	 * @return
+	 * 	What will be shown to players when choosing options
+	 */
+	String getOption();
+
+	/**Returns what is to be displayed when this Node is selected
+	 *
+	 * @return
+	 * 	The message to be displayed to progress the game
+	 */
+	String getMessage();
+
+	/**Returns the left-most child of the Node
+	 *
+	 * @return
+	 * 	Child 1 of this Node, or null if it has no children
+	 */
+	StoryNode getLeftChild();
+
+	/**Returns the middle child of the Node
+	 *
+	 * @return
+	 * 	Child 2 of this Node, or null if it has 1 or less children
+	 */
+	StoryNode getMiddleChild();
+
+	/**Returns the right-most child of the Node
+	 *
+	 * @return
+	 * 	Child 3 of this Node, or null if it has 2 or less children
+	 */
+	StoryNode getRightChild();
+
+	/**Returns the number of children the Node has
+	 *
+	 * @return
+	 * 	0 to 3
+	 */
+	int getNumChildren();
+
+	/**Determines if the Node has any children
+	 *
+	 * @return
+	 * 	True if there are no children of this Node, false otherwise
+	 */
+	boolean isLeaf();
+
+	/**Determines if getting to this Node wins the game
+	 *
+	 * @return
+	 * 	True if the Node is a leaf and its message contains "YOU WIN", false otherwise
+	 */
+	boolean isWinningNode();
+
+	/**Determines if getting to this Node loses the game
+	 *
+	 * @return
+	 * 	True if the Node is a leaf and its message does not contain "YOU WIN", false otherwise
+	 */
+	boolean isLosingNode();
+
+	/**Determines if the Node is a leaf whose message neither wins nor loses the game
+	 *
+	 * @return
+	 * 	True if the Node is a leaf and its message contains neither "YOU WIN" nor "YOU LOSE", false otherwise
+	 */
+	boolean isDeadEnd();
+
+	/**Returns the number of leaves in the subtree of this Node
+	 *
+	 * @return
+	 * 	1 if this Node is a leaf, otherwise the sum of the leaf counts of its children
+	 */
+	int getLeafCount();
+
+	/**Returns the number of winning leaves in the subtree of this Node
+	 *
+	 * @return
+	 * 	1 or 0 if this Node is a leaf, otherwise the sum of the winning leaf counts of its children
+	 */
+	int getWinningLeafCount();
+
+	/**Returns the chance of winning from this Node for a player who always makes the best choice
+	 *
+	 * @return
+	 * 	1 or 0 if this Node is a leaf, otherwise the greatest best chance of its children
+	 */
+	double getBestWinChance();
+
+	/**Returns the chance of winning from this Node for a player who chooses each option with the same chance
+	 *
+	 * @return
+	 * 	1 or 0 if this Node is a leaf, otherwise the mean random chance of its children
+	 */
+	double getRandomWinChance();
+
+	/**Returns which choice a player who plays as well as possible makes at this Node
+	 *
+	 * @return
+	 * 	The number of the child with the greatest best chance of winning, the first one if
+	 * 	several tie, or 0 if this Node is a leaf
+	 */
+	int getBestChildNumber();
+}
@@ -0,0 +1,328 @@
+/**This class caches the Nodes a disk-backed StoryTree has read, keyed by the offset of
+ * their records. It holds at most a set number of Nodes and evicts with the CLOCK
+ * algorithm: each Node has a referenced bit set whenever it is found, and a hand sweeps
+ * the slots, clearing set bits and evicting the first Node whose bit is already clear.
+ * That keeps the Nodes used recently, like an LRU list, without moving anything on a hit.
+ *
+ * A Node can be pinned, for as long as the cursor is on it or below it, and is never
+ * evicted while pinned. If every Node is pinned the cache holds more than its capacity
+ * until the extra Nodes are unpinned. Hits and misses are counted so the cache can be sized.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.util.Arrays;
+
+public class StoryNodeCache<V> {
+	private static final int EMPTY = 0; //Marks an empty entry of the index, which holds slot numbers plus 1
+
+	private final int capacity; //The most unpinned Nodes kept
+	private long[] keys; //keys[s] is the key of the Node in slot s
+	private Object[] values; //values[s] is the Node in slot s
+	private boolean[] referenced; //referenced[s] is whether the Node in slot s was found since the hand last passed it
+	private int[] pins; //pins[s] is the number of times the Node in slot s is pinned
+	private int[] index; //Open-addressing table from a key to its slot plus 1, twice as large as the slots
+	private int size; //The number of slots in use, which are always slots 0 to size - 1
+	private int hand; //The slot the clock hand looks at next
+	private long hits; //The number of lookups that found their Node
+	private long misses; //The number of lookups that didn't
+
+	/**Creates an empty cache
+	 *
+	 * @param capacity
+	 * 	The most Nodes kept when none are pinned
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates capacity is not positive
+	 */
+	public StoryNodeCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException();
+		this.capacity = capacity;
+		int slots = Math.min(capacity, 1 << 10);
+		keys = new long[slots];
+		values = new Object[slots];
+		referenced = new boolean[slots];
+		pins = new int[slots];
+		index = new int[tableSize(slots)];
+		size = 0;
+		hand = 0;
+	}
+
+	/**Looks up a Node, counting a hit or a miss
+	 *
+	 * @param key
+	 * 	The key of the Node
+	 *
+	 * @return
+	 * 	The Node, or null if it isn't cached
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int slot = find(key);
+		if (slot < 0) {
+			misses++;
+			return null;
+		}
+		hits++;
+		referenced[slot] = true;
+		return (V) values[slot];
+	}
+
+	/**Looks up a Node without counting it or marking it as used
+	 *
+	 * @param key
+	 * 	The key of the Node
+	 *
+	 * @return
+	 * 	The Node, or null if it isn't cached
+	 */
+	@SuppressWarnings("unchecked")
+	public V peek(long key) {
+		int slot = find(key);
+		return slot < 0 ? null : (V) values[slot];
+	}
+
+	/**Adds a Node which isn't cached, evicting unpinned Nodes until there is room for it if the cache is full
+	 *
+	 * @param key
+	 * 	The key of the Node
+	 *
+	 * @param value
+	 * 	The Node
+	 *
+	 * @Precondition:
+	 * 	key isn't cached and value is not null
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates value is null
+	 */
+	public void put(long key, V value) {
+		if (value == null)
+			throw new IllegalArgumentException();
+		while (size >= capacity) {
+			int victim = victim();
+			if (victim < 0)
+				break;
+			remove(victim);
+		}
+		if (size == keys.length)
+			grow();
+		int slot = size++;
+		keys[slot] = key;
+		values[slot] = value;
+		referenced[slot] = true;
+		pins[slot] = 0;
+		insert(key, slot);
+	}
+
+	/**Pins a cached Node so it isn't evicted
+	 *
+	 * @param key
+	 * 	The key of the Node
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the Node isn't cached
+	 */
+	public void pin(long key) {
+		int slot = find(key);
+		if (slot < 0)
+			throw new IllegalStateException("Node " + key + " is not cached");
+		pins[slot]++;
+	}
+
+	/**Undoes one pin of a Node. If the cache holds more than its capacity the Node is evicted
+	 * as soon as it isn't pinned at all
+	 *
+	 * @param key
+	 * 	The key of the Node
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the Node isn't cached or isn't pinned
+	 */
+	public void unpin(long key) {
+		int slot = find(key);
+		if (slot < 0 || pins[slot] == 0)
+			throw new IllegalStateException("Node " + key + " is not pinned");
+		if (--pins[slot] == 0 && size > capacity)
+			remove(slot);
+	}
+
+	/**Returns the number of Nodes cached
+	 *
+	 * @return
+	 * 	The resident Nodes, pinned or not
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**Returns the most unpinned Nodes kept
+	 *
+	 * @return
+	 * 	The capacity of the cache
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**Returns the number of lookups that found their Node
+	 *
+	 * @return
+	 * 	The hits counted by get
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**Returns the number of lookups that didn't find their Node
+	 *
+	 * @return
+	 * 	The misses counted by get
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**Returns the hits, misses and resident Nodes as a one line report
+	 *
+	 * @return
+	 * 	The report
+	 */
+	public String toString() {
+		long lookups = Math.max(1, hits + misses);
+		return String.format("%d of %d Nodes resident, %d hits, %d misses, %.1f%% hit rate",
+				size, capacity, hits, misses, 100.0 * hits / lookups);
+	}
+
+	/**Sweeps the clock hand to the next Node that may be evicted
+	 *
+	 * @return
+	 * 	The slot of an unpinned Node not found since the hand last passed it, or -1 if every Node is pinned
+	 */
+	private int victim() {
+		for (int scanned = 0; scanned < 2 * size; scanned++) {
+			int slot = hand;
+			hand = hand + 1 == size ? 0 : hand + 1;
+			if (pins[slot] > 0)
+				continue;
+			if (referenced[slot]) {
+				referenced[slot] = false;
+				continue;
+			}
+			return slot;
+		}
+		return -1;
+	}
+
+	/**Evicts the Node in a slot and moves the Node in the last slot into it, so the slots in use stay together
+	 *
+	 * @param slot
+	 * 	The slot to empty
+	 */
+	private void remove(int slot) {
+		unindex(keys[slot]);
+		int last = --size;
+		if (slot != last) {
+			unindex(keys[last]);
+			keys[slot] = keys[last];
+			values[slot] = values[last];
+			referenced[slot] = referenced[last];
+			pins[slot] = pins[last];
+			insert(keys[slot], slot);
+		}
+		values[last] = null;
+		if (hand >= size)
+			hand = 0;
+	}
+
+	/**Returns the slot of a key
+	 *
+	 * @param key
+	 * 	The key to find
+	 *
+	 * @return
+	 * 	The slot of the Node with that key, or -1 if it isn't cached
+	 */
+	private int find(long key) {
+		int mask = index.length - 1;
+		for (int entry = hash(key) & mask; index[entry] != EMPTY; entry = (entry + 1) & mask) {
+			if (keys[index[entry] - 1] == key)
+				return index[entry] - 1;
+		}
+		return -1;
+	}
+
+	/**Adds a key to the index
+	 *
+	 * @param key
+	 * 	The key, which isn't in the index
+	 *
+	 * @param slot
+	 * 	The slot of its Node
+	 */
+	private void insert(long key, int slot) {
+		int mask = index.length - 1;
+		int entry = hash(key) & mask;
+		while (index[entry] != EMPTY)
+			entry = (entry + 1) & mask;
+		index[entry] = slot + 1;
+	}
+
+	/**Removes a key from the index, shifting back the entries after it so every key can still be found
+	 *
+	 * @param key
+	 * 	A key in the index, whose slot still holds it
+	 */
+	private void unindex(long key) {
+		int mask = index.length - 1;
+		int hole = hash(key) & mask;
+		while (keys[index[hole] - 1] != key)
+			hole = (hole + 1) & mask;
+		index[hole] = EMPTY;
+		for (int entry = (hole + 1) & mask; index[entry] != EMPTY; entry = (entry + 1) & mask) {
+			int home = hash(keys[index[entry] - 1]) & mask;
+			if (((entry - home) & mask) >= ((entry - hole) & mask)) {
+				index[hole] = index[entry];
+				index[entry] = EMPTY;
+				hole = entry;
+			}
+		}
+	}
+
+	/**Doubles the number of slots and rebuilds the index
+	 */
+	private void grow() {
+		int slots = keys.length * 2;
+		keys = Arrays.copyOf(keys, slots);
+		values = Arrays.copyOf(values, slots);
+		referenced = Arrays.copyOf(referenced, slots);
+		pins = Arrays.copyOf(pins, slots);
+		index = new int[tableSize(slots)];
+		for (int slot = 0; slot < size; slot++)
+			insert(keys[slot], slot);
+	}
+
+	/**Returns the size of an index for a number of slots
+	 *
+	 * @param slots
+	 * 	The number of slots
+	 *
+	 * @return
+	 * 	The smallest power of 2 at least twice slots
+	 */
+	private static int tableSize(int slots) {
+		return Integer.highestOneBit(Math.max(slots, 1) * 2 - 1) << 1;
+	}
+
+	/**Hashes a key
+	 *
+	 * @param key
+	 * 	The offset of a record
+	 *
+	 * @return
+	 * 	The hash, with the bits of the key spread into the low bits used by the index
+	 */
+	private static int hash(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+}
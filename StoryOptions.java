@@ -0,0 +1,54 @@
+/**This class holds the options of the children of a cursor. Unlike the array returned by
+ * getOptions(), one StoryOptions can be filled again at every step of a game, so reading
+ * the options of a Node allocates nothing when its text is already held as Strings.
+ * Child numbers start at 1, as they do in positions.
+ *
+ * @author Pooja Ginjupalli
+ */
+
+public class StoryOptions {
+	private final String[] options = new String[3]; //options[c - 1] is the option of child c
+	private int size; //The number of children whose options are held
+
+	/**Returns the number of options held
+	 *
+	 * @return
+	 * 	0 to 3, the number of children of the cursor when this was filled
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**Returns the option of a child
+	 *
+	 * @param childNumber
+	 * 	1 to size()
+	 *
+	 * @return
+	 * 	The option of that child
+	 *
+	 * @exception IndexOutOfBoundsException
+	 * 	Indicates childNumber is not between 1 and size()
+	 */
+	public String get(int childNumber) {
+		if (childNumber < 1 || childNumber > size)
+			throw new IndexOutOfBoundsException("No option " + childNumber + " of " + size);
+		return options[childNumber - 1];
+	}
+
+	/**Empties the options so they can be filled again
+	 */
+	void clear() {
+		while (size > 0)
+			options[--size] = null;
+	}
+
+	/**Adds the option of the next child
+	 *
+	 * @param option
+	 * 	The option
+	 */
+	void add(String option) {
+		options[size++] = option;
+	}
+}
@@ -0,0 +1,124 @@
+/**This interface represents how a simulated player chooses among the children of a Node.
+ * Rather than picking a child itself, a policy weighs each child, and the player takes
+ * a child with a chance in proportion to its weight. That lets a StorySimulator sample
+ * choices with its own random numbers, or follow every choice at once with its chance.
+ *
+ * A policy is shared by the workers of a simulation, so it must be safe to call from
+ * several threads at once; the policies below hold no mutable state.
+ *
+ * @author Pooja Ginjupalli
+ */
+
+public interface StoryPolicy {
+
+	/**Weighs the children of a Node
+	 *
+	 * @param node
+	 * 	The Node a choice is made at
+	 *
+	 * @param weights
+	 * 	Filled so that weights[c - 1] is the weight of child c, for each child of node
+	 *
+	 * @Precondition:
+	 * 	node is not a leaf and weights holds at least 3 elements
+	 *
+	 * @Postcondition:
+	 * 	The weights of the children are not negative and at least one is positive
+	 */
+	void weigh(StoryNode node, double[] weights);
+
+	/**Returns a policy which chooses every child with the same chance
+	 *
+	 * @return
+	 * 	The uniform policy
+	 */
+	static StoryPolicy uniform() {
+		return (node, weights) -> {
+			for (int x = 0; x < node.getNumChildren(); x++)
+				weights[x] = 1;
+		};
+	}
+
+	/**Returns a policy which favors options by their place in the list, as players
+	 * who tend to pick the first option do
+	 *
+	 * @param first
+	 * 	The weight of child 1
+	 *
+	 * @param second
+	 * 	The weight of child 2
+	 *
+	 * @param third
+	 * 	The weight of child 3
+	 *
+	 * @return
+	 * 	A policy which chooses among the children of a Node in proportion to these weights,
+	 * 	or uniformly if the children it has all weigh 0
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates a weight is negative or not a number
+	 */
+	static StoryPolicy weighted(double first, double second, double third) {
+		if (!(first >= 0) || !(second >= 0) || !(third >= 0))
+			throw new IllegalArgumentException("Weights must not be negative");
+		double[] byChild = {first, second, third};
+		return (node, weights) -> {
+			int children = node.getNumChildren();
+			double total = 0;
+			for (int x = 0; x < children; x++)
+				total += byChild[x];
+			for (int x = 0; x < children; x++)
+				weights[x] = total > 0 ? byChild[x] : 1;
+		};
+	}
+
+	/**Returns a policy which always takes the child with the greatest fraction of winning
+	 * leaves, the same chance the "C" hint shows, choosing at random among ties
+	 *
+	 * @return
+	 * 	The greedy policy
+	 */
+	static StoryPolicy greedy() {
+		return (node, weights) -> {
+			int children = node.getNumChildren();
+			double best = -1;
+			for (int x = 0; x < children; x++) {
+				StoryNode child = x == 0 ? node.getLeftChild() : x == 1 ? node.getMiddleChild() : node.getRightChild();
+				double chance = (double) child.getWinningLeafCount() / child.getLeafCount();
+				weights[x] = chance;
+				best = Math.max(best, chance);
+			}
+			for (int x = 0; x < children; x++)
+				weights[x] = weights[x] == best ? 1 : 0;
+		};
+	}
+
+	/**Returns the policy with a name
+	 *
+	 * @param name
+	 * 	"uniform", "greedy", or "weighted:" followed by the weights of children 1, 2 and 3 separated by colons
+	 *
+	 * @return
+	 * 	The policy named
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates name is not one of these
+	 */
+	static StoryPolicy forName(String name) {
+		if (name == null)
+			throw new IllegalArgumentException();
+		if (name.equalsIgnoreCase("uniform"))
+			return uniform();
+		if (name.equalsIgnoreCase("greedy"))
+			return greedy();
+		String[] parts = name.split(":");
+		if (parts.length == 4 && parts[0].equalsIgnoreCase("weighted")) {
+			try {
+				return weighted(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid weights: " + name);
+			}
+		}
+		throw new IllegalArgumentException("Unknown policy: " + name);
+	}
+}
@@ -0,0 +1,192 @@
+/**This class checks that the nodes of a story arrive in preorder, the order saveTree
+ * writes them in. It only keeps the child number and the number of children of each
+ * level on the path to the last node placed, so it works for any kind of tree being built.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+public class StoryPositionChecker {
+	private static final int INITIAL_DEPTH = 64; //Starting capacity of the stacks
+
+	private int[] slots; //slots[d] is the child number of the last node placed at depth d
+	private int[] childCounts; //childCounts[d] is the number of children placed under the last node at depth d
+	private int[] segments; //The child numbers parsed from the position of the current line
+	private int depth; //The depth of the last node placed, 0 before the first one
+
+	/**Creates a checker for an empty story
+	 */
+	public StoryPositionChecker() {
+		slots = new int[INITIAL_DEPTH];
+		childCounts = new int[INITIAL_DEPTH];
+		segments = new int[INITIAL_DEPTH];
+		depth = 0;
+	}
+
+	/**Checks the position read from a line of a story file and places its node
+	 *
+	 * @param line
+	 * 	The bytes holding the line
+	 *
+	 * @param positionStart
+	 * 	The index of the first byte of the position written on the line, such as 1-2-3
+	 *
+	 * @param positionEnd
+	 * 	The index just past the last byte of the position
+	 *
+	 * @param lineNumber
+	 * 	The line of the file the node was read from, used in error messages
+	 *
+	 * @return
+	 * 	The depth of the node, where the beginning of the story has a depth of 1
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the position is malformed or does not follow the previous line in preorder
+	 */
+	public int place(ByteBuffer line, int positionStart, int positionEnd, long lineNumber) throws DataFormatException {
+		int length = parsePosition(line, positionStart, positionEnd, lineNumber);
+		if (length > depth + 1)
+			throw new DataFormatException("Line " + lineNumber + ": position " + positionText(line, positionStart, positionEnd) + " skips a level");
+		for (int x = 1; x < length; x++) {
+			if (segments[x - 1] != slots[x])
+				throw new DataFormatException("Line " + lineNumber + ": position " + positionText(line, positionStart, positionEnd)
+						+ " does not follow the previous line in preorder");
+		}
+
+		int siblings = childCounts[length - 1];
+		if (length == 1 && siblings != 0)
+			throw new DataFormatException("Line " + lineNumber + ": the story can only have one beginning");
+		if (segments[length - 1] != siblings + 1)
+			throw new DataFormatException("Line " + lineNumber + ": expected child " + (siblings + 1)
+					+ " but found " + positionText(line, positionStart, positionEnd));
+		return push(length);
+	}
+
+	/**Places a node as the next child of the last node placed at the level above it
+	 *
+	 * @param level
+	 * 	The depth of the new node, where the beginning of the story has a depth of 1
+	 *
+	 * @return
+	 * 	level
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates level skips a level or the parent already has 3 children
+	 */
+	public int place(int level) throws DataFormatException {
+		if (level < 1 || level > depth + 1)
+			throw new DataFormatException("Node at depth " + level + " does not follow a node at depth " + depth);
+		if (childCounts[level - 1] == (level == 1 ? 1 : 3))
+			throw new DataFormatException("Node at depth " + level + " has too many siblings");
+		return push(level);
+	}
+
+	/**Returns the child number of the last node placed at a depth
+	 *
+	 * @param level
+	 * 	A depth on the path to the last node placed
+	 *
+	 * @return
+	 * 	1, 2 or 3
+	 */
+	public int getChildNumber(int level) {
+		return slots[level];
+	}
+
+	/**Returns whether or not any node has been placed
+	 *
+	 * @return
+	 * 	True once the beginning of the story has been placed
+	 */
+	public boolean hasStory() {
+		return childCounts[0] != 0;
+	}
+
+	/**Records a node as the next child at the indicated depth
+	 *
+	 * @param level
+	 * 	The depth of the node
+	 *
+	 * @return
+	 * 	level
+	 */
+	private int push(int level) {
+		ensureDepth(level + 1);
+		slots[level] = ++childCounts[level - 1];
+		childCounts[level] = 0;
+		depth = level;
+		return level;
+	}
+
+	/**Splits a position such as 1-2-3 into its child numbers
+	 *
+	 * @param line
+	 * 	The bytes holding the position
+	 *
+	 * @param start
+	 * 	The index of the first byte of the position
+	 *
+	 * @param end
+	 * 	The index just past the last byte of the position
+	 *
+	 * @param lineNumber
+	 * 	The line the position was read from
+	 *
+	 * @return
+	 * 	The number of child numbers in the position, which are stored in segments
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates position is not a '-' separated list of the numbers 1, 2 and 3
+	 */
+	private int parsePosition(ByteBuffer line, int start, int end, long lineNumber) throws DataFormatException {
+		if (end <= start || (end - start) % 2 == 0)
+			throw new DataFormatException("Line " + lineNumber + ": invalid position \"" + positionText(line, start, end) + "\"");
+
+		int length = (end - start + 1) / 2;
+		ensureDepth(length + 1);
+		for (int x = 0; x < length; x++) {
+			byte digit = line.get(start + 2 * x);
+			if (digit < '1' || digit > '3' || (x > 0 && line.get(start + 2 * x - 1) != '-'))
+				throw new DataFormatException("Line " + lineNumber + ": invalid position \"" + positionText(line, start, end) + "\"");
+			segments[x] = digit - '0';
+		}
+		return length;
+	}
+
+	/**Decodes a position for an error message
+	 *
+	 * @param line
+	 * 	The bytes holding the position
+	 *
+	 * @param start
+	 * 	The index of the first byte of the position
+	 *
+	 * @param end
+	 * 	The index just past the last byte of the position
+	 *
+	 * @return
+	 * 	The position as a String
+	 */
+	private static String positionText(ByteBuffer line, int start, int end) {
+		byte[] text = new byte[end - start];
+		line.get(start, text, 0, text.length);
+		return new String(text, StandardCharsets.UTF_8);
+	}
+
+	/**Grows the stacks so they can hold the indicated number of levels
+	 *
+	 * @param levels
+	 * 	The number of levels needed
+	 */
+	private void ensureDepth(int levels) {
+		if (levels <= slots.length)
+			return;
+		int capacity = Math.max(levels, slots.length * 2);
+		slots = Arrays.copyOf(slots, capacity);
+		childCounts = Arrays.copyOf(childCounts, capacity);
+		segments = Arrays.copyOf(segments, capacity);
+	}
+}
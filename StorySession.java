@@ -0,0 +1,329 @@
+/**This class is one player's place in a SharedStory. It has its own cursor and GameState
+ * and only reads the Nodes of the story, so sessions on different threads need no locks.
+ * A session itself is meant to be used by one thread at a time.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.util.Arrays;
+
+public class StorySession implements StoryCursor {
+	private final SharedStory story; //The story being played
+	private StoryNode[] path; //path[d] is the Node at depth d on the way to the cursor, path[1] is the beginning
+	private int[] slots; //slots[d] is which child of path[d - 1] path[d] is
+	private int cursorDepth; //The depth of the cursor, 0 if the story is empty
+
+	/**Creates a session at the beginning of a story
+	 *
+	 * @param story
+	 * 	The story to play
+	 *
+	 * @Precondition:
+	 * 	story is not null
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates story is null
+	 */
+	public StorySession(SharedStory story) {
+		if (story == null)
+			throw new IllegalArgumentException();
+		this.story = story;
+		path = new StoryNode[16];
+		slots = new int[16];
+		resetCursor();
+	}
+
+	/**Returns the story this session plays
+	 *
+	 * @return
+	 * 	The shared story
+	 */
+	public SharedStory getStory() {
+		return story;
+	}
+
+	/**Returns whether or not there is a story to play
+	 *
+	 * @return
+	 * 	True if the beginning of the story exists, false if the story is empty
+	 */
+	public boolean hasStory() {
+		return story.getStoryRoot() != null;
+	}
+
+	/**Returns the state of this player's game
+	 *
+	 * @return
+	 * 	GAME_OVER_WIN or GAME_OVER_LOSE once the cursor is at a winning or losing leaf, GAME_NOT_OVER before then
+	 */
+	public GameState getGameState() {
+		if (cursorDepth == 0 || !path[cursorDepth].isLeaf())
+			return GameState.GAME_NOT_OVER;
+		return path[cursorDepth].isWinningNode() ? GameState.GAME_OVER_WIN : GameState.GAME_OVER_LOSE;
+	}
+
+	/**Returns the position of the cursor within the story
+	 *
+	 * @return
+	 * 	The position of the cursor, such as 1-2-3, or "root" if the story is empty
+	 */
+	public String getCursorPosition() {
+		if (cursorDepth == 0)
+			return "root";
+		StringBuilder position = new StringBuilder(2 * cursorDepth - 1);
+		for (int level = 1; level <= cursorDepth; level++) {
+			if (level > 1)
+				position.append('-');
+			position.append(slots[level]);
+		}
+		return position.toString();
+	}
+
+	/**Returns the option of the cursor
+	 *
+	 * @return
+	 * 	The option String of the cursor node
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the story is empty
+	 */
+	public String getCursorOption() {
+		return cursor().getOption();
+	}
+
+	/**Returns the message of the cursor
+	 *
+	 * @return
+	 * 	The message of the cursor which would be shown if it's chosen
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the story is empty
+	 */
+	public String getCursorMessage() {
+		return cursor().getMessage();
+	}
+
+	/**Returns an array of String pairs for each child of the cursor
+	 *
+	 * @return
+	 * 	A 2D String array with the positions and options of each child of the cursor
+	 */
+	public String[][] getOptions() {
+		if (cursorDepth == 0)
+			return new String[0][2];
+		StoryNode cursor = path[cursorDepth];
+		String[][] options = new String[cursor.getNumChildren()][2];
+		String position = getCursorPosition() + "-";
+		for (int x = 0; x < options.length; x++) {
+			options[x][0] = position + (x + 1);
+			options[x][1] = child(cursor, x + 1).getOption();
+		}
+		return options;
+	}
+
+	/**Fills a StoryOptions with the option of each child of the cursor, so the same one can be reused every step
+	 *
+	 * @param options
+	 * 	The options to fill
+	 *
+	 * @return
+	 * 	options, holding the option of each child of the cursor in order, none if the story is empty
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates options is null
+	 */
+	public StoryOptions getOptions(StoryOptions options) {
+		if (options == null)
+			throw new IllegalArgumentException();
+		options.clear();
+		if (cursorDepth == 0)
+			return options;
+		StoryNode cursor = path[cursorDepth];
+		for (int child = 1; child <= cursor.getNumChildren(); child++)
+			options.add(child(cursor, child).getOption());
+		return options;
+	}
+
+	/**Returns whether or not cursor is referencing a leaf node
+	 *
+	 * @return
+	 * 	True if cursor references a leaf node or the story is empty, false otherwise
+	 */
+	public boolean cursorIsLeaf() {
+		return cursorDepth == 0 || path[cursorDepth].isLeaf();
+	}
+
+	/**Moves the cursor to one of its children
+	 *
+	 * @param position
+	 * 	The position of the Node to become the cursor
+	 *
+	 * @Precondition:
+	 * 	position is not null or empty/white space
+	 * 	The child with the indicated position is a direct child of the cursor
+	 *
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates position is empty or null
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the Node is not a valid child of the cursor
+	 */
+	public void selectChild(String position) throws NodeNotPresentException {
+		if (position == null || position.isBlank())
+			throw new IllegalArgumentException();
+		int childNumber = childNumberOf(position);
+		if (childNumber == 0)
+			throw new NodeNotPresentException();
+		selectChild(childNumber);
+	}
+
+	/**Moves the cursor to one of its children by number, without building or parsing a position
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3, no more than the number of children of the cursor
+	 *
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the cursor has no such child
+	 */
+	public void selectChild(int childNumber) throws NodeNotPresentException {
+		if (cursorDepth == 0 || childNumber < 1 || childNumber > path[cursorDepth].getNumChildren())
+			throw new NodeNotPresentException();
+		moveCursorTo(child(path[cursorDepth], childNumber), childNumber);
+	}
+
+	/**Moves the cursor to its parent. If the cursor is at the beginning of the story, no change in made
+	 *
+	 * @Postcondition:
+	 * 	cursor now references its parent
+	 */
+	public void returnToParent() {
+		if (cursorDepth > 1)
+			path[cursorDepth--] = null;
+	}
+
+	/**Moves the cursor back to the beginning of the story
+	 *
+	 * @Postcondition:
+	 * 	cursor references the beginning of the story
+	 */
+	public void resetCursor() {
+		while (cursorDepth > 0)
+			path[cursorDepth--] = null;
+		if (story.getStoryRoot() != null)
+			moveCursorTo(story.getStoryRoot(), 1);
+	}
+
+	/**Returns the chance of winning from the cursor
+	 *
+	 * @return
+	 * 	The percentage of the leaves under the cursor that are winning leaves
+	 */
+	public double winProbability() {
+		StoryNode cursor = cursor();
+		return ((double) cursor.getWinningLeafCount() / (double) cursor.getLeafCount()) * 100.0;
+	}
+
+	/**Returns the chance of winning from the cursor for a player who always makes the best choice.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is the best one
+	 */
+	public double bestWinProbability() {
+		return cursor().getBestWinChance() * 100.0;
+	}
+
+	/**Returns the chance of winning from the cursor for a player who chooses each option with the same chance.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 *
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is made at random
+	 */
+	public double randomWinProbability() {
+		return cursor().getRandomWinChance() * 100.0;
+	}
+
+	/**Returns which child of the cursor a player who plays as well as possible chooses
+	 *
+	 * @return
+	 * 	The number of the child with the greatest chance of winning under the best play,
+	 * 	the first one if several tie, or 0 if the cursor is a leaf
+	 */
+	public int bestChoice() {
+		return cursor().getBestChildNumber();
+	}
+
+	/**Returns the Node the cursor is at
+	 *
+	 * @return
+	 * 	The cursor Node
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the story is empty
+	 */
+	private StoryNode cursor() {
+		if (cursorDepth == 0)
+			throw new IllegalStateException("The story is empty");
+		return path[cursorDepth];
+	}
+
+	/**Pushes a child of the cursor onto the path
+	 *
+	 * @param child
+	 * 	The Node to move to
+	 *
+	 * @param childNumber
+	 * 	Which child of the cursor child is
+	 */
+	private void moveCursorTo(StoryNode child, int childNumber) {
+		if (cursorDepth + 1 == path.length) {
+			path = Arrays.copyOf(path, path.length * 2);
+			slots = Arrays.copyOf(slots, slots.length * 2);
+		}
+		path[++cursorDepth] = child;
+		slots[cursorDepth] = childNumber;
+	}
+
+	/**Returns which child of the cursor the indicated position refers to, without building any Strings
+	 *
+	 * @param position
+	 * 	The position of the supposed child, such as 1-2-3
+	 *
+	 * @return
+	 * 	1, 2 or 3 if position is the cursor's position followed by that child number, 0 otherwise
+	 */
+	private int childNumberOf(String position) {
+		if (position.length() != 2 * cursorDepth + 1)
+			return 0;
+		for (int level = 1; level <= cursorDepth; level++) {
+			if (position.charAt(2 * level - 2) - '0' != slots[level] || position.charAt(2 * level - 1) != '-')
+				return 0;
+		}
+		int childNumber = position.charAt(2 * cursorDepth) - '0';
+		return (childNumber >= 1 && childNumber <= 3) ? childNumber : 0;
+	}
+
+	/**Returns a child of a Node by its number
+	 *
+	 * @param node
+	 * 	The parent
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3
+	 *
+	 * @return
+	 * 	The left, middle or right child of node
+	 */
+	private static StoryNode child(StoryNode node, int childNumber) {
+		if (childNumber == 1)
+			return node.getLeftChild();
+		if (childNumber == 2)
+			return node.getMiddleChild();
+		return node.getRightChild();
+	}
+}
@@ -0,0 +1,203 @@
+/**This class measures how a StorySessionServer holds up under many players at once. It
+ * serves a story over in-process connections to the requested number of scripted players,
+ * each of which plays a game from start to finish with random choices and now and then
+ * asks for the chance of winning. Every step, from sending a choice to seeing the next
+ * prompt, is timed, and the throughput and latency percentiles are printed at the end.
+ *
+ * Players connect and then wait for a common start, so they really are concurrent.
+ * Without virtual threads each player and session needs a platform thread, so on such
+ * JVMs the number of players playing at once is capped.
+ *
+ * Usage: java StorySessionLoadGenerator [file or - for a synthetic story] [players] [seed]
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.DataFormatException;
+
+public class StorySessionLoadGenerator {
+	private static final int DEFAULT_PLAYERS = 100_000; //The number of players when none is given
+	private static final int DEFAULT_NODES = 100_000; //The size of the synthetic story played when no file is given
+	private static final int MAX_DEPTH = 64; //The depth the synthetic story is cut off at, deeper than a balanced story goes
+	private static final int PLATFORM_THREAD_LIMIT = 1_000; //The most players at once without virtual threads
+	private static final String PROMPT = "Please make a choice: "; //Ends the server's text whenever it waits for a choice
+	private static final double CHECK_CHANCE = 0.1; //How often a player asks for the chance of winning instead of choosing
+
+	public static void main(String[] args) throws IOException, DataFormatException, InterruptedException {
+		String filename = args.length > 0 && !args[0].equals("-") ? args[0] : null;
+		int players = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLAYERS;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+		if (filename == null) {
+			File story = File.createTempFile("synthetic-story", ".txt");
+			story.deleteOnExit();
+			new StoryGenerator(StoryShape.BALANCED, MAX_DEPTH, seed).write(story, DEFAULT_NODES);
+			filename = story.getPath();
+		}
+		StorySessionServer server = new StorySessionServer(new SharedStory(StoryTree.readTree(filename)));
+		int concurrency = server.usesVirtualThreads() ? players : Math.min(players, PLATFORM_THREAD_LIMIT);
+		System.out.println("Playing " + filename + " with " + players + " players, " + concurrency + " at once on "
+				+ (server.usesVirtualThreads() ? "virtual" : "platform") + " threads");
+
+		LatencyHistogram latencies = new LatencyHistogram();
+		AtomicLong wins = new AtomicLong();
+		AtomicLong failures = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(players);
+		ExecutorService clients = server.usesVirtualThreads() ? StorySessionServer.newSessionExecutor() : Executors.newFixedThreadPool(concurrency);
+		Random seeds = new Random(seed);
+		List<Runnable> scripts = new ArrayList<>(players);
+		for (int x = 0; x < players; x++) {
+			long playerSeed = seeds.nextLong();
+			scripts.add(() -> {
+				try {
+					LocalStoryConnection connection = server.connectLocal();
+					start.await();
+					if (play(connection, new Random(playerSeed), latencies))
+						wins.incrementAndGet();
+				} catch (IOException | InterruptedException | RuntimeException e) {
+					failures.incrementAndGet();
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		for (Runnable script : scripts)
+			clients.execute(script);
+
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		long elapsed = System.nanoTime() - begin;
+		clients.shutdown();
+		server.close(TimeUnit.SECONDS.toMillis(10));
+
+		System.out.println(String.format("%d games in %.1f s, %d won, %d failed", players, elapsed / 1e9, wins.get(), failures.get()));
+		System.out.println(String.format("%d steps, %.0f steps per second", latencies.getCount(), latencies.getCount() / (elapsed / 1e9)));
+		System.out.println("Step latency: " + latencies);
+	}
+
+	/**Plays one game over a connection, timing every step
+	 *
+	 * @param player
+	 * 	The player's end of a connection to the server
+	 *
+	 * @param random
+	 * 	The source of the player's choices
+	 *
+	 * @param latencies
+	 * 	The histogram each step's time is added to
+	 *
+	 * @return
+	 * 	True if the game was won, false otherwise
+	 *
+	 * @exception IOException
+	 * 	Indicates the connection failed or the server stopped before the game ended
+	 */
+	private static boolean play(LocalStoryConnection player, Random random, LatencyHistogram latencies) throws IOException {
+		try {
+			String text = player.readUntil(PROMPT);
+			int options = text == null ? 0 : countOptions(text);
+			while (text != null && text.endsWith(PROMPT)) {
+				boolean check = random.nextDouble() < CHECK_CHANCE;
+				String choice = check ? "c" : Integer.toString(1 + random.nextInt(options));
+				long sent = System.nanoTime();
+				player.print(choice + "\n");
+				text = player.readUntil(PROMPT);
+				latencies.add(System.nanoTime() - sent);
+				if (!check && text != null)
+					options = countOptions(text); //Asking for the chance of winning leaves the options as they were
+			}
+			if (text == null || !text.contains("Thanks for playing."))
+				throw new IOException("The game ended early");
+			return text.contains("YOU WIN");
+		} finally {
+			player.close();
+		}
+	}
+
+	/**Counts the options listed in the text before a prompt
+	 *
+	 * @param text
+	 * 	The text sent by the server
+	 *
+	 * @return
+	 * 	The number of lines which begin with an option number, at most 3
+	 */
+	private static int countOptions(String text) {
+		int options = 0;
+		while (options < 3 && (text.startsWith((options + 1) + ") ") || text.contains("\n" + (options + 1) + ") ")))
+			options++;
+		return options;
+	}
+
+	/**A lock-free histogram of latencies with buckets that double in width
+	 */
+	private static class LatencyHistogram {
+		private final AtomicLongArray buckets = new AtomicLongArray(64); //buckets[b] counts latencies of under 2^b microseconds but at least 2^(b-1)
+		private final AtomicLong count = new AtomicLong(); //The number of latencies added
+		private final AtomicLong total = new AtomicLong(); //The sum of the latencies added, in nanoseconds
+		private final AtomicLong max = new AtomicLong(); //The longest latency added, in nanoseconds
+
+		/**Adds a latency
+		 *
+		 * @param nanos
+		 * 	The latency in nanoseconds
+		 */
+		void add(long nanos) {
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos / 1000));
+			count.incrementAndGet();
+			total.addAndGet(nanos);
+			max.accumulateAndGet(nanos, Math::max);
+		}
+
+		/**Returns the number of latencies added
+		 *
+		 * @return
+		 * 	The count
+		 */
+		long getCount() {
+			return count.get();
+		}
+
+		/**Returns an upper bound of a percentile
+		 *
+		 * @param percent
+		 * 	The percentile, between 0 and 100
+		 *
+		 * @return
+		 * 	The top of the bucket holding that percentile, in microseconds
+		 */
+		long percentile(double percent) {
+			long rank = (long) Math.ceil(count.get() * percent / 100.0);
+			long seen = 0;
+			for (int b = 0; b < buckets.length(); b++) {
+				seen += buckets.get(b);
+				if (seen >= rank && seen > 0)
+					return 1L << b;
+			}
+			return 0;
+		}
+
+		/**Returns the mean, percentiles and maximum as a one line report
+		 *
+		 * @return
+		 * 	The latencies in microseconds, with percentiles rounded up to a power of 2
+		 */
+		public String toString() {
+			long steps = Math.max(1, count.get());
+			return String.format("mean %d us, p50 < %d us, p90 < %d us, p99 < %d us, p99.9 < %d us, max %d us",
+					total.get() / steps / 1000, percentile(50), percentile(90), percentile(99), percentile(99.9), max.get() / 1000);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/**This class serves one story to many players at once. Each connection, whether a
+ * socket or an in-process LocalStoryConnection, gets its own StorySession on the latest
+ * version of a LiveStory and runs the Zork play loop on a thread of its own. Virtual
+ * threads are used when the JVM has them, so a blocked player costs a small stack rather
+ * than a platform thread; older JVMs fall back to a cached pool of platform threads.
+ *
+ * Run on its own, it serves a story file while the console edits it. Each edit is
+ * published to new players at once, and the story is saved when editing ends.
+ *
+ * Usage: java StorySessionServer file [port]
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+
+public class StorySessionServer {
+	private static final int DEFAULT_PORT = 7777; //The port listened on when none is given
+
+	private final LiveStory story; //The story every session plays, in its latest version when the session starts
+	private final ExecutorService executor; //Runs one task per connection
+	private final AtomicLong sessionsStarted; //The number of connections served so far
+	private final AtomicLong sessionsFinished; //The number of those whose play loop has ended
+	private volatile ServerSocket serverSocket; //The socket accepting players, null if not listening
+
+	public static void main(String[] args) throws IOException, DataFormatException, InterruptedException {
+		if (args.length == 0) {
+			System.out.println("Usage: java StorySessionServer file [port]");
+			return;
+		}
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+		StoryTree tree = StoryTree.readTree(args[0]);
+		LiveStory story = new LiveStory(tree);
+		StorySessionServer server = new StorySessionServer(story);
+		server.listen(port);
+		System.out.println("Serving " + args[0] + " on port " + server.getPort()
+				+ (server.usesVirtualThreads() ? " with virtual threads" : " with platform threads"));
+
+		Zork.editTree(tree, story);
+		server.close(0);
+		StoryTree.saveTree(args[0], tree);
+		System.out.println("Saved version " + story.getVersion() + " to " + args[0] + ".");
+		System.exit(0);
+	}
+
+	/**Creates a server for a story which never changes
+	 *
+	 * @param story
+	 * 	The story to serve
+	 *
+	 * @Precondition:
+	 * 	story is not null
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates story is null
+	 */
+	public StorySessionServer(SharedStory story) {
+		this(new LiveStory(story));
+	}
+
+	/**Creates a server for a story which may be edited while it is served
+	 *
+	 * @param story
+	 * 	The story to serve, whose latest version each new session plays
+	 *
+	 * @Precondition:
+	 * 	story is not null
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates story is null
+	 */
+	public StorySessionServer(LiveStory story) {
+		if (story == null)
+			throw new IllegalArgumentException();
+		this.story = story;
+		executor = newSessionExecutor();
+		sessionsStarted = new AtomicLong();
+		sessionsFinished = new AtomicLong();
+	}
+
+	/**Starts playing the story over a connection on a thread of its own
+	 *
+	 * @param connection
+	 * 	The connection to the player, which is closed when the game ends or the player leaves
+	 *
+	 * @Precondition:
+	 * 	connection is not null and the server is not closed
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates connection is null
+	 */
+	public void serve(StoryConnection connection) {
+		if (connection == null)
+			throw new IllegalArgumentException();
+		sessionsStarted.incrementAndGet();
+		executor.execute(() -> {
+			try {
+				Zork.playSession(story.newSession(), connection);
+			} catch (IOException | NodeNotPresentException e) {
+				//The player left or sent something the loop could not use, so the session just ends
+			} finally {
+				try {
+					connection.close();
+				} catch (IOException e) {
+					//Nothing more can be sent to the player
+				}
+				sessionsFinished.incrementAndGet();
+			}
+		});
+	}
+
+	/**Connects a new in-process player
+	 *
+	 * @return
+	 * 	The player's end of a connection whose other end is being served
+	 */
+	public LocalStoryConnection connectLocal() {
+		LocalStoryConnection[] ends = LocalStoryConnection.pair();
+		serve(ends[1]);
+		return ends[0];
+	}
+
+	/**Starts accepting players on a port. Each accepted socket is served like any other connection
+	 *
+	 * @param port
+	 * 	The port to listen on, or 0 for any free port
+	 *
+	 * @Precondition:
+	 * 	The server is not already listening
+	 *
+	 * @exception IOException
+	 * 	Indicates the port could not be opened
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the server is already listening
+	 */
+	public void listen(int port) throws IOException {
+		if (serverSocket != null)
+			throw new IllegalStateException("Already listening on port " + serverSocket.getLocalPort());
+		ServerSocket socket = new ServerSocket(port);
+		serverSocket = socket;
+		executor.execute(() -> {
+			while (!socket.isClosed()) {
+				try {
+					Socket player = socket.accept();
+					serve(new StreamStoryConnection(player));
+				} catch (IOException e) {
+					//Either the server socket was closed or one accept failed; the loop condition tells which
+				}
+			}
+		});
+	}
+
+	/**Returns the port the server is listening on
+	 *
+	 * @return
+	 * 	The local port, or -1 if the server is not listening
+	 */
+	public int getPort() {
+		ServerSocket socket = serverSocket;
+		return socket == null ? -1 : socket.getLocalPort();
+	}
+
+	/**Returns whether or not sessions run on virtual threads
+	 *
+	 * @return
+	 * 	True if the JVM supports virtual threads, false if sessions use platform threads
+	 */
+	public boolean usesVirtualThreads() {
+		return !(executor instanceof ThreadPoolExecutor);
+	}
+
+	/**Returns the number of connections served so far
+	 *
+	 * @return
+	 * 	The number of sessions started
+	 */
+	public long getSessionsStarted() {
+		return sessionsStarted.get();
+	}
+
+	/**Returns the number of sessions whose play loop has ended
+	 *
+	 * @return
+	 * 	The number of sessions finished, whether won, lost or left
+	 */
+	public long getSessionsFinished() {
+		return sessionsFinished.get();
+	}
+
+	/**Stops accepting players and waits for the sessions being played to end
+	 *
+	 * @param timeout
+	 * 	The longest time to wait, in milliseconds
+	 *
+	 * @return
+	 * 	True if every session ended in time, false otherwise
+	 *
+	 * @exception IOException
+	 * 	Indicates the server socket could not be closed
+	 *
+	 * @exception InterruptedException
+	 * 	Indicates the thread was interrupted while waiting
+	 */
+	public boolean close(long timeout) throws IOException, InterruptedException {
+		ServerSocket socket = serverSocket;
+		if (socket != null)
+			socket.close();
+		executor.shutdown();
+		return executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**Returns an executor which runs each task on a new virtual thread, or a cached pool of platform
+	 * threads if this JVM has no virtual threads. The virtual thread executor is looked up reflectively
+	 * so the class still compiles and runs on JVMs without it
+	 *
+	 * @return
+	 * 	The executor for sessions
+	 */
+	static ExecutorService newSessionExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
@@ -0,0 +1,14 @@
+/**This enum represents the shapes of the synthetic stories a StoryGenerator writes
+ *
+ * BALANCED splits the Nodes under each Node evenly among 3 children, so the story is as
+ * 	wide and shallow as a story can be.
+ * CHAIN gives each Node one child that continues the story and one leaf, so the story is
+ * 	a long chain as deep as it is allowed to be.
+ * RANDOM gives each Node 1 to 3 children and splits the Nodes under it among them at random.
+ *
+ * @author Pooja Ginjupalli
+ */
+
+public enum StoryShape {
+	BALANCED, CHAIN, RANDOM;
+}
@@ -0,0 +1,315 @@
+/**This class holds the outcome of simulated playthroughs of a story run by a StorySimulator:
+ * how often they won, lost or reached a dead end, how many choices they took, and how
+ * often each position was passed through. A Monte Carlo simulation counts each playthrough
+ * once; an exhaustive one weighs every ending by the chance the policy reaches it, so its
+ * rates are exact. Either way the rates are fractions of all playthroughs.
+ *
+ * Visits are recorded by position, not by Node, so a Node shared by several positions is
+ * counted at each of them. Positions deeper than the heatmap depth of the
+ * StorySimulator are not recorded.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class StorySimulation {
+	private final Visits heatmap; //The visits of the beginning of the story and, below it, every position recorded
+	private final boolean exact; //Whether every playthrough was followed with its chance rather than sampled
+	private long runs; //The number of playthroughs sampled, 0 for an exhaustive simulation
+	private double total; //The weight of all playthroughs
+	private double wins; //The weight of the playthroughs that ended with a winning message
+	private double losses; //The weight of the playthroughs that ended with a losing message
+	private double deadEnds; //The weight of the playthroughs that ended on a leaf that neither wins nor loses
+	private double[] lengths; //lengths[n] is the weight of the playthroughs that ended after n choices
+	private int lengthCount; //The number of lengths in use, one more than the longest playthrough
+
+	/**Creates an empty simulation
+	 *
+	 * @param exact
+	 * 	Whether endings will be weighed by their chance rather than sampled
+	 */
+	StorySimulation(boolean exact) {
+		this.exact = exact;
+		heatmap = new Visits();
+		lengths = new double[16];
+		lengthCount = 0;
+	}
+
+	/**Returns the visits of the beginning of the story, under which every recorded position hangs
+	 *
+	 * @return
+	 * 	The visits of position 1
+	 */
+	Visits getHeatmap() {
+		return heatmap;
+	}
+
+	/**Records the end of a playthrough
+	 *
+	 * @param leaf
+	 * 	The leaf it ended on
+	 *
+	 * @param length
+	 * 	The number of choices it took
+	 *
+	 * @param weight
+	 * 	1 for a sampled playthrough, or the chance of reaching leaf
+	 */
+	void addEnding(StoryNode leaf, int length, double weight) {
+		total += weight;
+		if (leaf.isWinningNode())
+			wins += weight;
+		else if (leaf.isDeadEnd())
+			deadEnds += weight;
+		else
+			losses += weight;
+		if (length >= lengths.length)
+			lengths = Arrays.copyOf(lengths, Math.max(length + 1, lengths.length * 2));
+		lengths[length] += weight;
+		lengthCount = Math.max(lengthCount, length + 1);
+	}
+
+	/**Counts a number of sampled playthroughs
+	 *
+	 * @param runs
+	 * 	The playthroughs whose endings were added
+	 */
+	void addRuns(long runs) {
+		this.runs += runs;
+	}
+
+	/**Adds the outcomes of another simulation of the same story into this one
+	 *
+	 * @param other
+	 * 	The simulation of a disjoint set of playthroughs
+	 */
+	void merge(StorySimulation other) {
+		runs += other.runs;
+		total += other.total;
+		wins += other.wins;
+		losses += other.losses;
+		deadEnds += other.deadEnds;
+		if (other.lengthCount > lengths.length)
+			lengths = Arrays.copyOf(lengths, other.lengthCount);
+		for (int x = 0; x < other.lengthCount; x++)
+			lengths[x] += other.lengths[x];
+		lengthCount = Math.max(lengthCount, other.lengthCount);
+		heatmap.merge(other.heatmap);
+	}
+
+	/**Returns the number of playthroughs sampled
+	 *
+	 * @return
+	 * 	The number of playthroughs, or 0 if every playthrough was followed with its chance
+	 */
+	public long getRuns() {
+		return runs;
+	}
+
+	/**Returns whether the rates are exact
+	 *
+	 * @return
+	 * 	True for an exhaustive simulation, false for a Monte Carlo one
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**Returns the fraction of playthroughs that won
+	 *
+	 * @return
+	 * 	Between 0 and 1, or 0 if there were no playthroughs
+	 */
+	public double getWinRate() {
+		return rate(wins);
+	}
+
+	/**Returns the fraction of playthroughs that lost
+	 *
+	 * @return
+	 * 	Between 0 and 1, or 0 if there were no playthroughs
+	 */
+	public double getLossRate() {
+		return rate(losses);
+	}
+
+	/**Returns the fraction of playthroughs that reached a dead end
+	 *
+	 * @return
+	 * 	Between 0 and 1, or 0 if there were no playthroughs
+	 */
+	public double getDeadEndRate() {
+		return rate(deadEnds);
+	}
+
+	/**Returns the mean number of choices a playthrough took
+	 *
+	 * @return
+	 * 	The mean length, or 0 if there were no playthroughs
+	 */
+	public double getMeanPathLength() {
+		double sum = 0;
+		for (int x = 0; x < lengthCount; x++)
+			sum += x * lengths[x];
+		return rate(sum);
+	}
+
+	/**Returns how often playthroughs took each number of choices
+	 *
+	 * @return
+	 * 	A new array whose element n is the fraction of playthroughs that ended after n choices
+	 */
+	public double[] getPathLengthHistogram() {
+		double[] histogram = new double[lengthCount];
+		for (int x = 0; x < lengthCount; x++)
+			histogram[x] = rate(lengths[x]);
+		return histogram;
+	}
+
+	/**Returns how often playthroughs passed through a position
+	 *
+	 * @param position
+	 * 	A position such as "1-2-3"
+	 *
+	 * @return
+	 * 	The fraction of playthroughs that passed through it, 0 if none did or it is deeper than the heatmap
+	 */
+	public double getVisitRate(String position) {
+		String[] steps = position == null ? new String[0] : position.split("-");
+		if (steps.length == 0 || !steps[0].equals("1"))
+			return 0;
+		Visits visits = heatmap;
+		for (int x = 1; x < steps.length && visits != null; x++) {
+			int childNumber = steps[x].length() == 1 ? steps[x].charAt(0) - '0' : 0;
+			visits = childNumber >= 1 && childNumber <= 3 ? visits.children[childNumber - 1] : null;
+		}
+		return visits == null ? 0 : rate(visits.weight);
+	}
+
+	/**Returns the positions passed through most often
+	 *
+	 * @param limit
+	 * 	The most positions returned
+	 *
+	 * @return
+	 * 	The positions and the fraction of playthroughs that passed through each, most visited first
+	 */
+	public LinkedHashMap<String, Double> getHottestPositions(int limit) {
+		ArrayList<String> positions = new ArrayList<String>();
+		ArrayList<Visits> visited = new ArrayList<Visits>();
+		ArrayList<Visits> pending = new ArrayList<Visits>();
+		ArrayList<String> pendingPositions = new ArrayList<String>();
+		pending.add(heatmap);
+		pendingPositions.add("1");
+		while (!pending.isEmpty()) {
+			Visits visits = pending.remove(pending.size() - 1);
+			String position = pendingPositions.remove(pendingPositions.size() - 1);
+			if (visits.weight == 0)
+				continue;
+			visited.add(visits);
+			positions.add(position);
+			for (int x = 0; x < 3; x++) {
+				if (visits.children[x] != null) {
+					pending.add(visits.children[x]);
+					pendingPositions.add(position + "-" + (x + 1));
+				}
+			}
+		}
+
+		Integer[] order = new Integer[visited.size()];
+		for (int x = 0; x < order.length; x++)
+			order[x] = x;
+		Arrays.sort(order, (a, b) -> Double.compare(visited.get(b).weight, visited.get(a).weight));
+		LinkedHashMap<String, Double> hottest = new LinkedHashMap<String, Double>();
+		for (int x = 0; x < order.length && x < limit; x++)
+			hottest.put(positions.get(order[x]), rate(visited.get(order[x]).weight));
+		return hottest;
+	}
+
+	/**Returns the outcomes as a readable report
+	 *
+	 * @return
+	 * 	The rates, one per line, followed by the path length histogram and the 10 most visited positions
+	 */
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(isExact() ? "Exhaustive" : "Playthroughs: " + runs).append('\n');
+		report.append(String.format("Win rate: %.4f%n", getWinRate()));
+		report.append(String.format("Loss rate: %.4f%n", getLossRate()));
+		report.append(String.format("Dead end rate: %.4f%n", getDeadEndRate()));
+		report.append(String.format("Mean path length: %.2f%n", getMeanPathLength()));
+		report.append("Playthroughs by path length:");
+		for (int x = 0; x < lengthCount; x++) {
+			if (lengths[x] > 0)
+				report.append(String.format("%n%d: %.4f", x, rate(lengths[x])));
+		}
+		report.append("\nMost visited positions:");
+		for (Map.Entry<String, Double> entry : getHottestPositions(10).entrySet())
+			report.append(String.format("%n%s: %.4f", entry.getKey(), entry.getValue()));
+		return report.toString();
+	}
+
+	/**Returns a weight as a fraction of all playthroughs
+	 *
+	 * @param weight
+	 * 	The weight of some of the playthroughs
+	 *
+	 * @return
+	 * 	weight over the weight of all playthroughs, or 0 if there were none
+	 */
+	private double rate(double weight) {
+		return total == 0 ? 0 : weight / total;
+	}
+
+	/**This class holds the visits of one position and of the positions recorded below it
+	 */
+	static class Visits {
+		double weight; //The weight of the playthroughs that passed through the position
+		final Visits[] children = new Visits[3]; //children[c - 1] holds the visits of child c, null until it is visited
+
+		/**Returns the visits of a child position, making them if it has not been visited
+		 *
+		 * @param childNumber
+		 * 	1, 2 or 3
+		 *
+		 * @return
+		 * 	The visits of the child
+		 */
+		Visits child(int childNumber) {
+			Visits child = children[childNumber - 1];
+			if (child == null)
+				child = children[childNumber - 1] = new Visits();
+			return child;
+		}
+
+		/**Adds the visits of the same position from another simulation, and of every position below it
+		 *
+		 * @param other
+		 * 	The visits to add
+		 */
+		void merge(Visits other) {
+			ArrayList<Visits> into = new ArrayList<Visits>();
+			ArrayList<Visits> from = new ArrayList<Visits>();
+			into.add(this);
+			from.add(other);
+			while (!into.isEmpty()) {
+				Visits target = into.remove(into.size() - 1);
+				Visits source = from.remove(from.size() - 1);
+				target.weight += source.weight;
+				for (int x = 0; x < 3; x++) {
+					if (source.children[x] == null)
+						continue;
+					if (target.children[x] == null) {
+						target.children[x] = source.children[x];
+					} else {
+						into.add(target.children[x]);
+						from.add(source.children[x]);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/**This class plays a story automatically many times to estimate how real players fare,
+ * rather than the fraction of winning leaves that winProbability gives. Each simulated
+ * player chooses by a StoryPolicy, and the results are gathered in a StorySimulation.
+ *
+ * A Monte Carlo simulation spreads its playthroughs over worker threads. Each worker
+ * walks the Nodes of a SharedStory on its own, with its own random numbers and its own
+ * counts, so nothing mutable is shared until the counts are merged at the end. With the
+ * same seed and number of workers a simulation gives the same results every time.
+ *
+ * An exhaustive simulation instead follows every choice the policy may make, weighed by
+ * its chance, so its rates are exact. It visits every position the policy can reach,
+ * which for a large story is far more than a Monte Carlo simulation needs.
+ *
+ * Usage: java StorySimulator file [playthroughs, or 0 for exhaustive] [uniform, greedy or weighted:1:2:3] [workers] [seed]
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+
+public class StorySimulator {
+	private static final int DEFAULT_HEATMAP_DEPTH = 16; //The most choices deep a visited position is recorded unless set otherwise
+	private static final long DEFAULT_RUNS = 1_000_000; //The number of playthroughs when none is given
+
+	private final StoryNode storyRoot; //The beginning of the story played, null if it is empty
+	private final StoryPolicy policy; //How the simulated players choose
+	private int heatmapDepth; //The most choices deep a visited position is recorded
+
+	/**Creates a simulator of a story
+	 *
+	 * @param story
+	 * 	The story to play, which never changes
+	 *
+	 * @param policy
+	 * 	How the simulated players choose
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates story or policy is null
+	 */
+	public StorySimulator(SharedStory story, StoryPolicy policy) {
+		if (story == null || policy == null)
+			throw new IllegalArgumentException();
+		storyRoot = story.getStoryRoot();
+		this.policy = policy;
+		heatmapDepth = DEFAULT_HEATMAP_DEPTH;
+	}
+
+	/**Sets how deep visited positions are recorded. Each position recorded takes memory,
+	 * so a deep heatmap of a large story can hold a great many
+	 *
+	 * @param heatmapDepth
+	 * 	The most choices deep a visited position is recorded, 0 to record only the beginning of the story
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates heatmapDepth is negative
+	 */
+	public void setHeatmapDepth(int heatmapDepth) {
+		if (heatmapDepth < 0)
+			throw new IllegalArgumentException();
+		this.heatmapDepth = heatmapDepth;
+	}
+
+	/**Plays the story a number of times on a worker for each processor
+	 *
+	 * @param runs
+	 * 	The number of playthroughs
+	 *
+	 * @param seed
+	 * 	The seed of the random choices
+	 *
+	 * @return
+	 * 	The outcomes of the playthroughs
+	 *
+	 * @exception InterruptedException
+	 * 	Indicates the thread was interrupted while waiting for the workers
+	 */
+	public StorySimulation simulate(long runs, long seed) throws InterruptedException {
+		return simulate(runs, Runtime.getRuntime().availableProcessors(), seed);
+	}
+
+	/**Plays the story a number of times, spread over worker threads
+	 *
+	 * @param runs
+	 * 	The number of playthroughs
+	 *
+	 * @param workers
+	 * 	The number of threads playing at once
+	 *
+	 * @param seed
+	 * 	The seed of the random choices, from which each worker gets its own
+	 *
+	 * @return
+	 * 	The outcomes of the playthroughs
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates runs is negative or workers is not positive
+	 *
+	 * @exception InterruptedException
+	 * 	Indicates the thread was interrupted while waiting for the workers
+	 */
+	public StorySimulation simulate(long runs, int workers, long seed) throws InterruptedException {
+		if (runs < 0 || workers < 1)
+			throw new IllegalArgumentException();
+		SplittableRandom seeds = new SplittableRandom(seed);
+		List<Callable<StorySimulation>> tasks = new ArrayList<Callable<StorySimulation>>(workers);
+		for (int x = 0; x < workers; x++) {
+			long share = runs / workers + (x < runs % workers ? 1 : 0);
+			SplittableRandom random = seeds.split();
+			tasks.add(() -> play(share, random));
+		}
+
+		StorySimulation simulation = new StorySimulation(false);
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			for (Future<StorySimulation> result : pool.invokeAll(tasks))
+				simulation.merge(result.get());
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A simulated player failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return simulation;
+	}
+
+	/**Follows every playthrough the policy may make, each weighed by its chance
+	 *
+	 * @return
+	 * 	The exact outcomes under the policy
+	 */
+	public StorySimulation exhaust() {
+		StorySimulation simulation = new StorySimulation(true);
+		if (storyRoot == null)
+			return simulation;
+		double[] weights = new double[3];
+		StoryNode[] nodes = new StoryNode[64]; //The Nodes waiting to be followed
+		StorySimulation.Visits[] visits = new StorySimulation.Visits[64]; //The visits of each waiting Node's position, null if too deep
+		double[] chances = new double[64]; //The chance of reaching each waiting Node
+		int[] depths = new int[64]; //The depth of each waiting Node
+		int waiting = 0;
+		nodes[waiting] = storyRoot;
+		visits[waiting] = simulation.getHeatmap();
+		chances[waiting] = 1;
+		depths[waiting++] = 0;
+
+		while (waiting > 0) {
+			StoryNode node = nodes[--waiting];
+			StorySimulation.Visits nodeVisits = visits[waiting];
+			double chance = chances[waiting];
+			int depth = depths[waiting];
+			nodes[waiting] = null;
+			visits[waiting] = null;
+			if (nodeVisits != null)
+				nodeVisits.weight += chance;
+			if (node.isLeaf()) {
+				simulation.addEnding(node, depth, chance);
+				continue;
+			}
+
+			int children = node.getNumChildren();
+			double total = weigh(node, children, weights);
+			if (waiting + 3 > nodes.length) {
+				nodes = Arrays.copyOf(nodes, nodes.length * 2);
+				visits = Arrays.copyOf(visits, nodes.length);
+				chances = Arrays.copyOf(chances, nodes.length);
+				depths = Arrays.copyOf(depths, nodes.length);
+			}
+			for (int x = children - 1; x >= 0; x--) {
+				if (weights[x] == 0)
+					continue;
+				nodes[waiting] = child(node, x + 1);
+				visits[waiting] = nodeVisits != null && depth < heatmapDepth ? nodeVisits.child(x + 1) : null;
+				chances[waiting] = chance * weights[x] / total;
+				depths[waiting++] = depth + 1;
+			}
+		}
+		return simulation;
+	}
+
+	/**Plays the story a number of times on the calling thread
+	 *
+	 * @param runs
+	 * 	The number of playthroughs
+	 *
+	 * @param random
+	 * 	The source of the choices, used by this thread alone
+	 *
+	 * @return
+	 * 	The outcomes of the playthroughs
+	 */
+	private StorySimulation play(long runs, SplittableRandom random) {
+		StorySimulation simulation = new StorySimulation(false);
+		if (storyRoot == null)
+			return simulation;
+		double[] weights = new double[3];
+		StorySimulation.Visits heatmap = simulation.getHeatmap();
+		for (long run = 0; run < runs; run++) {
+			StoryNode node = storyRoot;
+			StorySimulation.Visits visits = heatmap;
+			visits.weight++;
+			int depth = 0;
+			while (!node.isLeaf()) {
+				int children = node.getNumChildren();
+				double pick = random.nextDouble() * weigh(node, children, weights);
+				int chosen = -1;
+				for (int x = 0; x < children; x++) {
+					if (weights[x] > 0) {
+						chosen = x;
+						if ((pick -= weights[x]) < 0)
+							break;
+					}
+				}
+				node = child(node, chosen + 1);
+				if (visits != null && depth < heatmapDepth) {
+					visits = visits.child(chosen + 1);
+					visits.weight++;
+				} else {
+					visits = null;
+				}
+				depth++;
+			}
+			simulation.addEnding(node, depth, 1);
+		}
+		simulation.addRuns(runs);
+		return simulation;
+	}
+
+	/**Asks the policy to weigh the children of a Node
+	 *
+	 * @param node
+	 * 	The Node a choice is made at, which is not a leaf
+	 *
+	 * @param children
+	 * 	The number of children of node
+	 *
+	 * @param weights
+	 * 	Filled with the weight of each child
+	 *
+	 * @return
+	 * 	The sum of the weights
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the policy gave a negative weight or no positive one
+	 */
+	private double weigh(StoryNode node, int children, double[] weights) {
+		policy.weigh(node, weights);
+		double total = 0;
+		for (int x = 0; x < children; x++) {
+			if (!(weights[x] >= 0))
+				throw new IllegalStateException("The policy gave child " + (x + 1) + " a weight of " + weights[x]);
+			total += weights[x];
+		}
+		if (!(total > 0))
+			throw new IllegalStateException("The policy gave no child a positive weight");
+		return total;
+	}
+
+	/**Returns a child of a Node by its number
+	 *
+	 * @param node
+	 * 	The parent
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3
+	 *
+	 * @return
+	 * 	The left, middle or right child of node
+	 */
+	private static StoryNode child(StoryNode node, int childNumber) {
+		if (childNumber == 1)
+			return node.getLeftChild();
+		if (childNumber == 2)
+			return node.getMiddleChild();
+		return node.getRightChild();
+	}
+
+	public static void main(String[] args) throws IOException, DataFormatException, InterruptedException {
+		if (args.length < 1) {
+			System.out.println("Usage: java StorySimulator file [playthroughs, or 0 for exhaustive] [uniform, greedy or weighted:1:2:3] [workers] [seed]");
+			return;
+		}
+		long runs = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_RUNS;
+		StoryPolicy policy = StoryPolicy.forName(args.length > 2 ? args[2] : "uniform");
+		int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+		StorySimulator simulator = new StorySimulator(new SharedStory(StoryTree.readTree(args[0])), policy);
+		long start = System.nanoTime();
+		StorySimulation simulation = runs == 0 ? simulator.exhaust() : simulator.simulate(runs, workers, seed);
+		long elapsed = System.nanoTime() - start;
+		System.out.println(simulation);
+		System.out.println(String.format("%nSimulated in %.2f s%s", elapsed / 1e9, runs == 0 ? "" : " on " + workers + " workers"));
+	}
+}
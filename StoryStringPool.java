@@ -0,0 +1,338 @@
+/**This class is an indexed pool of the distinct options and messages of a story.
+ * Each String is stored once as UTF-8 bytes packed into large pages and is named
+ * by an int index, so a node only needs an int to refer to its text. Equal text is
+ * found through an open-addressing table of indexes and is never stored twice.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class StoryStringPool {
+	private static final int PAGE_SIZE = 1 << 20; //Bytes in each page, longer Strings get a page of their own
+	private static final int INITIAL_CAPACITY = 256; //Starting number of Strings the pool can hold
+
+	private byte[][] pages; //The pages holding the bytes of every String
+	private int pageCount; //The number of pages in use
+	private int pageUsed; //The number of bytes used in the last page
+	private long[] locations; //locations[i] holds the page of String i in its high 32 bits and its offset in the low 32 bits
+	private int[] lengths; //lengths[i] is the number of bytes of String i
+	private int[] hashes; //hashes[i] is the hash of the bytes of String i
+	private int size; //The number of Strings in the pool
+	private long byteCount; //The number of bytes of text stored
+	private long addCount; //The number of Strings passed to add
+	private long duplicateCount; //The number of those which were already in the pool
+	private long duplicateBytes; //The bytes of text not stored again because it was already in the pool
+	private int[] table; //Open-addressing table holding index + 1 of each String, 0 for an empty slot
+
+	/**Creates an empty pool
+	 */
+	public StoryStringPool() {
+		pages = new byte[4][];
+		pageCount = 0;
+		pageUsed = 0;
+		locations = new long[INITIAL_CAPACITY];
+		lengths = new int[INITIAL_CAPACITY];
+		hashes = new int[INITIAL_CAPACITY];
+		size = 0;
+		byteCount = 0;
+		addCount = 0;
+		duplicateCount = 0;
+		duplicateBytes = 0;
+		table = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**Copies a pool, so the copy can be read on another thread while the pool grows.
+	 * The pages are shared, since the bytes already stored in them never change
+	 *
+	 * @param pool
+	 * 	The pool to copy
+	 */
+	StoryStringPool(StoryStringPool pool) {
+		pages = pool.pages.clone();
+		pageCount = pool.pageCount;
+		pageUsed = pool.pageUsed;
+		locations = pool.locations.clone();
+		lengths = pool.lengths.clone();
+		hashes = pool.hashes.clone();
+		size = pool.size;
+		byteCount = pool.byteCount;
+		addCount = pool.addCount;
+		duplicateCount = pool.duplicateCount;
+		duplicateBytes = pool.duplicateBytes;
+		table = pool.table.clone();
+	}
+
+	/**Returns the index of a String, adding it to the pool if it is not in it already
+	 *
+	 * @param text
+	 * 	The String to add
+	 *
+	 * @Precondition:
+	 * 	text is not null
+	 *
+	 * @return
+	 * 	The index of text in the pool
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates text is null
+	 */
+	public int add(String text) {
+		if (text == null)
+			throw new IllegalArgumentException();
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		return add(bytes, 0, bytes.length);
+	}
+
+	/**Returns the index of the UTF-8 text in a range of bytes, adding it to the pool if it is not in it already
+	 *
+	 * @param bytes
+	 * 	The bytes holding the text
+	 *
+	 * @param offset
+	 * 	The index of the first byte of the text
+	 *
+	 * @param length
+	 * 	The number of bytes of the text
+	 *
+	 * @return
+	 * 	The index of the text in the pool
+	 */
+	public int add(byte[] bytes, int offset, int length) {
+		addCount++;
+		int hash = hash(bytes, offset, length);
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != 0) {
+			int index = table[slot] - 1;
+			if (hashes[index] == hash && matches(index, bytes, offset, length)) {
+				duplicateCount++;
+				duplicateBytes += length;
+				return index;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == locations.length) {
+			int capacity = size * 2;
+			locations = Arrays.copyOf(locations, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+		}
+		int index = size++;
+		locations[index] = store(bytes, offset, length);
+		lengths[index] = length;
+		hashes[index] = hash;
+		byteCount += length;
+		table[slot] = index + 1;
+		if (size * 2 > table.length)
+			rehash();
+		return index;
+	}
+
+	/**Decodes the String at an index
+	 *
+	 * @param index
+	 * 	The index of the String
+	 *
+	 * @Precondition:
+	 * 	index was returned by add
+	 *
+	 * @return
+	 * 	A new String holding the decoded text
+	 */
+	public String get(int index) {
+		return new String(pages[(int) (locations[index] >>> 32)], (int) locations[index], lengths[index], StandardCharsets.UTF_8);
+	}
+
+	/**Returns the number of UTF-8 bytes of the String at an index
+	 *
+	 * @param index
+	 * 	The index of the String
+	 *
+	 * @return
+	 * 	The length of its bytes
+	 */
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	/**Copies the UTF-8 bytes of the String at an index without decoding them
+	 *
+	 * @param index
+	 * 	The index of the String
+	 *
+	 * @return
+	 * 	A new array holding its bytes
+	 */
+	public byte[] getBytes(int index) {
+		int start = (int) locations[index];
+		return Arrays.copyOfRange(pages[(int) (locations[index] >>> 32)], start, start + lengths[index]);
+	}
+
+	/**Writes the UTF-8 bytes of the String at an index without decoding them
+	 *
+	 * @param index
+	 * 	The index of the String
+	 *
+	 * @param out
+	 * 	The stream to write to
+	 *
+	 * @exception IOException
+	 * 	Indicates the stream could not be written
+	 */
+	public void writeTo(int index, OutputStream out) throws IOException {
+		out.write(pages[(int) (locations[index] >>> 32)], (int) locations[index], lengths[index]);
+	}
+
+	/**Returns whether or not the String at an index contains an ASCII phrase,
+	 * comparing the stored bytes without decoding them
+	 *
+	 * @param index
+	 * 	The index of the String
+	 *
+	 * @param phrase
+	 * 	The ASCII phrase to look for
+	 *
+	 * @return
+	 * 	True if phrase appears within the String, false otherwise
+	 */
+	public boolean contains(int index, String phrase) {
+		byte[] page = pages[(int) (locations[index] >>> 32)];
+		int start = (int) locations[index];
+		int end = start + lengths[index] - phrase.length();
+		for (int x = start; x <= end; x++) {
+			int matched = 0;
+			while (matched < phrase.length() && page[x + matched] == phrase.charAt(matched))
+				matched++;
+			if (matched == phrase.length())
+				return true;
+		}
+		return false;
+	}
+
+	/**Returns the number of distinct Strings in the pool
+	 *
+	 * @return
+	 * 	The number of Strings added
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**Returns the number of bytes of text stored, counting each distinct String once
+	 *
+	 * @return
+	 * 	The total UTF-8 length of the Strings in the pool
+	 */
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	/**Returns the number of bytes of text that were added again and shared instead of stored
+	 *
+	 * @return
+	 * 	The total UTF-8 length of the duplicates added
+	 */
+	public long getDuplicateBytes() {
+		return duplicateBytes;
+	}
+
+	/**Returns the counts as a one line report
+	 *
+	 * @return
+	 * 	How many Strings were added, how many were duplicates and the bytes saved
+	 */
+	public String toString() {
+		return addCount + " strings, " + size + " distinct, " + duplicateCount
+				+ " duplicates shared, " + duplicateBytes + " bytes saved";
+	}
+
+	/**Copies bytes into the last page, starting a new page if they don't fit
+	 *
+	 * @param bytes
+	 * 	The bytes to store
+	 *
+	 * @param offset
+	 * 	The index of the first byte to store
+	 *
+	 * @param length
+	 * 	The number of bytes to store
+	 *
+	 * @return
+	 * 	The page of the stored bytes in the high 32 bits and their offset in the low 32 bits
+	 */
+	private long store(byte[] bytes, int offset, int length) {
+		if (pageCount == 0 || length > pages[pageCount - 1].length - pageUsed) {
+			if (pageCount == pages.length)
+				pages = Arrays.copyOf(pages, pageCount * 2);
+			pages[pageCount++] = new byte[Math.max(PAGE_SIZE, length)];
+			pageUsed = 0;
+		}
+		System.arraycopy(bytes, offset, pages[pageCount - 1], pageUsed, length);
+		long location = ((long) (pageCount - 1) << 32) | pageUsed;
+		pageUsed += length;
+		return location;
+	}
+
+	/**Returns whether or not the String at an index has the same bytes as a range
+	 *
+	 * @param index
+	 * 	The index of the String
+	 *
+	 * @param bytes
+	 * 	The bytes to compare with
+	 *
+	 * @param offset
+	 * 	The index of the first byte to compare
+	 *
+	 * @param length
+	 * 	The number of bytes to compare
+	 *
+	 * @return
+	 * 	True if the String is exactly those bytes
+	 */
+	private boolean matches(int index, byte[] bytes, int offset, int length) {
+		if (lengths[index] != length)
+			return false;
+		byte[] page = pages[(int) (locations[index] >>> 32)];
+		int start = (int) locations[index];
+		return Arrays.equals(page, start, start + length, bytes, offset, offset + length);
+	}
+
+	/**Doubles the size of the table and reinserts every index
+	 */
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int index = 0; index < size; index++) {
+			int slot = hashes[index] & mask;
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			table[slot] = index + 1;
+		}
+	}
+
+	/**Hashes a range of bytes, spreading the high bits into the low bits used by the table
+	 *
+	 * @param bytes
+	 * 	The bytes to hash
+	 *
+	 * @param offset
+	 * 	The index of the first byte
+	 *
+	 * @param length
+	 * 	The number of bytes
+	 *
+	 * @return
+	 * 	The hash of the bytes
+	 */
+	private static int hash(byte[] bytes, int offset, int length) {
+		int hash = 1;
+		for (int x = offset; x < offset + length; x++)
+			hash = 31 * hash + bytes[x];
+		return hash ^ (hash >>> 16);
+	}
+}
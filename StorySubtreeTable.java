@@ -0,0 +1,120 @@
+/**This class hash-conses the subtrees of a story as it is loaded. Each finished Node is
+ * looked up by its option, its message and the identity of its children, and a Node
+ * equal to one already seen is replaced by that one. Since children are finished before
+ * their parents, equal children are already the same object, so identical subtrees of
+ * any size end up as one shared structure.
+ *
+ * The table is only needed while loading and should be dropped afterwards.
+ *
+ * @author Pooja Ginjupalli
+ */
+
+public class StorySubtreeTable {
+	private static final int INITIAL_CAPACITY = 1 << 10; //Starting number of slots, always a power of 2
+
+	private StoryTreeNode[] table; //Open-addressing table of the distinct Nodes seen
+	private int size; //The number of distinct Nodes in the table
+	private long sharedCount; //The number of Nodes replaced by an equal one
+
+	/**Creates an empty table
+	 */
+	public StorySubtreeTable() {
+		table = new StoryTreeNode[INITIAL_CAPACITY];
+		size = 0;
+		sharedCount = 0;
+	}
+
+	/**Returns the Node that stands for every Node equal to the indicated one
+	 *
+	 * @param node
+	 * 	A finished Node whose children have already been passed through this table
+	 *
+	 * @return
+	 * 	An equal Node seen before, which is marked as shared, or node itself if it is new
+	 */
+	public StoryTreeNode canonical(StoryTreeNode node) {
+		int hash = hash(node);
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != null) {
+			if (same(table[slot], node)) {
+				sharedCount++;
+				table[slot].markShared();
+				return table[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = node;
+		size++;
+		if (size * 2 > table.length)
+			rehash();
+		return node;
+	}
+
+	/**Returns the number of distinct Nodes kept
+	 *
+	 * @return
+	 * 	The number of Nodes in the table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**Returns the number of Nodes that were replaced by an equal one
+	 *
+	 * @return
+	 * 	The number of subtrees shared instead of kept
+	 */
+	public long getSharedCount() {
+		return sharedCount;
+	}
+
+	/**Doubles the size of the table and reinserts every Node
+	 */
+	private void rehash() {
+		StoryTreeNode[] old = table;
+		table = new StoryTreeNode[old.length * 2];
+		int mask = table.length - 1;
+		for (StoryTreeNode node : old) {
+			if (node == null)
+				continue;
+			int slot = hash(node) & mask;
+			while (table[slot] != null)
+				slot = (slot + 1) & mask;
+			table[slot] = node;
+		}
+	}
+
+	/**Returns whether or not two Nodes have equal text and the very same children
+	 *
+	 * @param a
+	 * 	A Node
+	 *
+	 * @param b
+	 * 	Another Node
+	 *
+	 * @return
+	 * 	True if the subtrees of a and b are identical
+	 */
+	private static boolean same(StoryTreeNode a, StoryTreeNode b) {
+		return a.getLeftChild() == b.getLeftChild() && a.getMiddleChild() == b.getMiddleChild()
+				&& a.getRightChild() == b.getRightChild() && a.getOption().equals(b.getOption())
+				&& a.getMessage().equals(b.getMessage());
+	}
+
+	/**Hashes the text of a Node and the identity of its children
+	 *
+	 * @param node
+	 * 	The Node to hash
+	 *
+	 * @return
+	 * 	The hash, with its high bits spread into the low bits used by the table
+	 */
+	private static int hash(StoryTreeNode node) {
+		int hash = 31 * node.getOption().hashCode() + node.getMessage().hashCode();
+		hash = 31 * hash + System.identityHashCode(node.getLeftChild());
+		hash = 31 * hash + System.identityHashCode(node.getMiddleChild());
+		hash = 31 * hash + System.identityHashCode(node.getRightChild());
+		return hash ^ (hash >>> 16);
+	}
+}
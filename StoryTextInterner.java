@@ -0,0 +1,170 @@
+/**This class makes equal options and messages of one StoryTree share a single String.
+ * While a story is loaded every distinct String is kept in a table, so all the equal
+ * text of the file is shared. Kept afterwards the table would take more heap than it
+ * saves, so finishLoading drops it. Otherwise, as for the text of edits, Strings are
+ * shared through a small table of recent ones, which never holds on to more than a few
+ * replaced or removed Strings. It counts every String passed through it and estimates
+ * how many bytes of heap sharing saved compared to keeping a separate copy of each one.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.util.HashMap;
+
+public class StoryTextInterner {
+	private static final int STRING_OVERHEAD = 24; //Bytes of a String object without its contents
+	private static final int ARRAY_OVERHEAD = 16; //Bytes of the header of the byte array holding the contents
+	private static final int RECENT_SIZE = 256; //The number of recent Strings kept outside a load, a power of 2
+
+	private HashMap<String, String> table; //Maps each distinct String to the instance that is shared, null unless a story is loading
+	private String[] recent; //recent[h] is the last String interned outside a load whose hash picks slot h
+	private long stringCount; //The number of Strings passed through intern
+	private long distinctCount; //The number of those which were not equal to a shared instance
+	private long duplicateCount; //The number of those which were already in the table
+	private long bytesSaved; //The estimated heap bytes not spent on duplicates
+
+	/**Creates an interner which shares Strings through the recent ones until a load starts
+	 */
+	public StoryTextInterner() {
+		table = null;
+		recent = new String[RECENT_SIZE];
+		stringCount = 0;
+		distinctCount = 0;
+		duplicateCount = 0;
+		bytesSaved = 0;
+	}
+
+	/**Returns the shared instance of a String, making text the shared instance if it is new
+	 *
+	 * @param text
+	 * 	The String to share
+	 *
+	 * @Precondition:
+	 * 	text is not null
+	 *
+	 * @return
+	 * 	A String equal to text, the one passed in before it if that one is still kept
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates text is null
+	 */
+	public String intern(String text) {
+		if (text == null)
+			throw new IllegalArgumentException();
+		stringCount++;
+		String shared;
+		if (table != null) {
+			shared = table.putIfAbsent(text, text);
+		} else {
+			int slot = spread(text.hashCode()) & (RECENT_SIZE - 1);
+			shared = text.equals(recent[slot]) ? recent[slot] : null;
+			recent[slot] = shared == null ? text : shared;
+		}
+		if (shared == null) {
+			distinctCount++;
+			return text;
+		}
+		if (shared != text) {
+			duplicateCount++;
+			bytesSaved += heapSize(text);
+		}
+		return shared;
+	}
+
+	/**Starts keeping every distinct String interned, so each one is shared with all the
+	 * equal Strings of the story being loaded
+	 *
+	 * @Postcondition:
+	 * 	Strings are shared through a table of every distinct String until finishLoading is called
+	 */
+	public void startLoading() {
+		if (table == null)
+			table = new HashMap<String, String>();
+	}
+
+	/**Drops the table of every distinct String once the story is loaded, so only the counts
+	 * and a few recent Strings are kept. Text interned later is shared with the recent
+	 * Strings alone
+	 *
+	 * @Postcondition:
+	 * 	The Strings seen while loading are no longer held by this interner
+	 */
+	public void finishLoading() {
+		table = null;
+	}
+
+	/**Returns the number of Strings passed through the table
+	 *
+	 * @return
+	 * 	The number of calls to intern
+	 */
+	public long getStringCount() {
+		return stringCount;
+	}
+
+	/**Returns the number of Strings which were not replaced with an equal shared instance
+	 *
+	 * @return
+	 * 	The number of Strings kept as they were passed in
+	 */
+	public long getDistinctCount() {
+		return distinctCount;
+	}
+
+	/**Returns the number of Strings that were replaced with an equal shared instance
+	 *
+	 * @return
+	 * 	The number of duplicates found
+	 */
+	public long getDuplicateCount() {
+		return duplicateCount;
+	}
+
+	/**Returns an estimate of the heap saved by sharing
+	 *
+	 * @return
+	 * 	The bytes the duplicates would have taken as separate Strings
+	 */
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	/**Returns the counts as a one line report
+	 *
+	 * @return
+	 * 	How many Strings were seen, how many were duplicates and the bytes saved
+	 */
+	public String toString() {
+		return stringCount + " strings, " + distinctCount + " distinct, " + duplicateCount
+				+ " duplicates shared, about " + bytesSaved + " bytes saved";
+	}
+
+	/**Mixes the high bits of a hash into the low bits the recent Strings are picked by
+	 *
+	 * @param hash
+	 * 	The hash code of a String
+	 *
+	 * @return
+	 * 	The mixed hash
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**Estimates the heap taken by a String, which stores its contents as one byte a character
+	 * when every character is Latin-1 and two bytes a character otherwise
+	 *
+	 * @param text
+	 * 	The String to measure
+	 *
+	 * @return
+	 * 	The bytes of the String object and its array, rounded up to 8 like the JVM does
+	 */
+	private static long heapSize(String text) {
+		int bytesPerChar = 1;
+		for (int x = 0; x < text.length() && bytesPerChar == 1; x++) {
+			if (text.charAt(x) > 0xFF)
+				bytesPerChar = 2;
+		}
+		return STRING_OVERHEAD + ((ARRAY_OVERHEAD + (long) text.length() * bytesPerChar + 7) & ~7L);
+	}
+}
@@ -0,0 +1,189 @@
+/**This class reads a StoryTree from a textfile in the "position | option | message" format.
+ * The file is read once through a buffered FileChannel and each line is linked into the
+ * tree as soon as it is parsed. Equal options and messages share one String through the
+ * tree's StoryTextInterner, and identical subtrees are shared as they are finished.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+
+public class StoryTextReader {
+	private static final int BUFFER_SIZE = 1 << 16; //Bytes read from the channel at a time
+
+	private StoryTreeBuilder builder; //Links the parsed lines into a tree
+	private long lineCounter; //The number of the line being parsed
+
+	/**Creates a reader that builds a new StoryTree
+	 */
+	public StoryTextReader() {
+		builder = new StoryTreeBuilder(true);
+		lineCounter = 0;
+	}
+
+	/**Reads the indicated textfile and returns the StoryTree it describes
+	 *
+	 * @param filename
+	 * 	The textfile to read
+	 *
+	 * @Precondition:
+	 * 	filename is nonnull and nonempty
+	 *
+	 * @return
+	 * 	The StoryTree made from the textfile
+	 *
+	 * @exception FileNotFoundException
+	 * 	Indicates the file is not found
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates a line of the file does not follow the expected format, the message names the line
+	 */
+	public StoryTree read(String filename) throws IOException, DataFormatException {
+		try (FileInputStream input = new FileInputStream(filename);
+				FileChannel channel = input.getChannel()) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			boolean endOfFile = false;
+			int scanned = 0; //Bytes of the buffer already searched for a line break
+
+			while (!endOfFile) {
+				endOfFile = channel.read(buffer) == -1;
+				byte[] bytes = buffer.array();
+				int lineStart = 0;
+				int end = buffer.position();
+
+				for (int x = scanned; x < end; x++) {
+					if (bytes[x] == '\n') {
+						parseLine(buffer, lineStart, x);
+						lineStart = x + 1;
+					}
+				}
+				if (endOfFile && lineStart < end) {
+					parseLine(buffer, lineStart, end);
+					lineStart = end;
+				}
+
+				buffer.flip();
+				buffer.position(lineStart);
+				buffer.compact();
+				scanned = buffer.position();
+				if (!buffer.hasRemaining()) {
+					ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+					buffer.flip();
+					larger.put(buffer);
+					buffer = larger;
+				}
+			}
+		}
+		return getTree();
+	}
+
+	/**Parses one line of the file and adds its node to the tree
+	 *
+	 * @param buffer
+	 * 	The buffer holding the line
+	 *
+	 * @param start
+	 * 	The index of the first byte of the line
+	 *
+	 * @param end
+	 * 	The index just past the last byte of the line, not including the line break
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the line is not in the "position | option | message" format
+	 */
+	private void parseLine(ByteBuffer buffer, int start, int end) throws DataFormatException {
+		lineCounter++;
+		if (end > start && buffer.get(end - 1) == '\r')
+			end--;
+		if (end == start)
+			return;
+
+		int optionStart = findDelimiter(buffer, start, end);
+		int messageStart = optionStart < 0 ? -1 : findDelimiter(buffer, optionStart, end);
+		if (messageStart < 0)
+			throw new DataFormatException("Line " + lineCounter + ": expected \"position | option | message\"");
+
+		addLine(buffer, start, optionStart - 3, optionStart, messageStart - 3, messageStart, end, lineCounter);
+	}
+
+	/**Adds the node of a parsed line to the tree
+	 *
+	 * @param buffer
+	 * 	The heap buffer holding the line
+	 *
+	 * @param positionStart
+	 * 	The index of the first byte of the position
+	 *
+	 * @param positionEnd
+	 * 	The index just past the last byte of the position
+	 *
+	 * @param optionStart
+	 * 	The index of the first byte of the option
+	 *
+	 * @param optionEnd
+	 * 	The index just past the last byte of the option
+	 *
+	 * @param messageStart
+	 * 	The index of the first byte of the message
+	 *
+	 * @param messageEnd
+	 * 	The index just past the last byte of the message
+	 *
+	 * @param lineNumber
+	 * 	The number of the line, used in error messages
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the position does not follow the previous line in preorder
+	 */
+	protected void addLine(ByteBuffer buffer, int positionStart, int positionEnd, int optionStart, int optionEnd,
+			int messageStart, int messageEnd, long lineNumber) throws DataFormatException {
+		byte[] bytes = buffer.array();
+		StoryTextInterner interner = builder.getInterner();
+		StoryTreeNode newNode = new StoryTreeNode();
+		newNode.setOption(interner.intern(new String(bytes, optionStart, optionEnd - optionStart, StandardCharsets.UTF_8)));
+		newNode.setMessage(interner.intern(new String(bytes, messageStart, messageEnd - messageStart, StandardCharsets.UTF_8)));
+		builder.addNode(buffer, positionStart, positionEnd, newNode, lineNumber);
+	}
+
+	/**Returns the tree made from the lines read
+	 *
+	 * @return
+	 * 	The finished StoryTree
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the file held no lines
+	 */
+	protected StoryTree getTree() throws DataFormatException {
+		return builder.getTree();
+	}
+
+	/**Finds the next " | " delimiter within a line
+	 *
+	 * @param bytes
+	 * 	The bytes holding the line
+	 *
+	 * @param from
+	 * 	The index to start searching from
+	 *
+	 * @param end
+	 * 	The index just past the end of the line
+	 *
+	 * @return
+	 * 	The index just past the delimiter, or -1 if there is none
+	 */
+	public static int findDelimiter(ByteBuffer bytes, int from, int end) {
+		for (int x = from; x + 2 < end; x++) {
+			if (bytes.get(x) == ' ' && bytes.get(x + 1) == '|' && bytes.get(x + 2) == ' ')
+				return x + 3;
+		}
+		return -1;
+	}
+}
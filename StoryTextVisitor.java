@@ -0,0 +1,32 @@
+/**This interface represents an action taken on each Node of a story as a StoryTree walks
+ * itself in preorder. It is given the place and text of the Node rather than the Node, so
+ * a tree which keeps its story in arrays or in a file is walked without making any Nodes.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+
+interface StoryTextVisitor {
+
+	/**Called once for each Node of the story, a Node before its children
+	 *
+	 * @param depth
+	 * 	The depth of the Node below the beginning of the story, which has a depth of 0
+	 *
+	 * @param childNumber
+	 * 	1, 2 or 3 if the Node is the left, middle or right child of its parent, 0 for the beginning of the story
+	 *
+	 * @param numChildren
+	 * 	The number of children of the Node
+	 *
+	 * @param option
+	 * 	The option of the Node
+	 *
+	 * @param message
+	 * 	The message of the Node
+	 *
+	 * @exception IOException
+	 * 	Indicates the action could not write what it was given
+	 */
+	void visit(int depth, int childNumber, int numChildren, String option, String message) throws IOException;
+}
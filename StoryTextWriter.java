@@ -0,0 +1,150 @@
+/**This class writes a StoryTree to a textfile in the "position | option | message" format.
+ * The tree walks itself once in preorder and each line is encoded straight into a buffer
+ * that is flushed to a FileChannel whenever it fills, so no array of the nodes is built.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class StoryTextWriter {
+	private static final int BUFFER_SIZE = 1 << 16; //Bytes buffered before writing to the channel
+	private static final byte[] DELIMITER = {' ', '|', ' '}; //Separates the parts of a line
+
+	private FileChannel channel; //The file being written
+	private ByteBuffer buffer; //The bytes not yet written to the channel
+	private byte[] position; //The position of the last node written, such as 1-2-3
+	private boolean firstLine; //Whether no line has been written yet
+
+	/**Creates a writer for the indicated file, replacing whatever it holds
+	 *
+	 * @param output
+	 * 	The open file to write to
+	 */
+	private StoryTextWriter(FileOutputStream output) {
+		channel = output.getChannel();
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		position = new byte[64];
+		firstLine = true;
+	}
+
+	/**Writes a StoryTree to the indicated textfile and forces it to disk
+	 *
+	 * @param filename
+	 * 	The file to write to
+	 *
+	 * @param tree
+	 * 	The tree to write
+	 *
+	 * @Precondition:
+	 * 	filename is nonnull and nonempty
+	 * 	tree is nonnull
+	 *
+	 * @exception FileNotFoundException
+	 * 	Indicates filename doesn't point to an accesible file
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	public static void write(String filename, StoryTree tree) throws IOException {
+		try (FileOutputStream output = new FileOutputStream(filename)) {
+			StoryTextWriter writer = new StoryTextWriter(output);
+			tree.walkStory((depth, childNumber, numChildren, option, message) -> writer.writeLine(depth, childNumber, option, message));
+			writer.flush();
+			writer.channel.force(true);
+		}
+	}
+
+	/**Writes the line of one node
+	 *
+	 * @param depth
+	 * 	The depth of the node below the beginning of the story
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the node is, 0 for the beginning of the story
+	 *
+	 * @param option
+	 * 	The option of the node
+	 *
+	 * @param message
+	 * 	The message of the node
+	 *
+	 * @Precondition:
+	 * 	The nodes are written in preorder, so the position of the parent is the start of position
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	void writeLine(int depth, int childNumber, String option, String message) throws IOException {
+		int length = 2 * depth + 1;
+		if (length > position.length)
+			position = Arrays.copyOf(position, Math.max(length, position.length * 2));
+		if (depth > 0)
+			position[length - 2] = '-';
+		position[length - 1] = (byte) ('0' + (depth == 0 ? 1 : childNumber));
+
+		if (!firstLine)
+			put((byte) '\n');
+		firstLine = false;
+		put(position, length);
+		put(DELIMITER, DELIMITER.length);
+		byte[] optionBytes = option.getBytes(StandardCharsets.UTF_8);
+		put(optionBytes, optionBytes.length);
+		put(DELIMITER, DELIMITER.length);
+		byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+		put(messageBytes, messageBytes.length);
+	}
+
+	/**Adds one byte to the buffer, writing the buffer out first if it is full
+	 *
+	 * @param value
+	 * 	The byte to add
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	private void put(byte value) throws IOException {
+		if (!buffer.hasRemaining())
+			flush();
+		buffer.put(value);
+	}
+
+	/**Adds bytes to the buffer, writing the buffer out each time it fills
+	 *
+	 * @param bytes
+	 * 	The bytes to add
+	 *
+	 * @param length
+	 * 	How many of the bytes to add, starting from the first
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	private void put(byte[] bytes, int length) throws IOException {
+		int offset = 0;
+		while (offset < length) {
+			if (!buffer.hasRemaining())
+				flush();
+			int count = Math.min(buffer.remaining(), length - offset);
+			buffer.put(bytes, offset, count);
+			offset += count;
+		}
+	}
+
+	/**Writes the buffered bytes to the channel
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
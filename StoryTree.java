@@ -5,16 +5,26 @@
  */
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.zip.DataFormatException;
 
-public class StoryTree {
+public class StoryTree implements StoryCursor {
 	private StoryTreeNode root; //The root of the tree
 	private StoryTreeNode cursor; //The currently selected Node of the tree
-	private GameState state; //The state of the game at any time
-	private StoryTreeNode[] nodes; //An array of the nodes in the tree in preorder
-	private int counter;
+	private StoryTreeNode[] ancestors; //ancestors[d] is the Node at depth d on the path from root to the cursor
+	private int[] slots; //slots[d] is which child of ancestors[d - 1] ancestors[d] is, since a shared Node can be several
+	private int cursorDepth; //The depth of the cursor, so cursor == ancestors[cursorDepth]
+	private StoryTextInterner interner; //Shares equal options and messages of this tree
+	private StoryJournal journal; //Records the edits made to this tree, null if they aren't kept
 	
 	/**Creates an instance of an empty StoryTree with only the root node
 	 * 
@@ -22,13 +32,29 @@ public class StoryTree {
 	 * 	The root node has been initialized and the cursor points to the root
 	 */
 	public StoryTree() {
+		this(true);
+	}
+	
+	/**Creates an instance of an empty StoryTree, or the base of a subclass which keeps its
+	 * story in structures of its own and overrides every method that reads the Nodes
+	 * 
+	 * @param keepsNodes
+	 * 	True to make the root Node, cursor path and interner of a StoryTree,
+	 * 	false to make none of them, so getRoot and getInterner return null
+	 */
+	StoryTree(boolean keepsNodes) {
+		if (!keepsNodes)
+			return;
 		root = new StoryTreeNode();
-		root.setPosition("root");
 		root.setOption("root");
 		root.setMessage("Hello, welcome to Zork!");
 		
 		cursor = root;
-		counter = 0;
+		ancestors = new StoryTreeNode[16];
+		ancestors[0] = root;
+		slots = new int[16];
+		cursorDepth = 0;
+		interner = new StoryTextInterner();
 	}
 	
 	/**Reads a textfile for a StoryTree, crafts it, and returns it
@@ -45,69 +71,74 @@ public class StoryTree {
 	 * @exception FileNotFoundException 
 	 * 	Indicates the passed file is not found
 	 * 
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 * 
 	 * @exception IllegalArgumentException
 	 * 	filename is empty or null
 	 * 
 	 * @exception DataFormatException()
-	 * 	Indicates file data is inconsistant with expected data format
-	 * @throws TreeFullException 
+	 * 	Indicates file data is inconsistant with expected data format, the message names the bad line
 	 */
-	public static StoryTree readTree(String filename) throws FileNotFoundException, DataFormatException, TreeFullException {
-		if (filename == null || filename.isBlank())
+	public static StoryTree readTree(String filename) throws IOException, DataFormatException {
+		return readTree(filename, StoryLoadMode.HEAP);
+	}
+	
+	/**Reads a textfile for a StoryTree in the indicated mode, crafts it, and returns it
+	 * 
+	 * @param filename
+	 * 	The textfile name to be read
+	 * 
+	 * @param mode
+	 * 	HEAP to decode all of the text while loading, MAPPED to leave it in the memory-mapped file,
+	 * 	OFF_HEAP to copy it into direct buffers, COMPACT to load it into a CompactStoryTree.
+	 * 	Binary and indexed story files are recognized by their magic bytes and loaded onto the heap,
+	 * 	except that LAZY opens an indexed file as an IndexedStoryTree; LAZY loads any other file onto the heap.
+	 * 	Any edits in the file's journal are then replayed over the story
+	 * 
+	 * @Precondition:
+	 * 	filename is a nonnull, nonempty String that points to a textfile
+	 * 	mode is not null
+	 * 
+	 * @return
+	 * 	A StoryTree made from the textfile
+	 * 
+	 * @exception FileNotFoundException 
+	 * 	Indicates the passed file is not found
+	 * 
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 * 
+	 * @exception IllegalArgumentException
+	 * 	filename is empty or null, or mode is null
+	 * 
+	 * @exception DataFormatException()
+	 * 	Indicates file data is inconsistant with expected data format, the message names the bad line,
+	 * 	or an edit in the journal does not fit the story
+	 */
+	public static StoryTree readTree(String filename, StoryLoadMode mode) throws IOException, DataFormatException {
+		if (filename == null || filename.isBlank() || mode == null)
 			throw new IllegalArgumentException();
-		if (!hasValidFormat(filename))
-			throw new DataFormatException();
-		Scanner file = new Scanner(new File(filename));
-		if (!file.hasNextLine())
-			throw new DataFormatException();
-		
-		StoryTree tree = new StoryTree();
-		StoryTreeNode newNode = new StoryTreeNode();
-		StoryTreeNode pointer = new StoryTreeNode();
-		String data[];
-		int index = 2;
-		int childNumber;
-		int lineCounter = 1;
-		
-		data = file.nextLine().split(" \\| ");
-		tree.addChild(data[1], data[2]);
-		
-		while (file.hasNextLine()) {
-			newNode = new StoryTreeNode();
-			data = file.nextLine().split(" \\| ");
-			newNode.setPosition(data[0]);
-			newNode.setOption(data[1]);
-			newNode.setMessage(data[2]);
-			
-			pointer = tree.getStoryRoot();
-			index = 2;
-			while (index < data[0].length() - 2) {
-				childNumber = data[0].charAt(index) - '0';
-				if (childNumber == 1)
-					pointer = pointer.getLeftChild();
-				if (childNumber == 2)
-					pointer = pointer.getMiddleChild();
-				if (childNumber == 3)
-					pointer = pointer.getRightChild();
-				index += 2;
-			}
-			
-			childNumber = data[0].charAt(index) - '0';
-			if (childNumber == 1)
-				pointer.setLeftChild(newNode);
-			if (childNumber == 2)
-				pointer.setMiddleChild(newNode);
-			if (childNumber == 3)
-				pointer.setRightChild(newNode);
-			lineCounter++;
-		}
-		
-		file.close();
-		tree.resetCursor();
+		StoryTree tree;
+		StoryFormat format = formatOf(filename);
+		if (format == StoryFormat.BINARY)
+			tree = BinaryStoryFormat.read(filename);
+		else if (format == StoryFormat.INDEXED)
+			tree = mode == StoryLoadMode.LAZY ? IndexedStoryTree.open(filename) : IndexedStoryFormat.read(filename);
+		else if (mode == StoryLoadMode.MAPPED)
+			tree = new MappedStoryReader().read(filename);
+		else if (mode == StoryLoadMode.OFF_HEAP)
+			tree = new OffHeapStoryReader().read(filename);
+		else if (mode == StoryLoadMode.COMPACT)
+			tree = new CompactStoryReader().read(filename);
+		else
+			tree = new StoryTextReader().read(filename);
+		StoryJournal.replay(filename, tree);
 		return tree;
 	}
 	
-	/**Saves a tree to the specified textfile in the proper format
+	/**Saves a tree to the specified file in the format the file already has.
+	 * A file that doesn't exist yet or holds a text story is saved as text
 	 * 
 	 * @param filename
 	 * 	The file to save the tree to
@@ -125,36 +156,259 @@ public class StoryTree {
 	 * 
 	 * @exception FileNotFoundException
 	 * 	Indicates filename doesn't point to an accesible file
+	 * 
+	 * @exception IOException
+	 * 	Indicates the file could not be written
 	 */
-	public static void saveTree(String filename, StoryTree tree) throws FileNotFoundException {
-		tree.setNodeArraySize();
-		tree.getNodes(tree.getStoryRoot());
-		StoryTreeNode[] nodes = tree.getNodesArray();
-		
-		if (nodes.length == 0) {
-			PrintWriter file = new PrintWriter(filename);
-			file.close();
+	public static void saveTree(String filename, StoryTree tree) throws IOException {
+		if (filename == null || filename.isBlank())
+			throw new IllegalArgumentException();
+		saveTree(filename, tree, formatOf(filename));
+	}
+	
+	/**Returns the format of a story file, recognizing binary and indexed files by their magic bytes
+	 * 
+	 * @param filename
+	 * 	The file to check
+	 * 
+	 * @return
+	 * 	BINARY or INDEXED if the file starts with the magic bytes of that format, TEXT otherwise,
+	 * 	including when the file doesn't exist
+	 * 
+	 * @exception IOException
+	 * 	Indicates the file exists but could not be read
+	 */
+	static StoryFormat formatOf(String filename) throws IOException {
+		if (BinaryStoryFormat.isBinary(filename))
+			return StoryFormat.BINARY;
+		if (IndexedStoryFormat.isIndexed(filename))
+			return StoryFormat.INDEXED;
+		return StoryFormat.TEXT;
+	}
+	
+	/**Saves a tree to the specified file in the indicated format. The tree is written
+	 * to a temporary file beside it which then replaces the file in one rename, so a
+	 * failed or interrupted save leaves the old story in place. If the tree keeps a
+	 * journal of that file, the journal is compacted into it instead
+	 * 
+	 * @param filename
+	 * 	The file to save the tree to
+	 * 
+	 * @param tree
+	 * 	The reference to the tree to be saved to the file
+	 * 
+	 * @param format
+	 * 	TEXT for the "position | option | message" format, BINARY for the compact format,
+	 * 	INDEXED for the format that can be read one Node at a time
+	 * 
+	 * @Precondition:
+	 * 	tree is nonull
+	 * 	filename is nonnull and nonempty
+	 * 	format is nonnull
+	 * 
+	 * @Postcondition:
+	 * 	filename holds either the whole new tree or, if the save failed, what it held before
+	 * 
+	 * @exception IllegalArgumentException
+	 * 	filename is empty or null
+	 * 	tree or format is null
+	 * 
+	 * @exception FileNotFoundException
+	 * 	Indicates filename doesn't point to an accesible file
+	 * 
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	public static void saveTree(String filename, StoryTree tree, StoryFormat format) throws IOException {
+		if (filename == null || filename.isBlank() || tree == null || format == null)
+			throw new IllegalArgumentException();
+		if (tree.journal != null && tree.journal.isJournalOf(filename)) {
+			tree.journal.compact(format);
 			return;
 		}
-		PrintWriter file = new PrintWriter(filename);
-		for (int x = 0; x < nodes.length - 1; x++) 
-			file.write(nodes[x].getPosition() + " | " + nodes[x].getOption()
-					+ " | " + nodes[x].getMessage() + "\n");
-		file.write(nodes[nodes.length - 1].getPosition() + " | " + nodes[nodes.length - 1].getOption()
-				+ " | " + nodes[nodes.length - 1].getMessage());
-		file.close();
+		Path target = Paths.get(filename).toAbsolutePath();
+		Path temp = writeTemp(target, tree, format);
+		try {
+			replace(temp, target);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	/**Writes a tree to a new temporary file beside the file it is meant to replace
+	 * 
+	 * @param target
+	 * 	The file the tree will replace, whose permissions the temporary file is given
+	 * 
+	 * @param tree
+	 * 	The tree to write
+	 * 
+	 * @param format
+	 * 	The format to write it in
+	 * 
+	 * @return
+	 * 	The temporary file, forced to disk, which the caller must move or delete
+	 * 
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	static Path writeTemp(Path target, StoryTree tree, StoryFormat format) throws IOException {
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+		try {
+			if (Files.exists(target)) {
+				try {
+					Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+				} catch (UnsupportedOperationException e) {
+					//Not a POSIX file system, the temporary file keeps its defaults
+				}
+			}
+			if (format == StoryFormat.BINARY)
+				BinaryStoryFormat.write(temp.toString(), tree);
+			else if (format == StoryFormat.INDEXED)
+				IndexedStoryFormat.write(temp.toString(), tree);
+			else
+				StoryTextWriter.write(temp.toString(), tree);
+			return temp;
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
 	}
 	
-	/**Returns the game state of the StoryTree
+	/**Replaces a file with another in one rename where the file system allows it
+	 * 
+	 * @param source
+	 * 	The file to move
+	 * 
+	 * @param target
+	 * 	The file to replace
+	 * 
+	 * @exception IOException
+	 * 	Indicates the file could not be moved
+	 */
+	static void replace(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**Returns the story as it is now in a tree that later edits to this tree don't change,
+	 * so it can be written out on another thread while this tree is edited. The story is
+	 * shared copy-on-write, so nothing is copied until the next edit copies its path
+	 * 
+	 * @return
+	 * 	A tree holding the story as it is now; it must not be edited
+	 */
+	StoryTree snapshot() {
+		StoryTree snapshot = new StoryTree();
+		snapshot.root.setLeftChild(new SharedStory(this).getStoryNodes());
+		return snapshot;
+	}
+	
+	/**Returns whether or not this tree keeps its story in StoryTreeNodes, so getStoryRoot
+	 * returns its own Nodes rather than a copy of the whole story
+	 * 
+	 * @return
+	 * 	True for a StoryTree, false for a subclass which keeps its story in structures of its own
+	 */
+	boolean keepsNodes() {
+		return root != null;
+	}
+	
+	/**Starts keeping the edits made to this tree in the journal of the file it was read from,
+	 * so they are saved as they are made without rewriting the file
+	 * 
+	 * @param filename
+	 * 	The file this tree was read from
 	 * 
 	 * @Precondition:
-	 * 	state is not null
+	 * 	This tree was read from filename and has not been edited since
+	 * 
+	 * @Postcondition:
+	 * 	Every later edit is appended to the journal of filename
+	 * 
+	 * @exception IllegalArgumentException
+	 * 	Indicates filename is empty or null
+	 * 
+	 * @exception IllegalStateException
+	 * 	Indicates this tree already keeps a journal
+	 * 
+	 * @exception IOException
+	 * 	Indicates filename doesn't exist or its journal could not be opened
+	 */
+	public void openJournal(String filename) throws IOException {
+		if (filename == null || filename.isBlank())
+			throw new IllegalArgumentException();
+		if (journal != null)
+			throw new IllegalStateException("This tree already keeps a journal");
+		journal = StoryJournal.open(filename, this);
+	}
+	
+	/**Forces every edit to disk and stops keeping a journal
+	 * 
+	 * @exception IOException
+	 * 	Indicates the journal could not be written
+	 */
+	public void closeJournal() throws IOException {
+		if (journal == null)
+			return;
+		try {
+			journal.close();
+		} finally {
+			journal = null;
+		}
+	}
+	
+	/**Returns the journal edits to this tree are kept in
 	 * 
 	 * @return
-	 * 	The current state of the game
+	 * 	The open journal, or null if edits aren't kept
+	 */
+	public StoryJournal getJournal() {
+		return journal;
+	}
+	
+	/**Appends an edit which has just been made to the journal, if there is one
+	 * 
+	 * @param op
+	 * 	The kind of edit, one of the entry kinds of StoryJournal
+	 * 
+	 * @param position
+	 * 	The position of the cursor when the edit was made
+	 * 
+	 * @param childNumber
+	 * 	The child removed, 0 for the other edits
+	 * 
+	 * @param first
+	 * 	The option or message set, or the option added
+	 * 
+	 * @param second
+	 * 	The message added, null for the other edits
+	 * 
+	 * @exception UncheckedIOException
+	 * 	Indicates the journal could not be written, so the edit was made but not saved
+	 */
+	void record(byte op, String position, int childNumber, String first, String second) {
+		if (journal == null)
+			return;
+		try {
+			journal.append(op, position, childNumber, first, second);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**Returns the game state of the StoryTree, worked out from where the cursor is
+	 * 
+	 * @return
+	 * 	GAME_OVER_WIN or GAME_OVER_LOSE if the cursor is at a winning or losing leaf of the story, GAME_NOT_OVER otherwise
 	 */
 	public GameState getGameState() {
-		return state;
+		if (cursor == root || !cursor.isLeaf())
+			return GameState.GAME_NOT_OVER;
+		return cursor.isWinningNode() ? GameState.GAME_OVER_WIN : GameState.GAME_OVER_LOSE;
 	}
 	
 	/**Returns the position of the cursor within the tree
@@ -163,7 +417,15 @@ public class StoryTree {
 	 * 	The position of the cursor in the tree
 	 */
 	public String getCursorPosition() {
-		return cursor.getPosition();
+		if (cursorDepth == 0)
+			return "root";
+		StringBuilder position = new StringBuilder(2 * cursorDepth - 1);
+		for (int level = 0; level < cursorDepth; level++) {
+			if (level > 0)
+				position.append('-');
+			position.append(slots[level + 1]);
+		}
+		return position.toString();
 	}
 	
 	/**Returns the option of the cursor
@@ -191,20 +453,21 @@ public class StoryTree {
 	 */
 	public String[][] getOptions() {
 		String[][] options = new String[cursor.getNumChildren()][2];
+		String position = cursorDepth == 0 ? "" : getCursorPosition() + "-";
 		int index = 0;
 		
 		if (cursor.getLeftChild() != null) {
-			options[index][0] = cursor.getLeftChild().getPosition();
+			options[index][0] = position + 1;
 			options[index][1] = cursor.getLeftChild().getOption();
 			index++;
 		}
 		if (cursor.getMiddleChild() != null) {
-			options[index][0] = cursor.getMiddleChild().getPosition();
+			options[index][0] = position + 2;
 			options[index][1] = cursor.getMiddleChild().getOption();
 			index++;
 		}
 		if (cursor.getRightChild() != null) {
-			options[index][0] = cursor.getRightChild().getPosition();
+			options[index][0] = position + 3;
 			options[index][1] = cursor.getRightChild().getOption();
 			index++;
 		}
@@ -212,13 +475,40 @@ public class StoryTree {
 		return options;
 	}
 	
+	/**Fills a StoryOptions with the option of each child of the cursor, so the same one can be reused every step
+	 * 
+	 * @param options
+	 * 	The options to fill
+	 * 
+	 * @return
+	 * 	options, holding the option of each child of the cursor in order
+	 * 
+	 * @exception IllegalArgumentException
+	 * 	Indicates options is null
+	 */
+	public StoryOptions getOptions(StoryOptions options) {
+		if (options == null)
+			throw new IllegalArgumentException();
+		options.clear();
+		if (cursor.getLeftChild() != null)
+			options.add(cursor.getLeftChild().getOption());
+		if (cursor.getMiddleChild() != null)
+			options.add(cursor.getMiddleChild().getOption());
+		if (cursor.getRightChild() != null)
+			options.add(cursor.getRightChild().getOption());
+		return options;
+	}
+	
 	/**Changes the cursor's message
 	 * 
 	 * @param message
 	 * 	The new message to be set as the cursor's message
 	 */
 	public void setCursorMessage(String message) {
-		cursor.setMessage(message);
+		unshareCursorPath();
+		cursor.setMessage(message == null ? null : interner.intern(message));
+		updateAncestorCounts();
+		record(StoryJournal.SET_MESSAGE, getCursorPosition(), 0, message, null);
 	}
 	
 	/**Changes the cursor's option
@@ -227,7 +517,9 @@ public class StoryTree {
 	 * 	The new option to be ste as the cursor's option
 	 */
 	public void setCursorOption(String option) {
-		cursor.setOption(option);
+		unshareCursorPath();
+		cursor.setOption(option == null ? null : interner.intern(option));
+		record(StoryJournal.SET_OPTION, getCursorPosition(), 0, option, null);
 	}
 	
 	/**Resets the cursor so it points to root
@@ -238,7 +530,9 @@ public class StoryTree {
 	public void resetCursor() {
 		if (root.getNumChildren() == 0)
 			return;
-		cursor = root.getLeftChild();
+		while (cursorDepth > 0)
+			ancestors[cursorDepth--] = null;
+		moveCursorTo(root.getLeftChild(), 1);
 	}
 	
 	/**Returns whether or not cursor is referencing a leaf node
@@ -273,51 +567,105 @@ public class StoryTree {
 			throw new IllegalArgumentException();
 		if (!isValidChildOfCursor(position))
 			throw new NodeNotPresentException();
-		
-		if (position.charAt(position.length() - 1) == '1')
-			cursor = cursor.getLeftChild();
-		if (position.charAt(position.length() - 1) == '2')
-			cursor = cursor.getMiddleChild();
-		if (position.charAt(position.length() - 1) == '3')
-			cursor = cursor.getRightChild();
+		selectChild(childNumberOf(position));
 	}
 	
-	/**Sets the cursor to its parent. If the cursor is at the root, no change in made
+	/**Sets the cursor to one of its children by number, without building or parsing a position
+	 * 
+	 * @param childNumber
+	 * 	1, 2 or 3, no more than the number of children of the cursor
+	 * 
+	 * @Postcondition:
+	 * 	cursor references the indicated child
+	 * 
+	 * @exception NodeNotPresentException
+	 * 	Indicates the cursor has no such child
+	 */
+	public void selectChild(int childNumber) throws NodeNotPresentException {
+		if (childNumber < 1 || childNumber > cursor.getNumChildren())
+			throw new NodeNotPresentException();
+		if (childNumber == 1)
+			moveCursorTo(cursor.getLeftChild(), 1);
+		else if (childNumber == 2)
+			moveCursorTo(cursor.getMiddleChild(), 2);
+		else
+			moveCursorTo(cursor.getRightChild(), 3);
+	}
+	
+	/**Sets the cursor to its parent. If the cursor is at the root, no change in made.
+	 * The parent is taken from the stack of the cursor's ancestors, so this takes constant time
 	 * 
 	 * @Postcondition:
 	 * 	cursor now references its parent
 	 */
 	public void returnToParent() {
-		if (cursor == root || cursor == root.getLeftChild())
+		if (cursorDepth <= 1)
 			return;
-			
-		StoryTreeNode parent = root;
-		String parentPosition = cursor.getPosition().substring(0, cursor.getPosition().length() - 2);
-		int index = 0;
-		int childNumber = parentPosition.charAt(index) - '0';
 		
-		while (index < parentPosition.length()) {
-			childNumber = parentPosition.charAt(index) - '0';
-			if (childNumber == 1)
-				parent = parent.getLeftChild();
-			else if (childNumber == 2)
-				parent = parent.getMiddleChild();
-			else if (childNumber == 3)
-				parent = parent.getRightChild();
-			index += 2;
+		ancestors[cursorDepth--] = null;
+		cursor = ancestors[cursorDepth];
+	}
+	
+	/**Moves the cursor down to one of its children and pushes it onto the ancestor stack
+	 * 
+	 * @param child
+	 * 	The child of the cursor to move to
+	 * 
+	 * @param childNumber
+	 * 	Which child of the cursor child is
+	 * 
+	 * @Postcondition:
+	 * 	cursor references child and ancestors holds the path to it
+	 */
+	private void moveCursorTo(StoryTreeNode child, int childNumber) {
+		if (cursorDepth + 1 == ancestors.length) {
+			ancestors = Arrays.copyOf(ancestors, ancestors.length * 2);
+			slots = Arrays.copyOf(slots, slots.length * 2);
 		}
-		
-		cursor = parent;
+		ancestors[++cursorDepth] = child;
+		slots[cursorDepth] = childNumber;
+		cursor = child;
 	}
 	
-	/**For the given cursor, returns the chance of winning
+	/**For the given cursor, returns the chance of winning.
+	 * This reads the leaf counts kept on the cursor, so it takes constant time
 	 * 
 	 * @return
 	 * 	The chance of winning as dictated by the number of winning leaves 
 	 * 	divided by the number of total leaves of the subtree of the cursor
 	 */
 	public double winProbability() {
-		return ((double)getNumOfWinningNodes(cursor) / (double)getNumOfLeaves(cursor)) * 100.0;
+		return ((double)cursor.getWinningLeafCount() / (double)cursor.getLeafCount()) * 100.0;
+	}
+	
+	/**Returns the chance of winning from the cursor for a player who always makes the best choice.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 * 
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is the best one
+	 */
+	public double bestWinProbability() {
+		return cursor.getBestWinChance() * 100.0;
+	}
+	
+	/**Returns the chance of winning from the cursor for a player who chooses each option with the same chance.
+	 * This reads the chance kept on the cursor, so it takes constant time
+	 * 
+	 * @return
+	 * 	The percentage chance of winning if every choice from the cursor on is made at random
+	 */
+	public double randomWinProbability() {
+		return cursor.getRandomWinChance() * 100.0;
+	}
+	
+	/**Returns which child of the cursor a player who plays as well as possible chooses
+	 * 
+	 * @return
+	 * 	The number of the child with the greatest chance of winning under the best play,
+	 * 	the first one if several tie, or 0 if the cursor is a leaf
+	 */
+	public int bestChoice() {
+		return cursor.getBestChildNumber();
 	}
 	
 	/**Adds a new child to the current cursor with the given option and message
@@ -347,23 +695,24 @@ public class StoryTree {
 		if (cursor.getNumChildren() == 3)
 			throw new TreeFullException();
 		
-		String position = cursor.getPosition() + "-" + (cursor.getNumChildren() + 1);
+		String position = getCursorPosition();
+		unshareCursorPath();
+		int childNumber = cursor.getNumChildren() + 1;
 		StoryTreeNode newNode = new StoryTreeNode();
-		newNode.setMessage(message);
-		newNode.setOption(option);
+		newNode.setMessage(interner.intern(message));
+		newNode.setOption(interner.intern(option));
 		if (cursor == root) {
-			newNode.setPosition("1");
 			root.setLeftChild(newNode);
-			cursor = root.getLeftChild();
+			moveCursorTo(newNode, 1);
+		} else if (childNumber == 1) {
+			cursor.setLeftChild(newNode);
+		} else if (childNumber == 2) {
+			cursor.setMiddleChild(newNode);
 		} else {
-			newNode.setPosition(position);
-			if (position.charAt(position.length() - 1) == '1')
-				cursor.setLeftChild(newNode);
-			if (position.charAt(position.length() - 1) == '2')
-				cursor.setMiddleChild(newNode);
-			if (position.charAt(position.length() - 1) == '3')
-				cursor.setRightChild(newNode);
+			cursor.setRightChild(newNode);
 		}
+		updateAncestorCounts();
+		record(StoryJournal.ADD_CHILD, position, 0, option, message);
 	}
 	
 	/**Removes the immediate child the cursor as indicated. Shifts remaining children and positions to they're all left-aligned
@@ -381,13 +730,19 @@ public class StoryTree {
 	 * @return
 	 * 	A reference to the removed Node and its subtree
 	 * 
+	 * @exception IllegalArgumentException
+	 * 	Indicates position is null
+	 * 
 	 * @exception NodeNotFoundException
 	 * 	Indicates the Node references is not an appropriate child of cursor
 	 */
 	public StoryTreeNode removeChild(String position) throws NodeNotPresentException {
-		int childNumber = position.charAt(position.length() - 1) - '0';
-		if (childNumber > cursor.getNumChildren() || !isValidChildOfCursor(position))
+		if (position == null)
+			throw new IllegalArgumentException();
+		if (!isValidChildOfCursor(position))
 			throw new NodeNotPresentException();
+		int childNumber = childNumberOf(position);
+		unshareCursorPath();
 		
 		StoryTreeNode removedNode = new StoryTreeNode();
 		if (childNumber == 1) {
@@ -404,9 +759,46 @@ public class StoryTree {
 			cursor.setRightChild(null);
 		}
 		
+		updateAncestorCounts();
+		record(StoryJournal.REMOVE_CHILD, getCursorPosition(), childNumber, null, null);
 		return removedNode;
 	}
 	
+	/**Copies the Nodes on the path to the cursor from the first shared one down, so the cursor
+	 * can be edited without changing the other places a shared subtree appears
+	 * 
+	 * @Postcondition:
+	 * 	No Node from the root to the cursor is shared and cursor references the copy of itself
+	 */
+	private void unshareCursorPath() {
+		int level = 1;
+		while (level <= cursorDepth && !ancestors[level].isShared())
+			level++;
+		for (; level <= cursorDepth; level++) {
+			StoryTreeNode parent = ancestors[level - 1];
+			StoryTreeNode copy = ancestors[level].copy();
+			int childNumber = slots[level];
+			if (childNumber == 1)
+				parent.setLeftChild(copy);
+			else if (childNumber == 2)
+				parent.setMiddleChild(copy);
+			else
+				parent.setRightChild(copy);
+			ancestors[level] = copy;
+		}
+		cursor = ancestors[cursorDepth];
+	}
+	
+	/**Recomputes the leaf counts of each ancestor of the cursor after the cursor has been edited
+	 * 
+	 * @Postcondition:
+	 * 	Every Node on the path from the root to the cursor has correct leaf counts
+	 */
+	private void updateAncestorCounts() {
+		for (int level = cursorDepth - 1; level >= 0; level--)
+			ancestors[level].updateCounts();
+	}
+	
 	/**Returns whether or not the passed text file has a valid format for a StoryTree
 	 * 
 	 * @param filename
@@ -424,10 +816,11 @@ public class StoryTree {
 		if (filename == null || filename.isEmpty())
 			throw new IllegalArgumentException();
 		
-		Scanner file = new Scanner (new File(filename));
-		while (file.hasNextLine()) {
-			if (countOccurances('|', file.nextLine()) != 2)
-				return false;
+		try (Scanner file = new Scanner(new File(filename))) {
+			while (file.hasNextLine()) {
+				if (countOccurances('|', file.nextLine()) != 2)
+					return false;
+			}
 		}
 		return true;
 	}
@@ -461,9 +854,7 @@ public class StoryTree {
 	 * 	The number of nodes in the tree indicated by root
 	 */
 	public int getNumOfNodes(StoryTreeNode root) {
-		if (root == null)
-			return 0;
-		return 1 + getNumOfNodes(root.getLeftChild()) + getNumOfNodes(root.getMiddleChild()) + getNumOfNodes(root.getRightChild());
+		return (int) new StoryTreeWalker().preorder(root, (node, depth, childNumber) -> { });
 	}
 	
 	/**Returns the total number of leaves within the tree represented indicated
@@ -477,10 +868,7 @@ public class StoryTree {
 	public int getNumOfLeaves(StoryTreeNode root) {
 		if (root == null)
 			return 0;
-		if (root.isLeaf())
-			return 1;
-		else
-			return getNumOfLeaves(root.getLeftChild()) + getNumOfLeaves(root.getMiddleChild()) + getNumOfLeaves(root.getRightChild());
+		return root.getLeafCount();
 	}
 	
 	/**Returns the number of winning nodes wihtin the indicated tree
@@ -494,10 +882,7 @@ public class StoryTree {
 	public int getNumOfWinningNodes(StoryTreeNode root) {
 		if (root == null)
 			return 0;
-		if (root.isWinningNode())
-			return 1;
-		else
-			return getNumOfWinningNodes(root.getLeftChild()) + getNumOfWinningNodes(root.getMiddleChild()) + getNumOfWinningNodes(root.getRightChild());
+		return root.getWinningLeafCount();
 	}
 	
 	/**Returns the beginning Node of the story that has a position of 1
@@ -509,59 +894,155 @@ public class StoryTree {
 		return root.getLeftChild();
 	}
 	
-	/**Returns whether or not the indicated position references an existing child of the cursor
-	 * 
-	 * @param position
-	 * 	The position of the supposed child of the cursor
+	/**Returns whether or not the tree has a story, that is a Node besides the dummy root
 	 * 
 	 * @return
-	 * 	Whether or not the position's Node exists as a child of cursor
+	 * 	True if the beginning of the story exists, false if the tree is empty
 	 */
-	public boolean isValidChildOfCursor(String position) {
-		if (cursor == root || position.equals("1"))
-			return true;
-		String cursorChildOption[] = new String[cursor.getNumChildren()];
-		for (int x = 0; x < cursorChildOption.length; x++) {
-			cursorChildOption[x] = cursor.getPosition() + "-" + (x+1);
+	public boolean hasStory() {
+		return root.getLeftChild() != null;
+	}
+	
+	/**Gives the place and text of each Node of the story to a visitor in preorder
+	 * 
+	 * @param visitor
+	 * 	The action taken on each Node
+	 * 
+	 * @exception IOException
+	 * 	Indicates the visitor could not write what it was given
+	 */
+	void walkStory(StoryTextVisitor visitor) throws IOException {
+		try {
+			new StoryTreeWalker().preorder(getStoryRoot(), (node, depth, childNumber) -> {
+				try {
+					visitor.visit(depth, childNumber, node.getNumChildren(), node.getOption(), node.getMessage());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
-		
-		for (String accuratePosition : cursorChildOption) {
-			if (position.equals(accuratePosition))
-				return true;
+	}
+	
+	/**Writes the strings, shape and text indexes of the story in the binary format
+	 * 
+	 * @param out
+	 * 	The stream to write to, just past the version number
+	 * 
+	 * @exception IOException
+	 * 	Indicates the stream could not be written
+	 */
+	void writeBinary(OutputStream out) throws IOException {
+		BinaryStoryFormat.writeStory(out, this);
+	}
+	
+	/**Writes a record for each Node of the story in the indexed format, children before
+	 * their parents, and a Node shared by several parents once
+	 * 
+	 * @param records
+	 * 	The writer to give the records to
+	 * 
+	 * @return
+	 * 	The offset of the record of the beginning of the story, or NO_STORY if the tree is empty
+	 * 
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	long writeRecords(IndexedStoryFormat.RecordWriter records) throws IOException {
+		IdentityHashMap<StoryTreeNode, Long> offsets = new IdentityHashMap<StoryTreeNode, Long>();
+		StoryTreeNode storyRoot = getStoryRoot();
+		long[] children = new long[3];
+		try {
+			new StoryTreeWalker().postorder(storyRoot, (node, depth, childNumber) -> {
+				if (offsets.containsKey(node))
+					return;
+				int numChildren = 0;
+				for (StoryTreeNode child : new StoryTreeNode[] {node.getLeftChild(), node.getMiddleChild(), node.getRightChild()}) {
+					if (child != null)
+						children[numChildren++] = offsets.get(child);
+				}
+				try {
+					offsets.put(node, records.write(numChildren, node.getLeafCount(), node.getWinningLeafCount(),
+							node.getBestWinChance(), node.getRandomWinChance(), children,
+							node.getOption().getBytes(StandardCharsets.UTF_8), node.getMessage().getBytes(StandardCharsets.UTF_8)));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
-		return false;
+		return storyRoot == null ? IndexedStoryFormat.NO_STORY : offsets.get(storyRoot);
 	}
 	
-	/**Inputs the nodes in the tree indicated into an array in preorder
+	/**Returns how much text the tree shares between equal options and messages
 	 * 
-	 * @param node
-	 * 	The root of the tree to input into the array
+	 * @return
+	 * 	A one line report of the Strings seen while loading and editing, the duplicates and the bytes saved
 	 */
-	public void getNodes(StoryTreeNode node) {
-		if (node == null)
-			return;
-		
-		nodes[counter] = node;
-		counter++;
-		getNodes(node.getLeftChild());
-		getNodes(node.getMiddleChild());
-		getNodes(node.getRightChild());
+	public String getDeduplicationReport() {
+		return interner.toString();
 	}
 	
-	/**Returns the nodes array
+	/**Returns an estimate of the heap saved by sharing equal options and messages
 	 * 
 	 * @return
-	 * 	nodes array consisting of the nodes present in a tree in preorder
+	 * 	The bytes the duplicates would have taken as separate copies
 	 */
-	public StoryTreeNode[] getNodesArray() {
-		return nodes;
+	public long getBytesDeduplicated() {
+		return interner.getBytesSaved();
 	}
 	
-	/**Sets the size of the nodes array depending on how many nodes are in the tree
+	/**Returns the table that shares the text of this tree
+	 * 
+	 * @return
+	 * 	The interner every option and message of this tree goes through
 	 */
-	public void setNodeArraySize() {
-		nodes = new StoryTreeNode[getNumOfNodes(getStoryRoot())];
-		counter = 0;
+	StoryTextInterner getInterner() {
+		return interner;
+	}
+	
+	/**Returns the dummy root Node which holds the beginning of the story as its left child
+	 * 
+	 * @return
+	 * 	The dummy root of the tree
+	 */
+	StoryTreeNode getRoot() {
+		return root;
+	}
+	
+	/**Returns whether or not the indicated position references an existing child of the cursor
+	 * 
+	 * @param position
+	 * 	The position of the supposed child of the cursor
+	 * 
+	 * @return
+	 * 	Whether or not the position's Node exists as a child of cursor
+	 */
+	public boolean isValidChildOfCursor(String position) {
+		int childNumber = childNumberOf(position);
+		return childNumber != 0 && childNumber <= cursor.getNumChildren();
+	}
+	
+	/**Returns which child of the cursor the indicated position refers to, without building any Strings
+	 * 
+	 * @param position
+	 * 	The position of the supposed child, such as 1-2-3
+	 * 
+	 * @return
+	 * 	1, 2 or 3 if position is the cursor's position followed by that child number, 0 otherwise
+	 */
+	private int childNumberOf(String position) {
+		if (position.length() != 2 * cursorDepth + 1)
+			return 0;
+		for (int level = 0; level < cursorDepth; level++) {
+			if (position.charAt(2 * level) - '0' != slots[level + 1]
+					|| position.charAt(2 * level + 1) != '-')
+				return 0;
+		}
+		int childNumber = position.charAt(2 * cursorDepth) - '0';
+		return (childNumber >= 1 && childNumber <= 3) ? childNumber : 0;
 	}
 	
 	/**Returns the number of children of the cursor
@@ -0,0 +1,270 @@
+/**This class gathers all of the StoryTreeStatistics of a StoryTree in one parallel
+ * traversal on a ForkJoinPool. A subtree is split on its left, middle and right
+ * children until it has no more than SPLIT_THRESHOLD leaves, using the leaf counts
+ * each Node already keeps, and smaller subtrees are walked sequentially. A CompactStoryTree
+ * or IndexedStoryTree is split the same way where it is, on the child indexes of its
+ * arrays or the offsets in its records, rather than copied into Nodes to be split.
+ *
+ * The tree must not be edited while it is analyzed.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class StoryTreeAnalytics {
+	private static final int SPLIT_THRESHOLD = 1 << 12; //Subtrees with no more leaves than this are not split
+
+	/**Gathers the statistics of a tree on the common ForkJoinPool
+	 *
+	 * @param tree
+	 * 	The tree to analyze
+	 *
+	 * @Precondition:
+	 * 	tree is not null
+	 *
+	 * @return
+	 * 	The statistics of every Node from the beginning of the story down
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates tree is null
+	 */
+	public static StoryTreeStatistics analyze(StoryTree tree) {
+		return analyze(tree, ForkJoinPool.commonPool());
+	}
+
+	/**Gathers the statistics of a tree on the indicated ForkJoinPool
+	 *
+	 * @param tree
+	 * 	The tree to analyze
+	 *
+	 * @param pool
+	 * 	The pool whose threads do the traversal
+	 *
+	 * @Precondition:
+	 * 	tree and pool are not null
+	 *
+	 * @return
+	 * 	The statistics of every Node from the beginning of the story down
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates tree or pool is null
+	 */
+	public static StoryTreeStatistics analyze(StoryTree tree, ForkJoinPool pool) {
+		if (tree == null || pool == null)
+			throw new IllegalArgumentException();
+		if (tree instanceof SplittableStory) {
+			SplittableStory story = (SplittableStory) tree;
+			if (story.getStoryId() == SplittableStory.NO_NODE)
+				return new StoryTreeStatistics();
+			return pool.invoke(new SplitStoryTask(story, story.getStoryId(), 0, 0));
+		}
+		StoryTreeNode storyRoot = tree.getStoryRoot();
+		if (storyRoot == null)
+			return new StoryTreeStatistics();
+		return pool.invoke(new SubtreeTask(storyRoot, 0));
+	}
+
+	/**This task gathers the statistics of one subtree. It follows the child with the
+	 * most leaves itself and forks the other children, so a forked subtree has at most
+	 * half the leaves of its parent and tasks nest no deeper than the log of the leaf count
+	 */
+	private static class SubtreeTask extends RecursiveTask<StoryTreeStatistics> {
+		private static final long serialVersionUID = 1L; //RecursiveTask is Serializable, though tasks are never serialized
+
+		private StoryTreeNode subtree; //The root of the subtree to analyze
+		private int depth; //The depth of subtree below the beginning of the story
+
+		/**Creates a task for the indicated subtree
+		 *
+		 * @param subtree
+		 * 	The root of the subtree to analyze
+		 *
+		 * @param depth
+		 * 	The depth of subtree below the beginning of the story
+		 */
+		SubtreeTask(StoryTreeNode subtree, int depth) {
+			this.subtree = subtree;
+			this.depth = depth;
+		}
+
+		/**Gathers the statistics of the subtree
+		 *
+		 * @return
+		 * 	The statistics of every Node of the subtree
+		 */
+		protected StoryTreeStatistics compute() {
+			StoryTreeStatistics statistics = new StoryTreeStatistics();
+			ArrayList<SubtreeTask> forked = new ArrayList<SubtreeTask>();
+			StoryTreeNode node = subtree;
+			int nodeDepth = depth;
+
+			while (node.getLeafCount() > SPLIT_THRESHOLD) {
+				statistics.add(node, nodeDepth);
+				StoryTreeNode largest = largestChild(node);
+				forkUnless(node.getLeftChild(), largest, nodeDepth + 1, forked);
+				forkUnless(node.getMiddleChild(), largest, nodeDepth + 1, forked);
+				forkUnless(node.getRightChild(), largest, nodeDepth + 1, forked);
+				node = largest;
+				nodeDepth++;
+			}
+			int offset = nodeDepth;
+			new StoryTreeWalker().preorder(node, (visited, walkDepth, childNumber) -> statistics.add(visited, offset + walkDepth));
+
+			for (int x = forked.size() - 1; x >= 0; x--)
+				statistics.merge(forked.get(x).join());
+			return statistics;
+		}
+
+		/**Forks a task for a child unless it is null or the child followed by this task
+		 *
+		 * @param child
+		 * 	The child to fork a task for
+		 *
+		 * @param followed
+		 * 	The child this task analyzes itself
+		 *
+		 * @param childDepth
+		 * 	The depth of child below the beginning of the story
+		 *
+		 * @param forked
+		 * 	The tasks forked so far, to be joined later
+		 */
+		private static void forkUnless(StoryTreeNode child, StoryTreeNode followed, int childDepth, ArrayList<SubtreeTask> forked) {
+			if (child == null || child == followed)
+				return;
+			SubtreeTask task = new SubtreeTask(child, childDepth);
+			task.fork();
+			forked.add(task);
+		}
+
+		/**Returns the child of a Node with the most leaves
+		 *
+		 * @param node
+		 * 	The Node to look at the children of
+		 *
+		 * @Precondition:
+		 * 	node is not a leaf
+		 *
+		 * @return
+		 * 	The child with the greatest leaf count, the leftmost one if several tie
+		 */
+		private static StoryTreeNode largestChild(StoryTreeNode node) {
+			StoryTreeNode largest = node.getLeftChild();
+			if (largest == null || (node.getMiddleChild() != null && node.getMiddleChild().getLeafCount() > largest.getLeafCount()))
+				largest = node.getMiddleChild();
+			if (largest == null || (node.getRightChild() != null && node.getRightChild().getLeafCount() > largest.getLeafCount()))
+				largest = node.getRightChild();
+			return largest;
+		}
+	}
+
+	/**This task gathers the statistics of one subtree of a tree which keeps its story in
+	 * structures of its own, knowing its Nodes by their ids. It splits the subtree the same
+	 * way a SubtreeTask does, using the leaf counts the tree keeps for each id
+	 */
+	private static class SplitStoryTask extends RecursiveTask<StoryTreeStatistics> {
+		private static final long serialVersionUID = 1L; //RecursiveTask is Serializable, though tasks are never serialized
+
+		private SplittableStory story; //The tree the subtree is in
+		private long subtree; //The id of the root of the subtree to analyze
+		private int depth; //The depth of subtree below the beginning of the story
+		private int childNumber; //Which child of its parent subtree is, 0 for the beginning of the story
+
+		/**Creates a task for the indicated subtree
+		 *
+		 * @param story
+		 * 	The tree the subtree is in
+		 *
+		 * @param subtree
+		 * 	The id of the root of the subtree to analyze
+		 *
+		 * @param depth
+		 * 	The depth of subtree below the beginning of the story
+		 *
+		 * @param childNumber
+		 * 	Which child of its parent subtree is, 0 for the beginning of the story
+		 */
+		SplitStoryTask(SplittableStory story, long subtree, int depth, int childNumber) {
+			this.story = story;
+			this.subtree = subtree;
+			this.depth = depth;
+			this.childNumber = childNumber;
+		}
+
+		/**Gathers the statistics of the subtree
+		 *
+		 * @return
+		 * 	The statistics of every Node of the subtree
+		 *
+		 * @exception UncheckedIOException
+		 * 	Indicates a Node could not be read
+		 */
+		protected StoryTreeStatistics compute() {
+			StoryTreeStatistics statistics = new StoryTreeStatistics();
+			StoryTextVisitor adder = (nodeDepth, nodeChildNumber, numChildren, option, message) -> statistics.add(nodeDepth, numChildren, message);
+			ArrayList<SplitStoryTask> forked = new ArrayList<SplitStoryTask>();
+			long[] childIds = new long[3];
+			long node = subtree;
+			int nodeDepth = depth;
+			int nodeChildNumber = childNumber;
+
+			try {
+				while (story.getLeafCount(node) > SPLIT_THRESHOLD) {
+					story.visitNode(node, nodeDepth, nodeChildNumber, adder);
+					story.getChildIds(node, childIds);
+					int largest = largestChild(childIds);
+					for (int x = 0; x < 3; x++) {
+						if (childIds[x] != SplittableStory.NO_NODE && x != largest) {
+							SplitStoryTask task = new SplitStoryTask(story, childIds[x], nodeDepth + 1, x + 1);
+							task.fork();
+							forked.add(task);
+						}
+					}
+					node = childIds[largest];
+					nodeChildNumber = largest + 1;
+					nodeDepth++;
+				}
+				story.walkSubtree(node, nodeDepth, nodeChildNumber, adder);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			for (int x = forked.size() - 1; x >= 0; x--)
+				statistics.merge(forked.get(x).join());
+			return statistics;
+		}
+
+		/**Returns which child of a Node has the most leaves
+		 *
+		 * @param childIds
+		 * 	The ids of child 1 to 3 of the Node, NO_NODE for the empty slots
+		 *
+		 * @Precondition:
+		 * 	The Node is not a leaf
+		 *
+		 * @return
+		 * 	The slot of the child with the greatest leaf count, 0 to 2, the leftmost one if several tie
+		 *
+		 * @exception IOException
+		 * 	Indicates a child could not be read
+		 */
+		private int largestChild(long[] childIds) throws IOException {
+			int largest = 0;
+			int largestLeaves = -1;
+			for (int x = 0; x < 3; x++) {
+				if (childIds[x] == SplittableStory.NO_NODE)
+					continue;
+				int leaves = story.getLeafCount(childIds[x]);
+				if (leaves > largestLeaves) {
+					largest = x;
+					largestLeaves = leaves;
+				}
+			}
+			return largest;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/**This class holds the operations the JMH benchmarks in the benchmarks module measure,
+ * so a change to StoryTree or StoryTreeNode can be checked for speed and allocation. JMH
+ * only runs benchmarks in a named package, which can't name the classes of the game in
+ * the default package, so each benchmark looks up one of these public methods once and
+ * calls it through a MethodHandle, which the JIT inlines like a direct call.
+ *
+ * Stories are written by a StoryGenerator, and loaded, walked and saved the same way Zork
+ * does. Modes, shapes and formats are passed by name, since the benchmarks can't name
+ * the enums either.
+ *
+ * Build with mvn package, then run: java -jar benchmarks/target/benchmarks.jar [JMH options]
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+
+public class StoryTreeBenchmark {
+
+	/**Writes a synthetic story to a temporary file, deleted when the JVM exits
+	 *
+	 * @param nodes
+	 * 	The number of Nodes asked for
+	 *
+	 * @param shape
+	 * 	BALANCED, CHAIN or RANDOM
+	 *
+	 * @param maxDepth
+	 * 	The depth no Node is made below
+	 *
+	 * @return
+	 * 	The name of the text file written
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	public static String writeStory(int nodes, String shape, int maxDepth) throws IOException {
+		File story = File.createTempFile("synthetic-story", ".txt");
+		story.deleteOnExit();
+		new StoryGenerator(StoryShape.valueOf(shape), maxDepth, 1).write(story, nodes);
+		return story.getPath();
+	}
+
+	/**Writes an indexed copy of a story to a temporary file, deleted when the JVM exits,
+	 * for the LAZY mode to open
+	 *
+	 * @param filename
+	 * 	The story to copy
+	 *
+	 * @return
+	 * 	The name of the indexed file written
+	 *
+	 * @exception IOException
+	 * 	Indicates a file could not be read or written
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates filename does not hold a valid story
+	 */
+	public static String writeIndexed(String filename) throws IOException, DataFormatException {
+		File indexed = File.createTempFile("synthetic-story", ".idx");
+		indexed.deleteOnExit();
+		StoryTree.saveTree(indexed.getPath(), StoryTree.readTree(filename), StoryFormat.INDEXED);
+		return indexed.getPath();
+	}
+
+	/**Loads a story
+	 *
+	 * @param filename
+	 * 	The story file, an indexed one for LAZY
+	 *
+	 * @param mode
+	 * 	The name of a StoryLoadMode
+	 *
+	 * @return
+	 * 	The tree loaded, with its cursor at the beginning of the story
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be read
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates filename does not hold a valid story
+	 */
+	public static StoryTree readTree(String filename, String mode) throws IOException, DataFormatException {
+		return StoryTree.readTree(filename, StoryLoadMode.valueOf(mode));
+	}
+
+	/**Closes the file a LAZY tree reads its story from, which the other trees don't keep open
+	 *
+	 * @param tree
+	 * 	The tree to close, which is not used afterwards
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be closed
+	 */
+	public static void closeTree(StoryTree tree) throws IOException {
+		if (tree instanceof IndexedStoryTree)
+			((IndexedStoryTree) tree).close();
+	}
+
+	/**Saves a story
+	 *
+	 * @param tree
+	 * 	The tree to save
+	 *
+	 * @param filename
+	 * 	The file to save it to, which is replaced
+	 *
+	 * @param format
+	 * 	The name of a StoryFormat
+	 *
+	 * @exception IOException
+	 * 	Indicates the file could not be written
+	 */
+	public static void saveTree(StoryTree tree, String filename, String format) throws IOException {
+		StoryTree.saveTree(filename, tree, StoryFormat.valueOf(format));
+	}
+
+	/**Makes one move of a random walk, going back up from a leaf or one time in four,
+	 * and otherwise choosing a child
+	 *
+	 * @param tree
+	 * 	The tree whose cursor is moved
+	 *
+	 * @param choice
+	 * 	A random number that is not negative, which picks the move
+	 *
+	 * @param byNumber
+	 * 	Whether the child is chosen with selectChild(int) rather than by its position
+	 *
+	 * @return
+	 * 	The number of children of the cursor after the move
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates a child listed by the tree could not be selected
+	 */
+	public static int step(StoryTree tree, int choice, boolean byNumber) throws NodeNotPresentException {
+		int children = tree.getCursorNumChildren();
+		if (children == 0 || choice % 4 == 0)
+			tree.returnToParent();
+		else if (byNumber)
+			tree.selectChild(1 + choice / 4 % children);
+		else
+			tree.selectChild(tree.getCursorPosition() + "-" + (1 + choice / 4 % children));
+		return tree.getCursorNumChildren();
+	}
+
+	/**Moves the cursor down the first children to halfway between the beginning of the story and a leaf
+	 *
+	 * @param tree
+	 * 	The tree whose cursor is moved
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates a child listed by the tree could not be selected
+	 */
+	public static void moveHalfwayDown(StoryTree tree) throws NodeNotPresentException {
+		tree.resetCursor();
+		int depth = 0;
+		while (!tree.cursorIsLeaf()) {
+			tree.selectChild(1);
+			depth++;
+		}
+		tree.resetCursor();
+		for (int x = 0; x < depth / 2; x++)
+			tree.selectChild(1);
+	}
+
+	/**Lists the options of the cursor in new arrays
+	 *
+	 * @param tree
+	 * 	The tree to ask
+	 *
+	 * @return
+	 * 	The number of options
+	 */
+	public static int getOptions(StoryTree tree) {
+		return tree.getOptions().length;
+	}
+
+	/**Lists the options of the cursor in a reused StoryOptions
+	 *
+	 * @param tree
+	 * 	The tree to ask
+	 *
+	 * @param options
+	 * 	The options to fill
+	 *
+	 * @return
+	 * 	The number of options
+	 */
+	public static int getOptions(StoryTree tree, StoryOptions options) {
+		return tree.getOptions(options).size();
+	}
+
+	/**Makes an empty StoryOptions to reuse
+	 *
+	 * @return
+	 * 	A new StoryOptions
+	 */
+	public static StoryOptions newOptions() {
+		return new StoryOptions();
+	}
+
+	/**Returns the chance of winning from the cursor
+	 *
+	 * @param tree
+	 * 	The tree to ask
+	 *
+	 * @return
+	 * 	The percentage of the leaves under the cursor that are winning leaves
+	 */
+	public static double winProbability(StoryTree tree) {
+		return tree.winProbability();
+	}
+
+	/**Removes the first child of the beginning of the story, the largest subtree a single
+	 * removeChild takes away
+	 *
+	 * @param tree
+	 * 	The tree to edit, whose cursor is moved to the beginning of the story
+	 *
+	 * @return
+	 * 	The number of leaves removed, 0 if the story has no child to remove
+	 *
+	 * @exception NodeNotPresentException
+	 * 	Indicates the child listed by the tree could not be removed
+	 */
+	public static int removeChild(StoryTree tree) throws NodeNotPresentException {
+		tree.resetCursor();
+		if (tree.getCursorNumChildren() == 0)
+			return 0;
+		return tree.removeChild(tree.getCursorPosition() + "-1").getLeafCount();
+	}
+}
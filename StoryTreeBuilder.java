@@ -0,0 +1,198 @@
+/**This class links the nodes of a story into a StoryTree as they are read in preorder.
+ * It keeps a stack of the ancestors of the last node added, so each new node is
+ * attached to its parent without walking down from the root again. The positions
+ * themselves are checked by a StoryPositionChecker. A builder may also share identical
+ * subtrees through a StorySubtreeTable as each node is finished.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+public class StoryTreeBuilder {
+	private static final int INITIAL_DEPTH = 64; //Starting capacity of the ancestor stack
+
+	private StoryTree tree; //The tree being built
+	private StoryPositionChecker positions; //Checks that the nodes arrive in preorder
+	private StoryTreeNode[] ancestors; //ancestors[d] is the last node added at depth d, ancestors[0] is the dummy root
+	private int[] slots; //slots[d] is the child number of ancestors[d] within ancestors[d - 1]
+	private StorySubtreeTable subtrees; //Finds identical subtrees to share, null if they are not shared
+	private int depth; //The depth of the last node added
+
+	/**Creates a builder for an empty StoryTree that keeps every subtree separate
+	 *
+	 * @Postcondition:
+	 * 	The ancestor stack only holds the dummy root of the new tree
+	 */
+	public StoryTreeBuilder() {
+		this(false);
+	}
+
+	/**Creates a builder for an empty StoryTree
+	 *
+	 * @param shareSubtrees
+	 * 	Whether identical subtrees are replaced by one shared subtree.
+	 * 	The options and messages of the nodes added must be Strings rather than mapped text
+	 *
+	 * @Postcondition:
+	 * 	The ancestor stack only holds the dummy root of the new tree
+	 */
+	public StoryTreeBuilder(boolean shareSubtrees) {
+		tree = new StoryTree();
+		tree.getInterner().startLoading();
+		positions = new StoryPositionChecker();
+		ancestors = new StoryTreeNode[INITIAL_DEPTH];
+		slots = new int[INITIAL_DEPTH];
+		ancestors[0] = tree.getRoot();
+		subtrees = shareSubtrees ? new StorySubtreeTable() : null;
+		depth = 0;
+	}
+
+	/**Links the node read from a line of a story file into the tree
+	 *
+	 * @param line
+	 * 	The bytes holding the line
+	 *
+	 * @param positionStart
+	 * 	The index of the first byte of the position written on the line, such as 1-2-3
+	 *
+	 * @param positionEnd
+	 * 	The index just past the last byte of the position
+	 *
+	 * @param newNode
+	 * 	The node read from the line, holding its option and message
+	 *
+	 * @param lineNumber
+	 * 	The line of the file the node was read from, used in error messages
+	 *
+	 * @Precondition:
+	 * 	Nodes are added in preorder, the same order saveTree writes them in
+	 *
+	 * @Postcondition:
+	 * 	The new node is linked to its parent and is on top of the ancestor stack
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates the position is malformed or does not follow the previous line in preorder
+	 */
+	public void addNode(ByteBuffer line, int positionStart, int positionEnd, StoryTreeNode newNode, long lineNumber) throws DataFormatException {
+		int level = positions.place(line, positionStart, positionEnd, lineNumber);
+		link(level, positions.getChildNumber(level), newNode);
+	}
+
+	/**Links a node as the next child of the last node added at the level above it
+	 *
+	 * @param level
+	 * 	The depth of the new node, where the beginning of the story has a depth of 1
+	 *
+	 * @param newNode
+	 * 	The node to add, holding its option and message
+	 *
+	 * @Precondition:
+	 * 	Nodes are added in preorder
+	 *
+	 * @Postcondition:
+	 * 	The new node is linked to its parent and is on top of the ancestor stack
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates level skips a level or the parent already has 3 children
+	 */
+	public void addNode(int level, StoryTreeNode newNode) throws DataFormatException {
+		positions.place(level);
+		link(level, positions.getChildNumber(level), newNode);
+	}
+
+	/**Links a node under the ancestor one level above it
+	 *
+	 * @param level
+	 * 	The depth of the new node
+	 *
+	 * @param childNumber
+	 * 	Which child of its parent the new node becomes
+	 *
+	 * @param newNode
+	 * 	The node to link
+	 */
+	private void link(int level, int childNumber, StoryTreeNode newNode) {
+		finishSubtrees(level);
+		StoryTreeNode parent = ancestors[level - 1];
+		if (childNumber == 1) {
+			parent.setLeftChild(newNode);
+		} else if (childNumber == 2) {
+			parent.setMiddleChild(newNode);
+		} else {
+			parent.setRightChild(newNode);
+		}
+
+		ensureDepth(level + 1);
+		ancestors[level] = newNode;
+		slots[level] = childNumber;
+		depth = level;
+	}
+
+	/**Returns the tree built so far with the cursor reset to the beginning of the story.
+	 * The tree's interner stops keeping every distinct String, since the story is loaded
+	 *
+	 * @return
+	 * 	The StoryTree holding every node added
+	 *
+	 * @exception DataFormatException
+	 * 	Indicates no nodes were added
+	 */
+	public StoryTree getTree() throws DataFormatException {
+		if (tree.getStoryRoot() == null)
+			throw new DataFormatException("The story file is empty");
+		finishSubtrees(0);
+		subtrees = null;
+		tree.getInterner().finishLoading();
+		tree.resetCursor();
+		return tree;
+	}
+
+	/**Returns the table that shares the text of the tree being built
+	 *
+	 * @return
+	 * 	The interner of the tree
+	 */
+	StoryTextInterner getInterner() {
+		return tree.getInterner();
+	}
+
+	/**Updates the leaf counts of the nodes popped off the ancestor stack, whose subtrees are complete,
+	 * and replaces each one by an identical subtree seen before if subtrees are shared.
+	 * Each node is finished once, from the bottom up, so counting the whole tree takes linear time
+	 *
+	 * @param level
+	 * 	The shallowest depth being popped, the nodes from the top of the stack down to it are finished
+	 */
+	private void finishSubtrees(int level) {
+		for (int x = depth; x >= level; x--) {
+			ancestors[x].updateCounts();
+			if (subtrees == null || x == 0)
+				continue;
+			StoryTreeNode shared = subtrees.canonical(ancestors[x]);
+			if (shared == ancestors[x])
+				continue;
+			StoryTreeNode parent = ancestors[x - 1];
+			if (slots[x] == 1)
+				parent.setLeftChild(shared);
+			else if (slots[x] == 2)
+				parent.setMiddleChild(shared);
+			else
+				parent.setRightChild(shared);
+		}
+	}
+
+	/**Grows the ancestor stacks so they can hold the indicated number of levels
+	 *
+	 * @param levels
+	 * 	The number of levels needed
+	 */
+	private void ensureDepth(int levels) {
+		if (levels <= ancestors.length)
+			return;
+		int capacity = Math.max(levels, ancestors.length * 2);
+		ancestors = Arrays.copyOf(ancestors, capacity);
+		slots = Arrays.copyOf(slots, capacity);
+	}
+}
@@ -1,18 +1,33 @@
 /**This is a Node in a tree which represents a segment of the story. 
- * It may contain references to other Nodes and has 3 String variables 
- * for position, choice, and message.
+ * It may contain references to other Nodes and has 2 String variables 
+ * for choice and message. A Node does not store its position, which
+ * follows from the path taken to reach it, so moving a subtree is O(1)
+ * and identical subtrees can be shared by several parents.
  * 
  * @author Pooja Ginjupalli
  */
 
-public class StoryTreeNode {
+public class StoryTreeNode implements StoryNode {
 	private static final String WIN_MESSAGE = "YOU WIN"; //Special sequence which shows game was won
 	private static final String LOSE_MESSAGE = "YOU LOSE"; //Special sequence which shows game was lost
 	
-	private String position; //Indicates the position of the Node within the tree
 	private String option; //To be displayed when presented with this Node as a chocie
 	private String message; //To be displayed when this Node has been selected
 	
+	private MappedStoryText text; //The mapped or off-heap file bytes holding the option and message when they have not been decoded
+	private int optionOffset; //Where the option starts within text
+	private int optionLength; //The number of bytes of the option within text
+	private int messageOffset; //Where the message starts within text
+	private int messageLength; //The number of bytes of the message within text
+	
+	private boolean hasWinMessage; //Whether the message contains WIN_MESSAGE
+	private boolean hasLoseMessage; //Whether the message contains LOSE_MESSAGE
+	private boolean shared; //Whether the Node may be reachable along more than one path
+	private int leafCount; //The number of leaves in the subtree of this Node
+	private int winningLeafCount; //The number of winning leaves in the subtree of this Node
+	private double bestWinChance; //The chance of winning from this Node by always making the best choice
+	private double randomWinChance; //The chance of winning from this Node by choosing each option with the same chance
+	
 	private StoryTreeNode leftChild; //Child 1 of the Node
 	private StoryTreeNode middleChild; //Child 2 of the Node
 	private StoryTreeNode rightChild; //Child 3 of the Node
@@ -24,6 +39,8 @@ public class StoryTreeNode {
 		leftChild = null;
 		middleChild = null;
 		rightChild = null;
+		leafCount = 1;
+		winningLeafCount = 0;
 	}
 	
 	/**Determines if the Node is the dummy root for a StoryTree
@@ -32,7 +49,7 @@ public class StoryTreeNode {
 	 * 	True if this Node is a dummy root, false otherwise
 	 */
 	public boolean isRootNode() {
-		return (position.equals("root") && option.equals("root") && message.equals("Hello, welcome to Zork!"));
+		return ("root".equals(option) && "Hello, welcome to Zork!".equals(message));
 	}
 	
 	/**Determines if the Node has any children
@@ -65,7 +82,7 @@ public class StoryTreeNode {
 	 * 	False otherwise
 	 */
 	public boolean isWinningNode() {
-		return (this.isLeaf() && message.contains(WIN_MESSAGE));
+		return (this.isLeaf() && hasWinMessage);
 	}
 	
 	/**Determines if the Node is a losing node, 
@@ -82,16 +99,24 @@ public class StoryTreeNode {
 	 * 	False otherwise
 	 */
 	public boolean isLosingNode() {
-		return (this.isLeaf() && !message.contains(WIN_MESSAGE));
+		return (this.isLeaf() && !hasWinMessage);
 	}
 	
-	/**Returns the position of the Node
+	/**Determines if the Node is a dead end, a leaf whose message 
+	 * neither wins nor loses the game
+	 * 
+	 * @Precondition:
+	 * 	This Node has been initialized
+	 * 
+	 * @Postcondition:
+	 * 	The tree remains unchanged	
 	 * 
 	 * @return
-	 * 	Returns where the Node is on the tree
+	 * 	True if the Node is a leaf and contains neither the WIN_MESSAGE nor the LOSE_MESSAGE
+	 * 	False otherwise
 	 */
-	public String getPosition() {
-		return position;
+	public boolean isDeadEnd() {
+		return (this.isLeaf() && !hasWinMessage && !hasLoseMessage);
 	}
 	
 	/**Returns what is displayed when picking this Node
@@ -100,6 +125,8 @@ public class StoryTreeNode {
 	 * 	Returns what will be shown to players when choosing options
 	 */
 	public String getOption() {
+		if (option == null && text != null)
+			return text.decode(optionOffset, optionLength);
 		return option;
 	}
 	
@@ -109,6 +136,8 @@ public class StoryTreeNode {
 	 * 	Returns the message to be displayed to progress the game
 	 */
 	public String getMessage() {
+		if (message == null && text != null)
+			return text.decode(messageOffset, messageLength);
 		return message;
 	}
 	
@@ -142,23 +171,6 @@ public class StoryTreeNode {
 		return rightChild;
 	}
 	
-	/**Changes the position of the Node to the specified sequence
-	 * 
-	 * @param newPosition
-	 * 	The new sequence to be assigned to position
-	 * 
-	 * @Precondition:
-	 * 	newPosition is not null
-	 * 
-	 * @exception IllegalArgumentException
-	 * 	Indicates newPosition is null
-	 */
-	public void setPosition(String newPosition) {
-		if (newPosition == null)
-			throw new IllegalArgumentException();
-		position = newPosition;
-	}
-	
 	/**Changes the option of the Node to the specified sequence
 	 * 
 	 * @param newOption
@@ -191,54 +203,240 @@ public class StoryTreeNode {
 		if (newMessage == null) 
 			throw new IllegalArgumentException();
 		message = newMessage;
+		hasWinMessage = newMessage.contains(WIN_MESSAGE);
+		hasLoseMessage = newMessage.contains(LOSE_MESSAGE);
+		updateCounts();
+	}
+	
+	/**Points the option and message of the Node at text in a mapped story file.
+	 * They are decoded each time they are read until they are replaced with setOption or setMessage
+	 * 
+	 * @param mappedText
+	 * 	The mapped window of the file holding the text
+	 * 
+	 * @param optionStart
+	 * 	Where the option starts within mappedText
+	 * 
+	 * @param optionBytes
+	 * 	The number of bytes of the option
+	 * 
+	 * @param messageStart
+	 * 	Where the message starts within mappedText
+	 * 
+	 * @param messageBytes
+	 * 	The number of bytes of the message
+	 * 
+	 * @exception IllegalArgumentException
+	 * 	Indicates mappedText is null
+	 */
+	public void setMappedText(MappedStoryText mappedText, int optionStart, int optionBytes, int messageStart, int messageBytes) {
+		if (mappedText == null)
+			throw new IllegalArgumentException();
+		text = mappedText;
+		optionOffset = optionStart;
+		optionLength = optionBytes;
+		messageOffset = messageStart;
+		messageLength = messageBytes;
+		option = null;
+		message = null;
+		hasWinMessage = mappedText.contains(messageStart, messageBytes, WIN_MESSAGE);
+		hasLoseMessage = mappedText.contains(messageStart, messageBytes, LOSE_MESSAGE);
+		updateCounts();
 	}
 	
 	/**Sets the specified Node as the left child of this Node
 	 * 
 	 * @param newChild
 	 * 	The Node to become the left child of this Node
+	 * 
+	 * @Postcondition:
+	 * 	The leaf counts of this Node are updated, but not those of its ancestors
 	 */
 	public void setLeftChild(StoryTreeNode newChild) {
 		leftChild = newChild;
-		if (leftChild != null && !isRootNode()) {
-			leftChild.setPosition(position + "-1");
-			
-			if (!leftChild.isLeaf()) {
-				updateSubtreePosition(leftChild, leftChild.getPosition());
-			}
-		}
+		updateCounts();
 	}
 	
 	/**Sets the specified Node as the middle child of this Node
 	 * 
 	 * @param newChild
 	 * 	The Node to become the middle child of this Node
+	 * 
+	 * @Postcondition:
+	 * 	The leaf counts of this Node are updated, but not those of its ancestors
 	 */
 	public void setMiddleChild(StoryTreeNode newChild) {
 		middleChild = newChild;
-		if (middleChild != null && !isRootNode()) {
-			middleChild.setPosition(position + "-2");
-			
-			if (!middleChild.isLeaf()) {
-				updateSubtreePosition(middleChild, middleChild.getPosition());
-			}
-		}
+		updateCounts();
 	}
 	
 	/**Sets the specified Node as the right child of this Node
 	 * 
 	 * @param newChild
 	 * 	The Node to become the right child of this Node
+	 * 
+	 * @Postcondition:
+	 * 	The leaf counts of this Node are updated, but not those of its ancestors
 	 */
 	public void setRightChild(StoryTreeNode newChild) {
 		rightChild = newChild;
-		if (rightChild != null && !isRootNode()) {
-			rightChild.setPosition(position + "-3");
-			
-			if (!rightChild.isLeaf()) {
-				updateSubtreePosition(rightChild, rightChild.getPosition());
-			}
+		updateCounts();
+	}
+	
+	/**Returns the number of leaves in the subtree of this Node
+	 * 
+	 * @return
+	 * 	1 if this Node is a leaf, otherwise the sum of the leaf counts of its children
+	 */
+	public int getLeafCount() {
+		return leafCount;
+	}
+	
+	/**Returns the number of winning leaves in the subtree of this Node
+	 * 
+	 * @return
+	 * 	1 or 0 if this Node is a leaf, otherwise the sum of the winning leaf counts of its children
+	 */
+	public int getWinningLeafCount() {
+		return winningLeafCount;
+	}
+	
+	/**Returns the chance of winning from this Node for a player who always makes the best choice
+	 * 
+	 * @return
+	 * 	1 or 0 if this Node is a leaf, otherwise the greatest best chance of its children
+	 */
+	public double getBestWinChance() {
+		return bestWinChance;
+	}
+	
+	/**Returns the chance of winning from this Node for a player who chooses each option with the same chance
+	 * 
+	 * @return
+	 * 	1 or 0 if this Node is a leaf, otherwise the mean random chance of its children
+	 */
+	public double getRandomWinChance() {
+		return randomWinChance;
+	}
+	
+	/**Returns which choice a player who plays as well as possible makes at this Node.
+	 * This compares the best chances kept on the children, so it takes constant time
+	 * 
+	 * @return
+	 * 	The number of the child with the greatest best chance of winning, the first one if
+	 * 	several tie, or 0 if this Node is a leaf
+	 */
+	public int getBestChildNumber() {
+		int best = 0;
+		double chance = -1;
+		if (leftChild != null && leftChild.bestWinChance > chance) {
+			best = 1;
+			chance = leftChild.bestWinChance;
+		}
+		if (middleChild != null && middleChild.bestWinChance > chance) {
+			best = 2;
+			chance = middleChild.bestWinChance;
+		}
+		if (rightChild != null && rightChild.bestWinChance > chance)
+			best = 3;
+		return best;
+	}
+	
+	/**Recomputes the leaf counts and chances of winning of this Node from its message and those of its children.
+	 * This takes constant time, so after an edit it is called on each ancestor from the bottom up,
+	 * and building a tree from its leaves up works them out for every Node in one pass
+	 * 
+	 * @Postcondition:
+	 * 	getLeafCount, getWinningLeafCount, getBestWinChance and getRandomWinChance are correct
+	 * 	if they are correct for the children
+	 */
+	public void updateCounts() {
+		if (isLeaf()) {
+			leafCount = 1;
+			winningLeafCount = hasWinMessage ? 1 : 0;
+			bestWinChance = winningLeafCount;
+			randomWinChance = winningLeafCount;
+			return;
+		}
+		leafCount = 0;
+		winningLeafCount = 0;
+		bestWinChance = 0;
+		randomWinChance = 0;
+		int children = 0;
+		if (leftChild != null) {
+			leafCount += leftChild.leafCount;
+			winningLeafCount += leftChild.winningLeafCount;
+			bestWinChance = Math.max(bestWinChance, leftChild.bestWinChance);
+			randomWinChance += leftChild.randomWinChance;
+			children++;
+		}
+		if (middleChild != null) {
+			leafCount += middleChild.leafCount;
+			winningLeafCount += middleChild.winningLeafCount;
+			bestWinChance = Math.max(bestWinChance, middleChild.bestWinChance);
+			randomWinChance += middleChild.randomWinChance;
+			children++;
 		}
+		if (rightChild != null) {
+			leafCount += rightChild.leafCount;
+			winningLeafCount += rightChild.winningLeafCount;
+			bestWinChance = Math.max(bestWinChance, rightChild.bestWinChance);
+			randomWinChance += rightChild.randomWinChance;
+			children++;
+		}
+		randomWinChance /= children;
+	}
+	
+	/**Returns whether or not the Node may be reachable along more than one path,
+	 * in which case it must be copied rather than edited
+	 * 
+	 * @return
+	 * 	True if the Node has been marked as shared
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+	
+	/**Marks the Node as reachable along more than one path
+	 * 
+	 * @Postcondition:
+	 * 	isShared returns true
+	 */
+	public void markShared() {
+		shared = true;
+	}
+	
+	/**Returns a copy of this Node which has the same text and the same children.
+	 * The children become reachable through both Nodes, so they are marked as shared
+	 * 
+	 * @return
+	 * 	A new Node that is not shared, with the text, children and leaf counts of this one
+	 */
+	public StoryTreeNode copy() {
+		StoryTreeNode copy = new StoryTreeNode();
+		copy.option = option;
+		copy.message = message;
+		copy.text = text;
+		copy.optionOffset = optionOffset;
+		copy.optionLength = optionLength;
+		copy.messageOffset = messageOffset;
+		copy.messageLength = messageLength;
+		copy.hasWinMessage = hasWinMessage;
+		copy.hasLoseMessage = hasLoseMessage;
+		copy.leafCount = leafCount;
+		copy.winningLeafCount = winningLeafCount;
+		copy.bestWinChance = bestWinChance;
+		copy.randomWinChance = randomWinChance;
+		copy.leftChild = leftChild;
+		copy.middleChild = middleChild;
+		copy.rightChild = rightChild;
+		if (leftChild != null)
+			leftChild.shared = true;
+		if (middleChild != null)
+			middleChild.shared = true;
+		if (rightChild != null)
+			rightChild.shared = true;
+		return copy;
 	}
 	
 	/**Returns the number of children the Node currently has
@@ -257,27 +455,23 @@ public class StoryTreeNode {
 		return counter;
 	}
 	
-	/**Changes the position of each descendent of the given node to as specified
-	 * 
-	 * @param root
-	 * 	The Node whose descendants' positions (and itself's) will be changed
-	 * 
-	 * @param rootPosition
-	 * 	The correct position to be updated with
+	/**Returns which child of this Node the indicated Node is
 	 * 
-	 * @Postcondition:
-	 * 	The position of the root and its descendants will be correctly updated
+	 * @param child
+	 * 	The supposed child of this Node
 	 * 
+	 * @return
+	 * 	1, 2 or 3 if child is the left, middle or right child of this Node, 0 otherwise
 	 */
-	public void updateSubtreePosition(StoryTreeNode root, String initialPosition) {
-		if (root == null)
-			return;
-		int startingIndex = initialPosition.length();
-		String appendPosition = root.getPosition().substring(startingIndex);
-		root.setPosition(initialPosition + appendPosition);
-		
-		updateSubtreePosition(root.getLeftChild(), initialPosition);
-		updateSubtreePosition(root.getMiddleChild(), initialPosition);
-		updateSubtreePosition(root.getRightChild(), initialPosition);
+	public int getChildNumber(StoryTreeNode child) {
+		if (child == null)
+			return 0;
+		if (child == leftChild)
+			return 1;
+		if (child == middleChild)
+			return 2;
+		if (child == rightChild)
+			return 3;
+		return 0;
 	}
 }
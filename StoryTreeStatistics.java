@@ -0,0 +1,196 @@
+/**This class holds whole-tree statistics of a StoryTree gathered by StoryTreeAnalytics:
+ * the number of nodes and leaves, how many leaves win, lose or are dead ends, and how
+ * many nodes lie at each depth. Depth 0 is the beginning of the story.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.util.Arrays;
+
+public class StoryTreeStatistics {
+	private static final String WIN_MESSAGE = "YOU WIN"; //Special sequence which shows game was won
+	private static final String LOSE_MESSAGE = "YOU LOSE"; //Special sequence which shows game was lost
+
+	private long nodeCount; //The number of nodes counted
+	private long leafCount; //The number of leaves counted
+	private long winningLeafCount; //The number of leaves with a winning message
+	private long losingLeafCount; //The number of leaves with a losing message
+	private long deadEndCount; //The number of leaves that neither win nor lose
+	private long[] depthHistogram; //depthHistogram[d] is the number of nodes at depth d
+	private int depthCount; //The number of depths in use, one more than the deepest node counted
+
+	/**Creates empty statistics
+	 */
+	public StoryTreeStatistics() {
+		depthHistogram = new long[16];
+		depthCount = 0;
+	}
+
+	/**Counts one node
+	 *
+	 * @param node
+	 * 	The node to count
+	 *
+	 * @param depth
+	 * 	The depth of node below the beginning of the story
+	 */
+	void add(StoryTreeNode node, int depth) {
+		add(depth, node.isLeaf(), node.isWinningNode(), node.isDeadEnd());
+	}
+
+	/**Counts one node from its number of children and message, for a tree walked without Nodes
+	 *
+	 * @param depth
+	 * 	The depth of the node below the beginning of the story
+	 *
+	 * @param numChildren
+	 * 	The number of children of the node
+	 *
+	 * @param message
+	 * 	The message of the node
+	 */
+	void add(int depth, int numChildren, String message) {
+		boolean wins = message.contains(WIN_MESSAGE);
+		add(depth, numChildren == 0, wins, !wins && !message.contains(LOSE_MESSAGE));
+	}
+
+	/**Counts one node
+	 *
+	 * @param depth
+	 * 	The depth of the node below the beginning of the story
+	 *
+	 * @param leaf
+	 * 	Whether the node is a leaf
+	 *
+	 * @param winning
+	 * 	Whether the node is a leaf with a winning message
+	 *
+	 * @param deadEnd
+	 * 	Whether the node is a leaf that neither wins nor loses
+	 */
+	private void add(int depth, boolean leaf, boolean winning, boolean deadEnd) {
+		nodeCount++;
+		if (depth >= depthHistogram.length)
+			depthHistogram = Arrays.copyOf(depthHistogram, Math.max(depth + 1, depthHistogram.length * 2));
+		depthHistogram[depth]++;
+		depthCount = Math.max(depthCount, depth + 1);
+		if (!leaf)
+			return;
+		leafCount++;
+		if (winning)
+			winningLeafCount++;
+		else if (deadEnd)
+			deadEndCount++;
+		else
+			losingLeafCount++;
+	}
+
+	/**Adds the counts of other statistics into these
+	 *
+	 * @param other
+	 * 	The statistics of a disjoint part of the same tree
+	 */
+	void merge(StoryTreeStatistics other) {
+		nodeCount += other.nodeCount;
+		leafCount += other.leafCount;
+		winningLeafCount += other.winningLeafCount;
+		losingLeafCount += other.losingLeafCount;
+		deadEndCount += other.deadEndCount;
+		if (other.depthCount > depthHistogram.length)
+			depthHistogram = Arrays.copyOf(depthHistogram, other.depthCount);
+		for (int x = 0; x < other.depthCount; x++)
+			depthHistogram[x] += other.depthHistogram[x];
+		depthCount = Math.max(depthCount, other.depthCount);
+	}
+
+	/**Returns the number of nodes in the story
+	 *
+	 * @return
+	 * 	The number of nodes counted
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	/**Returns the number of leaves in the story
+	 *
+	 * @return
+	 * 	The number of leaves counted
+	 */
+	public long getLeafCount() {
+		return leafCount;
+	}
+
+	/**Returns the number of leaves whose message contains "YOU WIN"
+	 *
+	 * @return
+	 * 	The number of winning leaves counted
+	 */
+	public long getWinningLeafCount() {
+		return winningLeafCount;
+	}
+
+	/**Returns the number of leaves whose message contains "YOU LOSE" and not "YOU WIN"
+	 *
+	 * @return
+	 * 	The number of losing leaves counted
+	 */
+	public long getLosingLeafCount() {
+		return losingLeafCount;
+	}
+
+	/**Returns the number of dead ends, leaves whose message neither wins nor loses
+	 *
+	 * @return
+	 * 	The number of dead ends counted
+	 */
+	public long getDeadEndCount() {
+		return deadEndCount;
+	}
+
+	/**Returns the ratio of winning leaves to losing leaves
+	 *
+	 * @return
+	 * 	Winning leaves divided by losing leaves, infinity if there are wins but no losses
+	 * 	and NaN if there are neither
+	 */
+	public double getWinLoseRatio() {
+		return (double) winningLeafCount / losingLeafCount;
+	}
+
+	/**Returns the depth of the deepest node
+	 *
+	 * @return
+	 * 	The greatest depth of a node, -1 if no node was counted
+	 */
+	public int getMaxDepth() {
+		return depthCount - 1;
+	}
+
+	/**Returns how many nodes lie at each depth
+	 *
+	 * @return
+	 * 	A new array whose element d is the number of nodes at depth d
+	 */
+	public long[] getDepthHistogram() {
+		return Arrays.copyOf(depthHistogram, depthCount);
+	}
+
+	/**Returns the statistics as a readable report
+	 *
+	 * @return
+	 * 	The counts, one per line, followed by the depth histogram
+	 */
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append("Nodes: ").append(nodeCount).append('\n');
+		report.append("Leaves: ").append(leafCount).append('\n');
+		report.append("Winning leaves: ").append(winningLeafCount).append('\n');
+		report.append("Losing leaves: ").append(losingLeafCount).append('\n');
+		report.append("Dead ends: ").append(deadEndCount).append('\n');
+		report.append("Win/lose ratio: ").append(getWinLoseRatio()).append('\n');
+		report.append("Nodes by depth:");
+		for (int x = 0; x < depthCount; x++)
+			report.append('\n').append(x).append(": ").append(depthHistogram[x]);
+		return report.toString();
+	}
+}
@@ -0,0 +1,20 @@
+/**This interface represents an action taken on each Node visited by a StoryTreeWalker
+ * 
+ * @author Pooja Ginjupalli
+ */
+
+public interface StoryTreeVisitor {
+	
+	/**Called once for each Node of the walk
+	 * 
+	 * @param node
+	 * 	The Node being visited
+	 * 
+	 * @param depth
+	 * 	The depth of node below the Node the walk started from, which has a depth of 0
+	 * 
+	 * @param childNumber
+	 * 	1, 2 or 3 if node is the left, middle or right child of its parent, 0 for the Node the walk started from
+	 */
+	void visit(StoryTreeNode node, int depth, int childNumber);
+}
@@ -0,0 +1,222 @@
+/**This class walks the Nodes of a StoryTree in preorder, postorder or level order
+ * without recursion. The Nodes waiting to be visited are kept in arrays that grow
+ * as needed and are reused from one walk to the next, so a walk does not allocate
+ * anything per Node and works on trees of any depth.
+ *
+ * A walker is not thread safe, each thread should use its own.
+ *
+ * @author Pooja Ginjupalli
+ */
+public class StoryTreeWalker {
+	private static final int INITIAL_CAPACITY = 64; //Starting size of the arrays
+
+	private StoryTreeNode[] nodes; //The Nodes waiting to be visited, used as a stack or a circular queue
+	private int[] depths; //The depth of each waiting Node
+	private byte[] childNumbers; //The child number of each waiting Node, or the next child to descend into in postorder
+
+	/**Creates a walker with empty arrays
+	 */
+	public StoryTreeWalker() {
+		nodes = new StoryTreeNode[INITIAL_CAPACITY];
+		depths = new int[INITIAL_CAPACITY];
+		childNumbers = new byte[INITIAL_CAPACITY];
+	}
+
+	/**Visits each Node of the subtree in preorder, a Node before its children and
+	 * the left child before the middle child before the right child
+	 *
+	 * @param root
+	 * 	The Node to start from, nothing is visited if it is null
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @return
+	 * 	The number of Nodes visited
+	 */
+	public long preorder(StoryTreeNode root, StoryTreeVisitor visitor) {
+		if (root == null)
+			return 0;
+		long visited = 0;
+		int top = push(0, root, 0, 0);
+
+		while (top > 0) {
+			top--;
+			StoryTreeNode node = nodes[top];
+			int depth = depths[top];
+			nodes[top] = null;
+			visitor.visit(node, depth, childNumbers[top]);
+			visited++;
+
+			top = push(top, node.getRightChild(), depth + 1, 3);
+			top = push(top, node.getMiddleChild(), depth + 1, 2);
+			top = push(top, node.getLeftChild(), depth + 1, 1);
+		}
+		return visited;
+	}
+
+	/**Visits each Node of the subtree in postorder, a Node after all of its children
+	 *
+	 * @param root
+	 * 	The Node to start from, nothing is visited if it is null
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @return
+	 * 	The number of Nodes visited
+	 */
+	public long postorder(StoryTreeNode root, StoryTreeVisitor visitor) {
+		if (root == null)
+			return 0;
+		long visited = 0;
+		int top = push(0, root, 0, 1);
+
+		while (top > 0) {
+			StoryTreeNode node = nodes[top - 1];
+			int next = childNumbers[top - 1];
+			StoryTreeNode child = null;
+			while (child == null && next <= 3) {
+				child = next == 1 ? node.getLeftChild() : next == 2 ? node.getMiddleChild() : node.getRightChild();
+				next++;
+			}
+			childNumbers[top - 1] = (byte) next;
+
+			if (child != null) {
+				top = push(top, child, top, 1);
+			} else {
+				top--;
+				nodes[top] = null;
+				visitor.visit(node, depths[top], top == 0 ? 0 : childNumbers[top - 1] - 1);
+				visited++;
+			}
+		}
+		return visited;
+	}
+
+	/**Visits each Node of the subtree in level order, every Node of a depth before
+	 * any Node of the next depth and each depth from left to right
+	 *
+	 * @param root
+	 * 	The Node to start from, nothing is visited if it is null
+	 *
+	 * @param visitor
+	 * 	The action taken on each Node
+	 *
+	 * @return
+	 * 	The number of Nodes visited
+	 */
+	public long levelOrder(StoryTreeNode root, StoryTreeVisitor visitor) {
+		if (root == null)
+			return 0;
+		long visited = 0;
+		int head = 0;
+		int size = 0;
+		size = enqueue(head, size, root, 0, 0);
+
+		while (size > 0) {
+			StoryTreeNode node = nodes[head];
+			int depth = depths[head];
+			int childNumber = childNumbers[head];
+			nodes[head] = null;
+			head = (head + 1) % nodes.length;
+			size--;
+			visitor.visit(node, depth, childNumber);
+			visited++;
+
+			if (size + 3 > nodes.length) {
+				grow(head, size);
+				head = 0;
+			}
+			size = enqueue(head, size, node.getLeftChild(), depth + 1, 1);
+			size = enqueue(head, size, node.getMiddleChild(), depth + 1, 2);
+			size = enqueue(head, size, node.getRightChild(), depth + 1, 3);
+		}
+		return visited;
+	}
+
+	/**Pushes a Node onto the stack if it is not null
+	 *
+	 * @param top
+	 * 	The size of the stack
+	 *
+	 * @param node
+	 * 	The Node to push
+	 *
+	 * @param depth
+	 * 	The depth of node
+	 *
+	 * @param childNumber
+	 * 	The child number kept with node
+	 *
+	 * @return
+	 * 	The new size of the stack
+	 */
+	private int push(int top, StoryTreeNode node, int depth, int childNumber) {
+		if (node == null)
+			return top;
+		if (top == nodes.length)
+			grow(0, top);
+		nodes[top] = node;
+		depths[top] = depth;
+		childNumbers[top] = (byte) childNumber;
+		return top + 1;
+	}
+
+	/**Adds a Node to the back of the circular queue if it is not null
+	 *
+	 * @param head
+	 * 	The index of the front of the queue
+	 *
+	 * @param size
+	 * 	The number of Nodes in the queue
+	 *
+	 * @param node
+	 * 	The Node to add
+	 *
+	 * @param depth
+	 * 	The depth of node
+	 *
+	 * @param childNumber
+	 * 	The child number of node
+	 *
+	 * @Precondition:
+	 * 	The queue has room for another Node
+	 *
+	 * @return
+	 * 	The new number of Nodes in the queue
+	 */
+	private int enqueue(int head, int size, StoryTreeNode node, int depth, int childNumber) {
+		if (node == null)
+			return size;
+		int tail = (head + size) % nodes.length;
+		nodes[tail] = node;
+		depths[tail] = depth;
+		childNumbers[tail] = (byte) childNumber;
+		return size + 1;
+	}
+
+	/**Doubles the size of the arrays, moving the waiting Nodes to the front
+	 *
+	 * @param head
+	 * 	The index of the first waiting Node
+	 *
+	 * @param size
+	 * 	The number of waiting Nodes, which may wrap around the end of the arrays
+	 */
+	private void grow(int head, int size) {
+		int capacity = nodes.length * 2;
+		StoryTreeNode[] newNodes = new StoryTreeNode[capacity];
+		int[] newDepths = new int[capacity];
+		byte[] newChildNumbers = new byte[capacity];
+		for (int x = 0; x < size; x++) {
+			int from = (head + x) % nodes.length;
+			newNodes[x] = nodes[from];
+			newDepths[x] = depths[from];
+			newChildNumbers[x] = childNumbers[from];
+		}
+		nodes = newNodes;
+		depths = newDepths;
+		childNumbers = newChildNumbers;
+	}
+}
@@ -0,0 +1,110 @@
+/**This class is a StoryConnection over a pair of byte streams, such as the console or a socket.
+ * Text is sent as UTF-8 and buffered until the loop waits for the player's next line.
+ *
+ * @author Pooja Ginjupalli
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class StreamStoryConnection implements StoryConnection {
+	private final BufferedReader in; //The player's input
+	private final Writer out; //The text sent to the player
+	private final Socket socket; //The socket the streams belong to, null if there is none
+
+	/**Creates a connection over two streams
+	 *
+	 * @param in
+	 * 	The stream the player's lines are read from
+	 *
+	 * @param out
+	 * 	The stream text is sent to
+	 *
+	 * @Precondition:
+	 * 	in and out are not null
+	 *
+	 * @exception IllegalArgumentException
+	 * 	Indicates in or out is null
+	 */
+	public StreamStoryConnection(InputStream in, OutputStream out) {
+		this(in, out, null);
+	}
+
+	/**Creates a connection over a connected socket
+	 *
+	 * @param socket
+	 * 	The socket to the player, which is closed with the connection
+	 *
+	 * @exception IOException
+	 * 	Indicates the streams of the socket could not be opened
+	 */
+	public StreamStoryConnection(Socket socket) throws IOException {
+		this(socket.getInputStream(), socket.getOutputStream(), socket);
+	}
+
+	/**Creates a connection over two streams and the socket they belong to
+	 *
+	 * @param in
+	 * 	The stream the player's lines are read from
+	 *
+	 * @param out
+	 * 	The stream text is sent to
+	 *
+	 * @param socket
+	 * 	The socket to close with the connection, or null
+	 */
+	private StreamStoryConnection(InputStream in, OutputStream out, Socket socket) {
+		if (in == null || out == null)
+			throw new IllegalArgumentException();
+		this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		this.socket = socket;
+	}
+
+	/**Sends the text held back and reads the player's next line
+	 *
+	 * @return
+	 * 	The line without its line ending, or null at the end of the input
+	 *
+	 * @exception IOException
+	 * 	Indicates either stream failed
+	 */
+	public String readLine() throws IOException {
+		out.flush();
+		return in.readLine();
+	}
+
+	/**Buffers text to send to the player
+	 *
+	 * @param text
+	 * 	The text to send
+	 *
+	 * @exception IOException
+	 * 	Indicates the output stream failed
+	 */
+	public void print(String text) throws IOException {
+		out.write(text);
+	}
+
+	/**Sends the text held back and closes the socket if there is one.
+	 * Streams given without a socket are left open for their owner to close
+	 *
+	 * @exception IOException
+	 * 	Indicates the text could not be sent or the socket could not be closed
+	 */
+	public void close() throws IOException {
+		try {
+			out.flush();
+		} finally {
+			if (socket != null)
+				socket.close();
+		}
+	}
+}
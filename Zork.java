@@ -3,31 +3,60 @@
  * @author Pooja Ginjupalli
  */
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Scanner;
 import java.util.zip.DataFormatException;
 
 public class Zork {
+	private static final String[] OPTION_LABELS = {"1) ", "2) ", "3) "}; //The labels printed before the options of children 1 to 3
 	private static Scanner kb = new Scanner(System.in);
+	private static StoryConnection console = new StoryConnection() { //The keyboard and screen, sharing kb with the menus
+		public String readLine() {
+			return kb.hasNextLine() ? kb.nextLine() : null;
+		}
+		
+		public void print(String text) {
+			System.out.print(text);
+		}
+		
+		public void close() {
+		}
+	};
 	
-	public static void main(String args[]) throws FileNotFoundException, DataFormatException, NodeNotPresentException, TreeFullException {
+	public static void main(String args[]) throws IOException, DataFormatException, NodeNotPresentException, TreeFullException {
 		System.out.println("Hello and Welcome to Zork!\n");
 		System.out.print("Please enter a file name: ");
 		String filename = kb.nextLine();
 		System.out.println("\nLoading game from file...");
 		
 		StoryTree tree = new StoryTree();
+		String saveTo = filename; //The file saved on quit, another one if filename holds a story that could not be loaded
 
 		try {
 			tree = StoryTree.readTree(filename);
 			System.out.println("\nFile loaded!\n");
+			try {
+				tree.openJournal(filename);
+			} catch (IOException e) {
+				System.out.println("Invalid: Journal could not be opened, edits will be saved on quit.\n");
+			}
 		} catch (FileNotFoundException e) {
 			System.out.println("Invalid: File not found.");
 			tree = new StoryTree();
+		} catch (IOException e) {
+			System.out.println("Invalid: File could not be read.");
+			tree = new StoryTree();
 		} catch (DataFormatException e) {
-			System.out.println("Invalid: Format of file is invalid.");
+			System.out.println("Invalid: Format of file is invalid. " + e.getMessage());
 			tree = new StoryTree();
 		}
+		if (!tree.hasStory() && new File(filename).exists()) {
+			saveTo = unusedName(filename);
+			System.out.println("The story will be saved to " + saveTo + " on quit, so " + filename + " is not replaced.\n");
+		}
 		
 		String choice;
 		
@@ -47,8 +76,18 @@ public class Zork {
 				break;
 				
 			case "Q":
-				StoryTree.saveTree(filename, tree);
-				System.out.println("Game being saved to " + filename + "..." +
+				boolean journaled = false; //Whether every edit is already in the journal, so the file isn't rewritten
+				if (tree.getJournal() != null) {
+					try {
+						tree.closeJournal();
+						journaled = true;
+					} catch (IOException e) {
+						System.out.println("Invalid: Journal could not be written, the whole story will be saved instead.");
+					}
+				}
+				if (!journaled)
+					StoryTree.saveTree(saveTo, tree);
+				System.out.println("Game being saved to " + saveTo + "..." +
 				"\n\nSave Successful!\n\nProgram terminating normally.");
 				System.exit(0);
 				
@@ -60,49 +99,86 @@ public class Zork {
 		
 	}
 	
-	/**Allows the user to play a StoryTree
+	/**Allows the user to play a StoryTree through its own cursor, since no one else plays it
 	 * 
 	 * @param tree
 	 * 	The tree that is to be played
 	 * @throws NodeNotPresentException 
 	 */
 	public static void playTree(StoryTree tree) throws NodeNotPresentException {
-		tree.resetCursor();
+		try {
+			playSession(tree, console);
+		} catch (IOException e) {
+			System.out.println("Invalid: " + e.getMessage());
+		}
+	}
+	
+	/**Plays a session of a story with a player over a connection
+	 * 
+	 * @param session
+	 * 	The session or tree to play, which is started from the beginning of its story
+	 * 
+	 * @param player
+	 * 	The connection the story is shown on and choices are read from
+	 * 
+	 * @Postcondition:
+	 * 	The session is at a leaf, or wherever the player was when they left
+	 * 
+	 * @exception IOException
+	 * 	Indicates the connection failed
+	 * 
+	 * @throws NodeNotPresentException 
+	 */
+	public static void playSession(StoryCursor session, StoryConnection player) throws IOException, NodeNotPresentException {
+		session.resetCursor();
 		String choice;
-		String[][] options;
+		StoryOptions options = new StoryOptions(); //Refilled at every step rather than building a new array
 		
-		System.out.println(tree.getCursorOption());
+		if (!session.hasStory()) {
+			player.print("There is no story to play.\n");
+			return;
+		}
+		player.print(session.getCursorOption());
+		player.print("\n");
 		
-		while (!tree.cursorIsLeaf()) {
-			options = tree.getOptions();
+		while (!session.cursorIsLeaf()) {
+			session.getOptions(options);
 			
-			System.out.println(tree.getCursorMessage());
-			for (int x = 1; x <= options.length; x++) 
-				System.out.println(x + ") " + options[x - 1][1]);
+			player.print(session.getCursorMessage());
+			player.print("\n");
+			for (int x = 1; x <= options.size(); x++) {
+				player.print(OPTION_LABELS[x - 1]);
+				player.print(options.get(x));
+				player.print("\n");
+			}
 			
-			choice = "c";
-			while (choice.equalsIgnoreCase("c")) {
-				System.out.print("Please make a choice: ");
-				choice = kb.nextLine().trim();
-				System.out.println();
+			int childNumber = 0;
+			while (childNumber == 0) {
+				player.print("Please make a choice: ");
+				choice = player.readLine();
+				if (choice == null)
+					return;
+				choice = choice.trim();
+				player.print("\n");
 				
 				if (choice.equalsIgnoreCase("c")) {
-					System.out.println("Probability of a win at this point: " + String.format("%.1f", tree.winProbability()) + "%\n");
-				} else if (!choice.equals("1") && !choice.equals("2") && !choice.equals("3")) {
-					System.out.println("Invalid.\n");
-					choice = "c";
-				} else if (Integer.parseInt(choice) > options.length) {
-					System.out.println("Invalid.\n");
-					choice = "c";
+					player.print("Probability of a win at this point: " + String.format("%.1f", session.winProbability()) + "%\n");
+					player.print("Probability of a win choosing at random: " + String.format("%.1f", session.randomWinProbability()) + "%\n");
+					player.print("Best probability of a win: " + String.format("%.1f", session.bestWinProbability()) + "%, by choosing "
+							+ OPTION_LABELS[session.bestChoice() - 1] + options.get(session.bestChoice()) + "\n\n");
+				} else if (choice.length() != 1 || choice.charAt(0) < '1' || choice.charAt(0) - '0' > options.size()) {
+					player.print("Invalid.\n\n");
 				} else {
-					tree.selectChild(tree.getCursorPosition() + "-" + choice);
+					childNumber = choice.charAt(0) - '0';
+					session.selectChild(childNumber);
 				}
 			}
 			
 		}
 		
-		System.out.println(tree.getCursorMessage() + "\n");
-		System.out.println("Thanks for playing.");
+		player.print(session.getCursorMessage());
+		player.print("\n\n");
+		player.print("Thanks for playing.\n");
 	}
 	
 	/**Provides an interface which allows the user to edit a given tree
@@ -111,6 +187,19 @@ public class Zork {
 	 * 	The tree the user wishes to edit
 	 */
 	public static void editTree(StoryTree tree) {
+		editTree(tree, null);
+	}
+	
+	/**Provides an interface which allows the user to edit a given tree while it is being played,
+	 * publishing the story after every change so new players see it right away
+	 * 
+	 * @param tree
+	 * 	The tree the user wishes to edit
+	 * 
+	 * @param live
+	 * 	The live story tree is published to, or null if no one else is playing it
+	 */
+	public static void editTree(StoryTree tree, LiveStory live) {
 		tree.resetCursor();
 		String choice = "";
 		String[][] options;
@@ -136,7 +225,7 @@ public class Zork {
 			
 			switch (choice) {
 			case "V":
-				if (tree.getStoryRoot() == null) {
+				if (!tree.hasStory()) {
 					System.out.println("Position: root\r\n"
 							+ "Option: root\r\n"
 							+ "Message: Hello, and welcome to Zork!");
@@ -175,10 +264,13 @@ public class Zork {
 				
 				try {
 					tree.setCursorOption(miniChoice);
+					publish(tree, live);
 					System.out.println("Option set.");
 				} catch (IllegalArgumentException e) {
 					System.out.println("Invalid.");
 					break;
+				} catch (UncheckedIOException e) {
+					journalFailed(tree, live, e);
 				}
 				break;
 				
@@ -188,10 +280,13 @@ public class Zork {
 				
 				try {
 					tree.setCursorMessage(miniChoice);
+					publish(tree, live);
 					System.out.println("Message set.");
 				} catch (IllegalArgumentException e) {
 					System.out.println("Invalid.");
 					break;
+				} catch (UncheckedIOException e) {
+					journalFailed(tree, live, e);
 				}
 				break;
 				
@@ -207,10 +302,13 @@ public class Zork {
 				
 				try {
 					tree.addChild(miniChoice, miniChoice2);
+					publish(tree, live);
 					System.out.println("Child added.");
 				} catch (TreeFullException e) {
 					System.out.println("Error");
 					break;
+				} catch (UncheckedIOException e) {
+					journalFailed(tree, live, e);
 				}
 				break;
 				
@@ -231,10 +329,13 @@ public class Zork {
 				
 				try {
 					tree.removeChild(tree.getCursorPosition() + "-" + miniChoice);
+					publish(tree, live);
 					System.out.println("Subtree deleted.");
 				} catch (NodeNotPresentException e) {
 					System.out.println("Error. No child " + miniChoice + " for the current node.");
 					break;
+				} catch (UncheckedIOException e) {
+					journalFailed(tree, live, e);
 				}
 				break;
 				
@@ -251,4 +352,55 @@ public class Zork {
 			}
 		}
 	}
+	
+	/**Tells the user an edit was made but could not be written to the journal, and stops
+	 * keeping the journal so the whole story is saved on quit instead
+	 * 
+	 * @param tree
+	 * 	The edited tree, whose journal failed
+	 * 
+	 * @param live
+	 * 	The live story to publish the edit to, or null if there is none
+	 * 
+	 * @param e
+	 * 	The failure of the journal
+	 */
+	private static void journalFailed(StoryTree tree, LiveStory live, UncheckedIOException e) {
+		System.out.println("Invalid: The edit was made but the journal could not be written (" + e.getCause().getMessage()
+				+ "), the whole story will be saved on quit.");
+		try {
+			tree.closeJournal();
+		} catch (IOException closing) {
+			//The journal has failed already, and the story is saved whole without it
+		}
+		publish(tree, live);
+	}
+	
+	/**Returns a file name beside a file that no file has yet
+	 * 
+	 * @param filename
+	 * 	The file that must not be replaced
+	 * 
+	 * @return
+	 * 	filename followed by .new, or by .new2, .new3 and so on if that one exists
+	 */
+	private static String unusedName(String filename) {
+		String name = filename + ".new";
+		for (int x = 2; new File(name).exists(); x++)
+			name = filename + ".new" + x;
+		return name;
+	}
+	
+	/**Publishes an edited tree to the players of a live story
+	 * 
+	 * @param tree
+	 * 	The edited tree
+	 * 
+	 * @param live
+	 * 	The live story to publish to, or null if there is none
+	 */
+	private static void publish(StoryTree tree, LiveStory live) {
+		if (live != null)
+			live.publish(tree);
+	}
 }
@@ -0,0 +1,43 @@
+package storysimulator.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**This class runs the benchmarks of benchmarks.jar like JMH's own main, taking the same
+ * command line options, but always with the GC profiler on, as -prof gc does, so every
+ * result comes with the bytes allocated per operation and the time spent collecting.
+ *
+ * Usage: java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexps]
+ *
+ * @author Pooja Ginjupalli
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws IOException, RunnerException {
+		CommandLineOptions commandLine;
+		try {
+			commandLine = new CommandLineOptions(args);
+		} catch (CommandLineOptionException e) {
+			System.err.println("Error parsing command line: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		Options options = new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,130 @@
+package storysimulator.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**This class measures the latency of the cursor operations a player makes: a random walk
+ * with selectChild and returnToParent, by position and by number, and getOptions, with
+ * and without a reused StoryOptions, and winProbability halfway down the story.
+ *
+ * @author Pooja Ginjupalli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CursorBenchmark extends StoryBenchmark {
+	private static final int CHOICES = 1 << 16; //The number of random moves cycled through, a power of 2
+
+	private Object tree; //The tree whose cursor is moved
+	private Object options; //The StoryOptions reused by getOptions
+	private int[] choices; //The random numbers picking each move, drawn before timing
+	private int next; //The index of the next choice
+
+	/**Loads the story once for every run of the benchmark and moves the cursor halfway down it
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be written or loaded
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		tree = Game.readTree(writeStory(), mode);
+		Game.moveHalfwayDown(tree);
+		options = Game.newOptions();
+		SplittableRandom random = new SplittableRandom(2);
+		choices = new int[CHOICES];
+		for (int x = 0; x < CHOICES; x++)
+			choices[x] = random.nextInt(Integer.MAX_VALUE);
+		next = 0;
+	}
+
+	/**Closes the tree once the run is over
+	 *
+	 * @exception Throwable
+	 * 	Indicates the tree could not be closed
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws Throwable {
+		Game.closeTree(tree);
+	}
+
+	/**Makes one move, choosing a child by its position such as 1-2-3
+	 *
+	 * @return
+	 * 	The number of children of the cursor afterwards
+	 *
+	 * @exception Throwable
+	 * 	Indicates a child could not be selected
+	 */
+	@Benchmark
+	public int selectChildReturnToParent() throws Throwable {
+		return Game.step(tree, choices[next++ & (CHOICES - 1)], false);
+	}
+
+	/**Makes one move, choosing a child by its number
+	 *
+	 * @return
+	 * 	The number of children of the cursor afterwards
+	 *
+	 * @exception Throwable
+	 * 	Indicates a child could not be selected
+	 */
+	@Benchmark
+	public int selectChildByNumberReturnToParent() throws Throwable {
+		return Game.step(tree, choices[next++ & (CHOICES - 1)], true);
+	}
+
+	/**Lists the options of the cursor in new arrays
+	 *
+	 * @return
+	 * 	The number of options
+	 *
+	 * @exception Throwable
+	 * 	Indicates the options could not be listed
+	 */
+	@Benchmark
+	public int getOptions() throws Throwable {
+		return Game.getOptions(tree);
+	}
+
+	/**Lists the options of the cursor in the reused StoryOptions
+	 *
+	 * @return
+	 * 	The number of options
+	 *
+	 * @exception Throwable
+	 * 	Indicates the options could not be listed
+	 */
+	@Benchmark
+	public int getOptionsReused() throws Throwable {
+		return Game.getOptions(tree, options);
+	}
+
+	/**Returns the chance of winning from the cursor
+	 *
+	 * @return
+	 * 	The percentage of the leaves under the cursor that are winning leaves
+	 *
+	 * @exception Throwable
+	 * 	Indicates the chance could not be worked out
+	 */
+	@Benchmark
+	public double winProbability() throws Throwable {
+		return Game.winProbability(tree);
+	}
+}
@@ -0,0 +1,179 @@
+package storysimulator.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**This class calls the entry points of StoryTreeBenchmark, the class of the game which
+ * the benchmarks measure through. The game's classes are in the default package, which
+ * a named package can't name, so each entry point is looked up once by reflection into
+ * a constant MethodHandle, and every tree and StoryOptions is passed around as an Object.
+ *
+ * @author Pooja Ginjupalli
+ */
+final class Game {
+	private static final Class<?> ENTRY_POINTS = type("StoryTreeBenchmark"); //The class holding the entry points
+	private static final Class<?> TREE = type("StoryTree"); //The class of every tree loaded
+	private static final Class<?> OPTIONS = type("StoryOptions"); //The class a reused list of options is
+
+	private static final MethodHandle WRITE_STORY = find("writeStory", String.class, int.class, String.class, int.class);
+	private static final MethodHandle WRITE_INDEXED = find("writeIndexed", String.class, String.class);
+	private static final MethodHandle READ_TREE = find("readTree", TREE, String.class, String.class);
+	private static final MethodHandle CLOSE_TREE = find("closeTree", void.class, TREE);
+	private static final MethodHandle SAVE_TREE = find("saveTree", void.class, TREE, String.class, String.class);
+	private static final MethodHandle STEP = find("step", int.class, TREE, int.class, boolean.class);
+	private static final MethodHandle MOVE_HALFWAY_DOWN = find("moveHalfwayDown", void.class, TREE);
+	private static final MethodHandle GET_OPTIONS = find("getOptions", int.class, TREE);
+	private static final MethodHandle GET_OPTIONS_INTO = find("getOptions", int.class, TREE, OPTIONS);
+	private static final MethodHandle NEW_OPTIONS = find("newOptions", OPTIONS);
+	private static final MethodHandle WIN_PROBABILITY = find("winProbability", double.class, TREE);
+	private static final MethodHandle REMOVE_CHILD = find("removeChild", int.class, TREE);
+
+	private Game() {
+	}
+
+	/**Writes a synthetic story through StoryTreeBenchmark.writeStory
+	 */
+	static String writeStory(int nodes, String shape, int maxDepth) throws Throwable {
+		return (String) WRITE_STORY.invokeExact(nodes, shape, maxDepth);
+	}
+
+	/**Writes an indexed copy of a story through StoryTreeBenchmark.writeIndexed
+	 */
+	static String writeIndexed(String filename) throws Throwable {
+		return (String) WRITE_INDEXED.invokeExact(filename);
+	}
+
+	/**Loads a story through StoryTreeBenchmark.readTree
+	 */
+	static Object readTree(String filename, String mode) throws Throwable {
+		return (Object) READ_TREE.invokeExact(filename, mode);
+	}
+
+	/**Closes a tree through StoryTreeBenchmark.closeTree
+	 */
+	static void closeTree(Object tree) throws Throwable {
+		CLOSE_TREE.invokeExact(tree);
+	}
+
+	/**Saves a story through StoryTreeBenchmark.saveTree
+	 */
+	static void saveTree(Object tree, String filename, String format) throws Throwable {
+		SAVE_TREE.invokeExact(tree, filename, format);
+	}
+
+	/**Makes one move of a random walk through StoryTreeBenchmark.step
+	 */
+	static int step(Object tree, int choice, boolean byNumber) throws Throwable {
+		return (int) STEP.invokeExact(tree, choice, byNumber);
+	}
+
+	/**Moves the cursor halfway down through StoryTreeBenchmark.moveHalfwayDown
+	 */
+	static void moveHalfwayDown(Object tree) throws Throwable {
+		MOVE_HALFWAY_DOWN.invokeExact(tree);
+	}
+
+	/**Lists the options of the cursor in new arrays through StoryTreeBenchmark.getOptions
+	 */
+	static int getOptions(Object tree) throws Throwable {
+		return (int) GET_OPTIONS.invokeExact(tree);
+	}
+
+	/**Lists the options of the cursor in a reused StoryOptions through StoryTreeBenchmark.getOptions
+	 */
+	static int getOptions(Object tree, Object options) throws Throwable {
+		return (int) GET_OPTIONS_INTO.invokeExact(tree, options);
+	}
+
+	/**Makes a StoryOptions to reuse through StoryTreeBenchmark.newOptions
+	 */
+	static Object newOptions() throws Throwable {
+		return (Object) NEW_OPTIONS.invokeExact();
+	}
+
+	/**Returns the chance of winning from the cursor through StoryTreeBenchmark.winProbability
+	 */
+	static double winProbability(Object tree) throws Throwable {
+		return (double) WIN_PROBABILITY.invokeExact(tree);
+	}
+
+	/**Removes the first child of the story through StoryTreeBenchmark.removeChild
+	 */
+	static int removeChild(Object tree) throws Throwable {
+		return (int) REMOVE_CHILD.invokeExact(tree);
+	}
+
+	/**Finds a class of the game by its name in the default package
+	 *
+	 * @param name
+	 * 	The simple name of the class
+	 *
+	 * @return
+	 * 	The class
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates the game's classes are not on the class path
+	 */
+	private static Class<?> type(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("The game's class " + name + " is not on the class path", e);
+		}
+	}
+
+	/**Looks up an entry point, with every class of the game in its type seen as an Object
+	 *
+	 * @param name
+	 * 	The name of the public static method
+	 *
+	 * @param returnType
+	 * 	The type the method returns
+	 *
+	 * @param parameterTypes
+	 * 	The types of its parameters
+	 *
+	 * @return
+	 * 	A handle to the method taking and returning Objects in place of the game's classes
+	 *
+	 * @exception IllegalStateException
+	 * 	Indicates there is no such method
+	 */
+	private static MethodHandle find(String name, Class<?> returnType, Class<?>... parameterTypes) {
+		MethodType type = MethodType.methodType(returnType, parameterTypes);
+		try {
+			MethodHandle handle = MethodHandles.publicLookup().findStatic(ENTRY_POINTS, name, type);
+			return handle.asType(MethodType.methodType(erase(returnType), erase(parameterTypes)));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalStateException("StoryTreeBenchmark has no entry point " + name + type, e);
+		}
+	}
+
+	/**Replaces the classes of the game with Object
+	 *
+	 * @param type
+	 * 	A type of an entry point
+	 *
+	 * @return
+	 * 	Object for a class of the game, type otherwise
+	 */
+	private static Class<?> erase(Class<?> type) {
+		return type == TREE || type == OPTIONS ? Object.class : type;
+	}
+
+	/**Replaces the classes of the game with Object
+	 *
+	 * @param types
+	 * 	The parameter types of an entry point
+	 *
+	 * @return
+	 * 	A new array with Object for each class of the game
+	 */
+	private static Class<?>[] erase(Class<?>[] types) {
+		Class<?>[] erased = new Class<?>[types.length];
+		for (int x = 0; x < types.length; x++)
+			erased[x] = erase(types[x]);
+		return erased;
+	}
+}
@@ -0,0 +1,56 @@
+package storysimulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**This class measures how many stories readTree loads a second in each StoryLoadMode.
+ * LAZY opens an indexed copy of the story, which reads only its header.
+ *
+ * @author Pooja Ginjupalli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LoadBenchmark extends StoryBenchmark {
+	private String filename; //The story loaded
+
+	/**Writes the story once for every run of the benchmark
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be written
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		filename = writeStory();
+	}
+
+	/**Loads the story
+	 *
+	 * @param sink
+	 * 	Takes the tree so the JIT can't drop the load
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be loaded
+	 */
+	@Benchmark
+	public void readTree(Blackhole sink) throws Throwable {
+		Object tree = Game.readTree(filename, mode);
+		sink.consume(tree);
+		Game.closeTree(tree);
+	}
+}
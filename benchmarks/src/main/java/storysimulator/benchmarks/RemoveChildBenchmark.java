@@ -0,0 +1,77 @@
+package storysimulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**This class measures removeChild of the first child of the beginning of the story, a
+ * subtree holding about a third of a BALANCED story and most of a CHAIN. The story is
+ * loaded again before each removal, untimed, so each one removes the same subtree. The
+ * GC profiler counts the bytes allocated by that load along with the removal's.
+ *
+ * @author Pooja Ginjupalli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RemoveChildBenchmark extends StoryBenchmark {
+	private String filename; //The story loaded before each removal
+	private Object tree; //The tree the next removal edits
+
+	/**Writes the story once for every run of the benchmark
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be written
+	 */
+	@Setup(Level.Trial)
+	public void writeFile() throws Throwable {
+		filename = writeStory();
+	}
+
+	/**Loads the story before each removal
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be loaded
+	 */
+	@Setup(Level.Invocation)
+	public void load() throws Throwable {
+		tree = Game.readTree(filename, mode);
+	}
+
+	/**Closes the tree after each removal
+	 *
+	 * @exception Throwable
+	 * 	Indicates the tree could not be closed
+	 */
+	@TearDown(Level.Invocation)
+	public void close() throws Throwable {
+		Game.closeTree(tree);
+	}
+
+	/**Removes the first child of the beginning of the story
+	 *
+	 * @return
+	 * 	The number of leaves removed
+	 *
+	 * @exception Throwable
+	 * 	Indicates the child could not be removed
+	 */
+	@Benchmark
+	public int removeChild() throws Throwable {
+		return Game.removeChild(tree);
+	}
+}
@@ -0,0 +1,70 @@
+package storysimulator.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**This class measures how many stories saveTree writes a second in each StoryFormat,
+ * from a tree loaded in each StoryLoadMode, since each kind of tree writes itself.
+ *
+ * @author Pooja Ginjupalli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SaveBenchmark extends StoryBenchmark {
+	@Param({"TEXT", "BINARY", "INDEXED"})
+	public String format; //The name of the StoryFormat written
+
+	private Object tree; //The tree saved
+	private String saved; //The file the tree is saved to
+
+	/**Loads the story once for every run of the benchmark
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be written or loaded
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		tree = Game.readTree(writeStory(), mode);
+		File file = File.createTempFile("saved-story", ".story");
+		file.deleteOnExit();
+		saved = file.getPath();
+	}
+
+	/**Closes the tree once the run is over
+	 *
+	 * @exception Throwable
+	 * 	Indicates the tree could not be closed
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws Throwable {
+		Game.closeTree(tree);
+	}
+
+	/**Saves the story, replacing the file saved before
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be saved
+	 */
+	@Benchmark
+	public void saveTree() throws Throwable {
+		Game.saveTree(tree, saved, format);
+	}
+}
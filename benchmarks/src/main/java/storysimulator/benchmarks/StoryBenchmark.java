@@ -0,0 +1,42 @@
+package storysimulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**This class holds the parameters every benchmark takes: the size, shape and depth of the
+ * generated story and the StoryLoadMode it is loaded in. BALANCED stories are as wide and
+ * shallow as a story can be, CHAIN stories are long chains as deep as maxDepth allows,
+ * and RANDOM stories lie between. A CHAIN story only reaches its size with a large maxDepth.
+ *
+ * Any parameter can be set from the command line, such as -p nodes=10000000 -p shape=CHAIN.
+ *
+ * @author Pooja Ginjupalli
+ */
+@State(Scope.Benchmark)
+public abstract class StoryBenchmark {
+	@Param({"1000000"})
+	public int nodes; //The number of Nodes asked of the generator
+
+	@Param({"BALANCED", "CHAIN", "RANDOM"})
+	public String shape; //The name of the StoryShape
+
+	@Param({"64", "4096"})
+	public int maxDepth; //The depth no Node is made below
+
+	@Param({"HEAP", "MAPPED", "OFF_HEAP", "COMPACT", "LAZY"})
+	public String mode; //The name of the StoryLoadMode
+
+	/**Writes the story the parameters describe, in the format the mode loads
+	 *
+	 * @return
+	 * 	The name of the file written, an indexed file for LAZY and a text file otherwise
+	 *
+	 * @exception Throwable
+	 * 	Indicates the story could not be written
+	 */
+	String writeStory() throws Throwable {
+		String story = Game.writeStory(nodes, shape, maxDepth);
+		return mode.equals("LAZY") ? Game.writeIndexed(story) : story;
+	}
+}